@@ -14,6 +14,12 @@ public class BittingGroup
     // The child bitting groups
     private BittingNode[] groups;
 
+    // The number of change keys in the group when its children were not generated ({@code null} when they were).
+    private Long keyCount;
+
+    // The aggregate statistics of the group's change keys ({@code null} when they were not computed).
+    private BittingGroupStats stats;
+
     /*
         Implemented BittingNode operations
      */
@@ -43,6 +49,16 @@ public class BittingGroup
         Implemented HasGroups operations
      */
 
+    /**
+     * Gets the child nodes.
+     * A fully generated group holds one child per progression step, in step order. The children are {@code null} when
+     * they were not generated (see {@link #getKeyCount()}). The array may also hold {@code null} children: the groups
+     * off the path of a subtree generation, and the skipped keys of a 'usable keys in place' generation (a mode
+     * internal to the progression services). A 'usable keys only' generation leaves no {@code null} children, but the
+     * array then holds fewer nodes than there are steps.
+     *
+     * @return the child nodes, or {@code null} if they were not generated
+     */
     @Override
     public BittingNode[] getGroups() {
         return groups;
@@ -52,4 +68,45 @@ public class BittingGroup
     public void setGroups(BittingNode[] groups) {
         this.groups = groups;
     }
+
+    /*
+        Local operations
+     */
+
+    /**
+     * Gets the number of change keys in the group.
+     * It is only set when the group's children were not generated (e.g. a master-hierarchy-only bitting list).
+     *
+     * @return the number of change keys, or {@code null} if the group's children were generated
+     */
+    public Long getKeyCount() {
+        return keyCount;
+    }
+
+    /**
+     * Sets the number of change keys in the group.
+     *
+     * @param keyCount the new number of change keys ({@code null} if the group's children were generated)
+     */
+    public void setKeyCount(Long keyCount) {
+        this.keyCount = keyCount;
+    }
+
+    /**
+     * Gets the aggregate statistics of the group's change keys.
+     *
+     * @return the group's statistics, or {@code null} if they were not computed
+     */
+    public BittingGroupStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Sets the aggregate statistics of the group's change keys.
+     *
+     * @param stats the group's new statistics ({@code null} to drop them)
+     */
+    public void setStats(BittingGroupStats stats) {
+        this.stats = stats;
+    }
 }
@@ -0,0 +1,103 @@
+package com.eames.masterkey.model;
+
+/**
+ * This represents the aggregate statistics of a bitting group's change keys.
+ *
+ * They let a client show, skip, collapse or sort groups without walking the groups' {@link KeyBitting} children.
+ */
+public class BittingGroupStats {
+
+    // The number of change keys in the group.
+    private final long keyCount;
+
+    // The number of change keys in the group that do not violate the MACS.
+    private final long usableKeyCount;
+
+    // The largest adjacent cut difference of the group's change keys (-1 when the group holds none).
+    private final int maxAdjacentCutDifference;
+
+    /**
+     * Constructor
+     *
+     * @param keyCount the number of change keys in the group
+     * @param usableKeyCount the number of change keys in the group that do not violate the MACS
+     * @param maxAdjacentCutDifference the largest adjacent cut difference of the group's change keys (-1 if none)
+     */
+    public BittingGroupStats(long keyCount, long usableKeyCount, int maxAdjacentCutDifference) {
+
+        this.keyCount = keyCount;
+        this.usableKeyCount = usableKeyCount;
+        this.maxAdjacentCutDifference = maxAdjacentCutDifference;
+    }
+
+    /**
+     * Gets the number of change keys in the group.
+     *
+     * @return the key count
+     */
+    public long getKeyCount() {
+        return keyCount;
+    }
+
+    /**
+     * Gets the number of change keys in the group that do not violate the MACS.
+     *
+     * @return the usable key count
+     */
+    public long getUsableKeyCount() {
+        return usableKeyCount;
+    }
+
+    /**
+     * Gets the largest adjacent cut difference of the group's change keys.
+     * The group holds at least one key that violates a MACS smaller than this difference.
+     *
+     * @return the largest adjacent cut difference (-1 if the group holds no change key)
+     */
+    public int getMaxAdjacentCutDifference() {
+        return maxAdjacentCutDifference;
+    }
+
+    /**
+     * Aggregates the statistics of the given children of a bitting group.
+     * Change keys are counted one by one; child groups contribute their own statistics. Missing ({@code null})
+     * children are passed over.
+     *
+     * @param bittingNodes the group's children
+     * @return the newly aggregated statistics
+     * @throws IllegalArgumentException if a child group has no statistics
+     */
+    public static BittingGroupStats aggregate(BittingNode[] bittingNodes) {
+
+        long keyCount = 0;
+        long usableKeyCount = 0;
+        int maxAdjacentCutDifference = -1;
+        for (BittingNode bittingNode : bittingNodes) {
+
+            if (bittingNode == null)
+                continue;
+
+            if (bittingNode.hasGroups()) {
+
+                BittingGroupStats stats = ((BittingGroup) bittingNode).getStats();
+                if (stats == null)
+                    throw new IllegalArgumentException("A child bitting group has no statistics.");
+
+                keyCount += stats.keyCount;
+                usableKeyCount += stats.usableKeyCount;
+                maxAdjacentCutDifference = Integer.max(maxAdjacentCutDifference, stats.maxAdjacentCutDifference);
+            }
+            else {
+
+                KeyBitting keyBitting = (KeyBitting) bittingNode;
+                keyCount++;
+                if (!keyBitting.getHasMACSViolation())
+                    usableKeyCount++;
+                maxAdjacentCutDifference = Integer.max(maxAdjacentCutDifference,
+                        keyBitting.getMaxAdjacentCutDifference());
+            }
+        }
+
+        return new BittingGroupStats(keyCount, usableKeyCount, maxAdjacentCutDifference);
+    }
+}
@@ -27,4 +27,95 @@ public class BittingList {
     public void setRootBittingGroup(BittingGroup rootBittingGroup) {
         this.rootBittingGroup = rootBittingGroup;
     }
+
+    /**
+     * Re-flags the MACS violations of every key in the bitting list for the given MACS.
+     * Each key's flag is set from its recorded largest adjacent cut difference, so nothing is regenerated. Missing
+     * (skipped) keys and the groups whose children were not generated are passed over.
+     *
+     * @param macs the MACS to flag the keys against
+     * @return the number of change keys that do not violate the given MACS
+     */
+    public long reflagMACSViolations(int macs) {
+
+        BittingGroup rootBittingGroup = getRootBittingGroup();
+
+        return (rootBittingGroup == null) ? 0 : reflagMACSViolations(rootBittingGroup, macs);
+    }
+
+    /**
+     * Recomputes, bottom-up, the statistics of every group in the bitting list whose children were generated (e.g.
+     * after its keys were re-flagged or edited). The groups whose children were not generated keep their statistics.
+     *
+     * @return the root bitting group's statistics, or {@code null} if there is no root bitting group
+     * @throws IllegalArgumentException if a group whose children were not generated has no statistics
+     */
+    public BittingGroupStats updateGroupStats() {
+
+        BittingGroup rootBittingGroup = getRootBittingGroup();
+
+        return (rootBittingGroup == null) ? null : updateGroupStats(rootBittingGroup);
+    }
+
+    /*
+     * Local operations
+     */
+
+    /**
+     * Recomputes the statistics of the given bitting group and of its child groups.
+     *
+     * @param bittingGroup the bitting group to update
+     * @return the group's statistics
+     * @throws IllegalArgumentException if a group whose children were not generated has no statistics
+     */
+    private static BittingGroupStats updateGroupStats(BittingGroup bittingGroup) {
+
+        BittingNode[] bittingNodes = bittingGroup.getGroups();
+        if (bittingNodes == null) {
+
+            if (bittingGroup.getStats() == null)
+                throw new IllegalArgumentException("A bitting group whose children were not generated has no " +
+                        "statistics.");
+
+            return bittingGroup.getStats();
+        }
+
+        for (BittingNode bittingNode : bittingNodes) {
+            if (bittingNode instanceof BittingGroup)
+                updateGroupStats((BittingGroup) bittingNode);
+        }
+
+        // Throws: IllegalArgumentException
+        bittingGroup.setStats(BittingGroupStats.aggregate(bittingNodes));
+
+        return bittingGroup.getStats();
+    }
+
+    /**
+     * Re-flags the MACS violations of the given bitting group's keys for the given MACS.
+     *
+     * @param bittingGroup the bitting group to re-flag
+     * @param macs the MACS to flag the keys against
+     * @return the number of the group's change keys that do not violate the given MACS
+     */
+    private static long reflagMACSViolations(BittingGroup bittingGroup, int macs) {
+
+        if (bittingGroup.getMaster() != null)
+            bittingGroup.getMaster().reflagMACSViolation(macs);
+
+        long usableKeyCount = 0;
+        BittingNode[] bittingNodes = bittingGroup.getGroups();
+        if (bittingNodes != null) {
+
+            for (BittingNode bittingNode : bittingNodes) {
+
+                if (bittingNode instanceof BittingGroup)
+                    usableKeyCount += reflagMACSViolations((BittingGroup) bittingNode, macs);
+                else if ((bittingNode instanceof KeyBitting) && !((KeyBitting) bittingNode).reflagMACSViolation(macs))
+                    usableKeyCount++;
+            }
+        }
+
+        return usableKeyCount;
+    }
 }
@@ -0,0 +1,79 @@
+package com.eames.masterkey.model;
+
+/**
+ * This class represents a single entry of a bitting list when the list is traversed in order rather than held as a
+ * tree of {@link BittingGroup}s.
+ *
+ * An entry is either a group's master key or a change key. It carries the key's group path, which is the list of
+ * step indices that leads from the root bitting group to the key's node.
+ */
+public class BittingListEntry {
+
+    // The key bitting.
+    private final KeyBitting keyBitting;
+
+    // The group path from the root bitting group.
+    private final int[] groupPath;
+
+    // The rank of the change key (or, for a master key, the rank of the group's first change key).
+    private final long rank;
+
+    // Whether the entry is a group's master key.
+    private final boolean master;
+
+    /**
+     * Constructor
+     *
+     * @param keyBitting the entry's key bitting
+     * @param groupPath the entry's group path
+     * @param rank the entry's rank
+     * @param master {@code True} if the entry is a master key, {@code false} if it is a change key
+     */
+    public BittingListEntry(KeyBitting keyBitting, int[] groupPath, long rank, boolean master) {
+
+        this.keyBitting = keyBitting;
+        this.groupPath = groupPath;
+        this.rank = rank;
+        this.master = master;
+    }
+
+    /**
+     * Gets the {@link KeyBitting}.
+     *
+     * @return the key bitting
+     */
+    public KeyBitting getKeyBitting() {
+        return keyBitting;
+    }
+
+    /**
+     * Gets the group path.
+     * A master key's path leads to the group it is the master of. A change key's path ends with the key's index in
+     * its group.
+     *
+     * @return the group path
+     */
+    public int[] getGroupPath() {
+        return groupPath;
+    }
+
+    /**
+     * Gets the rank.
+     * Change keys are ranked in bitting list order starting at 0. A master key has the rank of the first change key
+     * in its group.
+     *
+     * @return the rank
+     */
+    public long getRank() {
+        return rank;
+    }
+
+    /**
+     * Tests whether the entry is a group's master key.
+     *
+     * @return {@code True} if the entry is a master key, {@code false} if it is a change key
+     */
+    public boolean isMaster() {
+        return master;
+    }
+}
@@ -0,0 +1,101 @@
+package com.eames.masterkey.model;
+
+import java.util.List;
+
+/**
+ * This class represents one page of a bitting list.
+ *
+ * A page covers a range of change key ranks. It holds the {@link BittingListEntry}s of those change keys in order,
+ * each preceded by the master keys of the groups that start with it. It also tells where the next page starts, both
+ * as a rank and as an opaque cursor token, so the caller can ask for the next page without any server-side state.
+ */
+public class BittingListPage {
+
+    // The page's entries, in bitting list order.
+    private final List<BittingListEntry> entries;
+
+    // The rank of the page's first change key.
+    private final long offset;
+
+    // The number of change keys in the whole bitting list.
+    private final long keyCount;
+
+    // The rank of the next page's first change key (-1 if this is the last page).
+    private final long nextOffset;
+
+    // The cursor token of the next page ({@code null} if this is the last page).
+    private final String nextCursor;
+
+    /**
+     * Constructor
+     *
+     * @param entries the page's entries, in bitting list order
+     * @param offset the rank of the page's first change key
+     * @param keyCount the number of change keys in the whole bitting list
+     * @param nextOffset the rank of the next page's first change key (-1 if this is the last page)
+     * @param nextCursor the cursor token of the next page ({@code null} if this is the last page)
+     */
+    public BittingListPage(List<BittingListEntry> entries, long offset, long keyCount, long nextOffset,
+                           String nextCursor) {
+
+        this.entries = entries;
+        this.offset = offset;
+        this.keyCount = keyCount;
+        this.nextOffset = nextOffset;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Gets the page's entries.
+     *
+     * @return the entries, in bitting list order
+     */
+    public List<BittingListEntry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Gets the rank of the page's first change key.
+     *
+     * @return the offset
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Gets the number of change keys in the whole bitting list.
+     *
+     * @return the key count
+     */
+    public long getKeyCount() {
+        return keyCount;
+    }
+
+    /**
+     * Gets the rank of the next page's first change key.
+     *
+     * @return the next offset, or -1 if this is the last page
+     */
+    public long getNextOffset() {
+        return nextOffset;
+    }
+
+    /**
+     * Gets the cursor token of the next page.
+     *
+     * @return the next cursor, or {@code null} if this is the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Tests whether this is the last page.
+     *
+     * @return {@code True} if there are no more pages, {@code false} if there are
+     */
+    public boolean isLastPage() {
+        return (nextOffset < 0);
+    }
+}
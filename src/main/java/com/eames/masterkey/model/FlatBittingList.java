@@ -0,0 +1,394 @@
+package com.eames.masterkey.model;
+
+import java.util.BitSet;
+
+/**
+ * This class represents a master key system bitting list that is stored in flat primitive arrays instead of a tree of
+ * {@link BittingGroup} and {@link KeyBitting} objects.
+ *
+ * All change key cuts are held in a single byte array in change key rank order (cutCount bytes per key) and the MACS
+ * status of every key is held in a parallel bit set. The master keys are held the same way, level by level: the root
+ * master first, then the stepCount masters of the first level groups, and so on.
+ *
+ * The groups are navigated with index arithmetic: the group at depth d with index g has the children d + 1 with
+ * indexes [g * stepCount, (g + 1) * stepCount), and the change keys of the leaf group g have the ranks
+ * [g * stepCount, (g + 1) * stepCount).
+ *
+ * A flat bitting list is not a {@link BittingList}: it is read and written through its own operations, and
+ * {@link #toBittingList()} converts it into a tree of {@link BittingGroup} and {@link KeyBitting} objects for the code
+ * that walks bitting list trees.
+ */
+public class FlatBittingList {
+
+    // The number of cuts in every key.
+    private final int cutCount;
+
+    // The number of steps in every group.
+    private final int stepCount;
+
+    // The number of change keys.
+    private final int keyCount;
+
+    // The number of master keys.
+    private final int masterCount;
+
+    // The index of the first master key of each group depth [0, cutCount).
+    private final int[] levelOffsets;
+
+    // The change key cuts in rank order.
+    private final byte[] keyCuts;
+
+    // The change key MACS violation flags in rank order.
+    private final BitSet keyViolations;
+
+    // The master key cuts in level order.
+    private final byte[] masterCuts;
+
+    // The master key MACS violation flags in level order.
+    private final BitSet masterViolations;
+
+    /**
+     * Constructor
+     *
+     * @param cutCount the number of cuts in every key
+     * @param stepCount the number of steps in every group
+     * @throws IllegalArgumentException if the list is too large to be stored in flat arrays
+     */
+    public FlatBittingList(int cutCount, int stepCount) {
+
+        this.cutCount = cutCount;
+        this.stepCount = stepCount;
+
+        // Calculate the master offsets and counts.
+        levelOffsets = new int[cutCount];
+        long groupCount = 1;
+        long masters = 0;
+        for (int depth = 0; depth < cutCount; depth++) {
+
+            levelOffsets[depth] = (int) masters;
+            masters += groupCount;
+            groupCount *= stepCount;
+        }
+
+        // The arrays are indexed with ints.
+        if (groupCount * cutCount > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("The bitting list is too large to be stored in flat arrays.");
+
+        keyCount = (int) groupCount;
+        masterCount = (int) masters;
+
+        // Allocate the storage.
+        keyCuts = new byte[keyCount * cutCount];
+        keyViolations = new BitSet(keyCount);
+        masterCuts = new byte[masterCount * cutCount];
+        masterViolations = new BitSet(masterCount);
+    }
+
+    /*
+     * Bitting list operations
+     */
+
+    /**
+     * Converts the flat bitting list into a tree of {@link BittingGroup} and {@link KeyBitting} objects.
+     * The tree is a copy: later changes to either list do not show in the other.
+     *
+     * @return the newly created bitting list
+     */
+    public BittingList toBittingList() {
+
+        BittingList bittingList = new BittingList();
+        bittingList.setRootBittingGroup(createBittingGroup(0, 0));
+
+        return bittingList;
+    }
+
+    /**
+     * Re-flags the MACS violations of every key in the bitting list for the given MACS.
+     * The largest adjacent cut difference of each key is read straight from the flat cut storage.
+     *
+     * @param macs the MACS to flag the keys against
+     * @return the number of change keys that do not violate the given MACS
+     */
+    public long reflagMACSViolations(int macs) {
+
+        for (int masterIndex = 0; masterIndex < masterCount; masterIndex++)
+            masterViolations.set(masterIndex, getMaxAdjacentCutDifference(masterCuts, masterIndex) > macs);
+
+        long usableKeyCount = 0;
+        for (int rank = 0; rank < keyCount; rank++) {
+
+            boolean hasMACSViolation = getMaxAdjacentCutDifference(keyCuts, rank) > macs;
+            keyViolations.set(rank, hasMACSViolation);
+            if (!hasMACSViolation)
+                usableKeyCount++;
+        }
+
+        return usableKeyCount;
+    }
+
+    /*
+     * Flat operations
+     */
+
+    /**
+     * Gets the number of cuts in every key.
+     *
+     * @return the cut count
+     */
+    public int getCutCount() {
+        return cutCount;
+    }
+
+    /**
+     * Gets the number of steps in every group.
+     *
+     * @return the step count
+     */
+    public int getStepCount() {
+        return stepCount;
+    }
+
+    /**
+     * Gets the number of change keys.
+     *
+     * @return the change key count
+     */
+    public int getKeyCount() {
+        return keyCount;
+    }
+
+    /**
+     * Gets the number of master keys.
+     *
+     * @return the master key count
+     */
+    public int getMasterCount() {
+        return masterCount;
+    }
+
+    /**
+     * Gets a change key cut.
+     *
+     * @param rank the change key rank
+     * @param cut the cut [0, cutCount)
+     * @return the cut depth
+     */
+    public int getKeyCut(int rank, int cut) {
+        return keyCuts[rank * cutCount + cut];
+    }
+
+    /**
+     * Gets a change key's cuts.
+     *
+     * @param rank the change key rank
+     * @return a newly allocated array with the key's cuts
+     */
+    public int[] getKey(int rank) {
+        return readCuts(keyCuts, rank);
+    }
+
+    /**
+     * Sets a change key's cuts.
+     *
+     * @param rank the change key rank
+     * @param key the key's cuts
+     */
+    public void setKey(int rank, int[] key) {
+        writeCuts(keyCuts, rank, key);
+    }
+
+    /**
+     * Gets a change key's MACS violation flag.
+     *
+     * @param rank the change key rank
+     * @return {@code True} if the key has a MACS violation, {@code false} if not.
+     */
+    public boolean getHasMACSViolation(int rank) {
+        return keyViolations.get(rank);
+    }
+
+    /**
+     * Sets a change key's MACS violation flag.
+     *
+     * @param rank the change key rank
+     * @param hasMACSViolation the new MACS violation flag
+     */
+    public void setHasMACSViolation(int rank, boolean hasMACSViolation) {
+        keyViolations.set(rank, hasMACSViolation);
+    }
+
+    /**
+     * Copies a change key's cuts and MACS violation flag from another flat bitting list with the same cut count.
+     * The cuts are copied byte for byte; the key is not re-tested.
+     *
+     * @param rank the change key rank to copy to
+     * @param source the bitting list to copy from
+     * @param sourceRank the change key rank to copy from
+     */
+    public void copyKey(int rank, FlatBittingList source, int sourceRank) {
+
+        System.arraycopy(source.keyCuts, sourceRank * cutCount, keyCuts, rank * cutCount, cutCount);
+        keyViolations.set(rank, source.keyViolations.get(sourceRank));
+    }
+
+    /**
+     * Copies a master key's cuts and MACS violation flag from another flat bitting list with the same cut count.
+     * The cuts are copied byte for byte; the key is not re-tested.
+     *
+     * @param masterIndex the master index to copy to (see {@link #getMasterIndex(int, int)})
+     * @param source the bitting list to copy from
+     * @param sourceMasterIndex the master index to copy from
+     */
+    public void copyMaster(int masterIndex, FlatBittingList source, int sourceMasterIndex) {
+
+        System.arraycopy(source.masterCuts, sourceMasterIndex * cutCount, masterCuts, masterIndex * cutCount,
+                cutCount);
+        masterViolations.set(masterIndex, source.masterViolations.get(sourceMasterIndex));
+    }
+
+    /**
+     * Gets the index of a master key within the flat master storage.
+     *
+     * @param depth the depth of the master's group (0 for the root)
+     * @param groupIndex the index of the master's group within its depth [0, stepCount ^ depth)
+     * @return the master index
+     */
+    public int getMasterIndex(int depth, int groupIndex) {
+        return levelOffsets[depth] + groupIndex;
+    }
+
+    /**
+     * Gets a master key's cuts.
+     *
+     * @param masterIndex the master index (see {@link #getMasterIndex(int, int)})
+     * @return a newly allocated array with the key's cuts
+     */
+    public int[] getMaster(int masterIndex) {
+        return readCuts(masterCuts, masterIndex);
+    }
+
+    /**
+     * Sets a master key's cuts.
+     *
+     * @param masterIndex the master index (see {@link #getMasterIndex(int, int)})
+     * @param key the key's cuts
+     */
+    public void setMaster(int masterIndex, int[] key) {
+        writeCuts(masterCuts, masterIndex, key);
+    }
+
+    /**
+     * Gets a master key's MACS violation flag.
+     *
+     * @param masterIndex the master index (see {@link #getMasterIndex(int, int)})
+     * @return {@code True} if the key has a MACS violation, {@code false} if not.
+     */
+    public boolean getMasterHasMACSViolation(int masterIndex) {
+        return masterViolations.get(masterIndex);
+    }
+
+    /**
+     * Sets a master key's MACS violation flag.
+     *
+     * @param masterIndex the master index (see {@link #getMasterIndex(int, int)})
+     * @param hasMACSViolation the new MACS violation flag
+     */
+    public void setMasterHasMACSViolation(int masterIndex, boolean hasMACSViolation) {
+        masterViolations.set(masterIndex, hasMACSViolation);
+    }
+
+    /*
+     * Local operations
+     */
+
+    /**
+     * Creates the {@link BittingGroup} with the given depth and index, along with its descendants.
+     *
+     * @param depth the group's depth (0 for the root)
+     * @param groupIndex the group's index within its depth
+     * @return the newly created bitting group
+     */
+    private BittingGroup createBittingGroup(int depth, int groupIndex) {
+
+        BittingGroup bittingGroup = new BittingGroup();
+        int masterIndex = getMasterIndex(depth, groupIndex);
+        bittingGroup.setMaster(createKeyBitting(getMaster(masterIndex), getMasterHasMACSViolation(masterIndex)));
+
+        // The leaf groups hold the change keys, the other groups hold the next level's groups.
+        int firstChild = groupIndex * stepCount;
+        BittingNode[] bittingNodes = new BittingNode[stepCount];
+        for (int step = 0; step < stepCount; step++) {
+
+            int child = firstChild + step;
+            bittingNodes[step] = (depth == cutCount - 1) ?
+                    createKeyBitting(getKey(child), getHasMACSViolation(child)) :
+                    createBittingGroup(depth + 1, child);
+        }
+        bittingGroup.setGroups(bittingNodes);
+
+        return bittingGroup;
+    }
+
+    /**
+     * Creates a {@link KeyBitting} with the given cuts and MACS violation flag.
+     *
+     * @param key the key's cuts
+     * @param hasMACSViolation the key's MACS violation flag
+     * @return the newly created key bitting
+     */
+    private static KeyBitting createKeyBitting(int[] key, boolean hasMACSViolation) {
+
+        KeyBitting keyBitting = new KeyBitting(key);
+        keyBitting.setHasMACSViolation(hasMACSViolation);
+
+        return keyBitting;
+    }
+
+    /**
+     * Finds the largest adjacent cut difference of a key in the given storage.
+     *
+     * @param storage the storage to read
+     * @param index the key's index
+     * @return the largest adjacent cut difference
+     */
+    private int getMaxAdjacentCutDifference(byte[] storage, int index) {
+
+        int maxDifference = 0;
+        int offset = index * cutCount;
+        for (int cut = 1; cut < cutCount; cut++)
+            maxDifference = Integer.max(maxDifference, Math.abs(storage[offset + cut] - storage[offset + cut - 1]));
+
+        return maxDifference;
+    }
+
+    /**
+     * Reads a key's cuts out of the given storage.
+     *
+     * @param storage the storage to read
+     * @param index the key's index
+     * @return a newly allocated array with the key's cuts
+     */
+    private int[] readCuts(byte[] storage, int index) {
+
+        int[] key = new int[cutCount];
+        int offset = index * cutCount;
+        for (int cut = 0; cut < cutCount; cut++)
+            key[cut] = storage[offset + cut];
+
+        return key;
+    }
+
+    /**
+     * Writes a key's cuts into the given storage.
+     *
+     * @param storage the storage to write
+     * @param index the key's index
+     * @param key the key's cuts
+     */
+    private void writeCuts(byte[] storage, int index, int[] key) {
+
+        int offset = index * cutCount;
+        for (int cut = 0; cut < cutCount; cut++)
+            storage[offset + cut] = (byte) key[cut];
+    }
+}
@@ -19,6 +19,31 @@ public interface HasKey {
      */
     void setKey(int[] key);
 
+    /**
+     * Gets the key cuts packed into a single {@code long}.
+     * Packing is an explicit opt-in for compact storage; it is limited to 15 cuts with depths in [0, 15], so it is not
+     * used to compare or hash keys.
+     *
+     * @return the packed key cuts
+     * @throws IllegalArgumentException if the key cannot be packed
+     * @see PackedKey#pack(int[])
+     */
+    default long getPackedKey() {
+
+        // Throws: IllegalArgumentException
+        return PackedKey.pack(getKey());
+    }
+
+    /**
+     * Sets the key cuts from their packed form.
+     *
+     * @param packedKey the new packed key cuts
+     * @see PackedKey#unpack(long)
+     */
+    default void setPackedKey(long packedKey) {
+        setKey(PackedKey.unpack(packedKey));
+    }
+
     /**
      * Gets the key status.
      *
@@ -1,5 +1,7 @@
 package com.eames.masterkey.model;
 
+import java.util.Arrays;
+
 import static java.lang.Math.abs;
 
 /**
@@ -17,6 +19,9 @@ public class KeyBitting
     // The key's status mask.
     private int status = 0;
 
+    // The key's largest adjacent cut difference (-1 until it is recorded). It is not serialized.
+    private transient int maxAdjacentCutDifference = -1;
+
     /**
      * Constructor
      *
@@ -67,7 +72,9 @@ public class KeyBitting
 
     @Override
     public void setKey(int[] key) {
+
         this.key = key;
+        this.maxAdjacentCutDifference = -1;
     }
 
     @Override
@@ -83,29 +90,11 @@ public class KeyBitting
     @Override
     public boolean testForMACSViolation(int macs) {
 
-        // Clear the status mask.
-        setHasMACSViolation(false);
-
-        // There must be a key.
-        if (key != null) {
+        // Record the key's largest adjacent cut difference.
+        setMaxAdjacentCutDifference(getMaxAdjacentCutDifference(getKey()));
 
-            // Test the cuts until we find one that violates the MACS or we run out.
-            Integer lastCut = null;
-            for (int cut : key) {
-
-                // The MACS has been violated.
-                if ((lastCut != null) && (abs(cut - lastCut) > macs)) {
-                    setHasMACSViolation(true);
-                    break;
-                }
-
-                // Save the cut to compare it to the next one.
-                lastCut = cut;
-            }
-        }
-
-        // Return the 'MACS violation' flag.
-        return getHasMACSViolation();
+        // Test the key and set the 'MACS violation' flag.
+        return reflagMACSViolation(macs);
     }
 
     @Override
@@ -123,6 +112,48 @@ public class KeyBitting
             clearStatusBit(STATUS_MASK_MACS);
     }
 
+    /*
+     * Local operations
+     */
+
+    /**
+     * Gets the key's largest adjacent cut difference.
+     * The difference is recorded when the key is generated or tested; otherwise it is computed from the key (and
+     * recorded) on the first call.
+     *
+     * @return the largest adjacent cut difference (0 if the key has fewer than two cuts)
+     */
+    public int getMaxAdjacentCutDifference() {
+
+        if (maxAdjacentCutDifference < 0)
+            maxAdjacentCutDifference = getMaxAdjacentCutDifference(getKey());
+
+        return maxAdjacentCutDifference;
+    }
+
+    /**
+     * Records the key's largest adjacent cut difference.
+     *
+     * @param maxAdjacentCutDifference the largest adjacent cut difference
+     */
+    public void setMaxAdjacentCutDifference(int maxAdjacentCutDifference) {
+        this.maxAdjacentCutDifference = maxAdjacentCutDifference;
+    }
+
+    /**
+     * Sets the 'MACS violation' flag for the given MACS from the key's largest adjacent cut difference.
+     * The cuts are not re-tested, so re-flagging a whole bitting list for a new MACS is a single cheap pass.
+     *
+     * @param macs the MACS to test against
+     * @return {@code True} if the key violates the given MACS, {@code false} if not
+     */
+    public boolean reflagMACSViolation(int macs) {
+
+        setHasMACSViolation(getMaxAdjacentCutDifference() > macs);
+
+        return getHasMACSViolation();
+    }
+
     /**
      * Local status operations
      */
@@ -135,7 +166,7 @@ public class KeyBitting
      */
     private boolean testStatusBit(int statusBit) {
 
-        return ((status & (1 << statusBit)) != 0);
+        return ((getStatus() & (1 << statusBit)) != 0);
     }
 
     /**
@@ -145,7 +176,7 @@ public class KeyBitting
      */
     private void clearStatusBit(int statusBit) {
 
-        status &= ~(1 << statusBit);
+        setStatus(getStatus() & ~(1 << statusBit));
     }
 
     /**
@@ -155,6 +186,84 @@ public class KeyBitting
      */
     private void setStatusBit(int statusBit) {
 
-        status |= (1 << statusBit);
+        setStatus(getStatus() | (1 << statusBit));
+    }
+
+    /*
+     * Object operations
+     */
+
+    /**
+     * Two key bittings are equal if and only if their key cuts are equal; the status is not compared.
+     * The hash code is taken from the key cuts too, so a key bitting's cuts must not be changed while it is held in a
+     * hashed collection.
+     *
+     * @param other the object to compare to
+     * @return {@code True} if the objects are equal, {@code false} if not
+     */
+    @Override
+    public boolean equals(Object other) {
+
+        if (this == other)
+            return true;
+
+        if (!(other instanceof KeyBitting))
+            return false;
+
+        return Arrays.equals(getKey(), ((KeyBitting) other).getKey());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(getKey());
+    }
+
+    /*
+     * Class operations
+     */
+
+    /**
+     * Tests the given key cuts for a MACS violation.
+     *
+     * @param key the key cuts to test (may be {@code null})
+     * @param macs the MACS to test against
+     * @return {@code True} if the key violates the given MACS, {@code false} if not.
+     */
+    public static boolean hasMACSViolation(int[] key, int macs) {
+
+        // There must be a key.
+        if (key != null) {
+
+            // Test the cuts until we find one that violates the MACS or we run out.
+            for (int cut = 1; cut < key.length; cut++) {
+
+                // The MACS has been violated.
+                if (abs(key[cut] - key[cut - 1]) > macs)
+                    return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Finds the largest difference between the adjacent cuts of the given key cuts.
+     * The key violates a MACS if and only if the difference is larger than the MACS.
+     *
+     * @param key the key cuts to test (may be {@code null})
+     * @return the largest adjacent cut difference (0 if the key is {@code null} or has fewer than two cuts)
+     */
+    public static int getMaxAdjacentCutDifference(int[] key) {
+
+        int maxDifference = 0;
+
+        // There must be a key.
+        if (key != null) {
+
+            for (int cut = 1; cut < key.length; cut++)
+                maxDifference = Integer.max(maxDifference, abs(key[cut] - key[cut - 1]));
+        }
+
+        return maxDifference;
     }
 }
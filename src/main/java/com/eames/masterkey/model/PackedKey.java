@@ -0,0 +1,229 @@
+package com.eames.masterkey.model;
+
+import java.util.Arrays;
+
+/**
+ * This class represents a key's cuts packed into a single {@code long}.
+ *
+ * Each cut takes 4 bits, so depths are limited to [0, 15]. The first cut is the most significant of the cut bits and
+ * the cut count is held in the top 4 bits, so packed keys of the same length sort in the same order as their cuts
+ * compared left to right, and shorter keys sort before longer ones. At most 15 cuts fit.
+ *
+ * Packed keys have value semantics: two packed keys are equal if and only if their cuts are equal.
+ */
+public final class PackedKey
+        implements Comparable<PackedKey> {
+
+    // The number of bits per cut.
+    public static final int BITS_PER_CUT = 4;
+
+    // The largest depth that can be packed.
+    public static final int DEPTH_MAX = (1 << BITS_PER_CUT) - 1;
+
+    // The largest number of cuts that can be packed.
+    public static final int CUT_COUNT_MAX = (Long.SIZE / BITS_PER_CUT) - 1;
+
+    // The bit position of the cut count.
+    private static final int CUT_COUNT_SHIFT = CUT_COUNT_MAX * BITS_PER_CUT;
+
+    // The mask of a single cut.
+    private static final long CUT_MASK = DEPTH_MAX;
+
+    // The packed cuts.
+    private final long value;
+
+    /**
+     * Constructor
+     *
+     * @param value the packed cuts (as returned by {@link #pack(int[])})
+     */
+    public PackedKey(long value) {
+        this.value = value;
+    }
+
+    /**
+     * Constructor
+     *
+     * @param key the key cuts to pack
+     * @throws IllegalArgumentException if the key cannot be packed
+     */
+    public PackedKey(int[] key) {
+
+        // Throws: IllegalArgumentException
+        this(pack(key));
+    }
+
+    /**
+     * Gets the packed cuts.
+     *
+     * @return the packed cuts
+     */
+    public long getValue() {
+        return value;
+    }
+
+    /**
+     * Gets the number of cuts.
+     *
+     * @return the number of cuts
+     */
+    public int getCutCount() {
+        return getCutCount(value);
+    }
+
+    /**
+     * Gets the depth of the given cut.
+     *
+     * @param cut the index of the cut [0, cutCount)
+     * @return the cut's depth
+     */
+    public int getCut(int cut) {
+        return getCut(value, cut);
+    }
+
+    /**
+     * Unpacks the cuts.
+     *
+     * @return the newly unpacked key cuts
+     */
+    public int[] getKey() {
+        return unpack(value);
+    }
+
+    /*
+     * Implemented Comparable operations
+     */
+
+    @Override
+    public int compareTo(PackedKey other) {
+        return Long.compare(value, other.value);
+    }
+
+    /*
+     * Object operations
+     */
+
+    @Override
+    public boolean equals(Object other) {
+
+        return (this == other) || ((other instanceof PackedKey) && (value == ((PackedKey) other).value));
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(value);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(getKey());
+    }
+
+    /*
+     * Class operations
+     */
+
+    /**
+     * Packs the given key cuts.
+     *
+     * @param key the key cuts to pack
+     * @return the packed cuts
+     * @throws IllegalArgumentException if the key is missing, has too many cuts, or has a depth outside [0, 15]
+     */
+    public static long pack(int[] key) {
+
+        // Validate the key.
+        if ((key == null) || (key.length > CUT_COUNT_MAX)) {
+
+            StringBuilder sb = new StringBuilder();
+            sb.append("Could not pack the key; it must have at most ");
+            sb.append(CUT_COUNT_MAX);
+            sb.append(" cuts.");
+            throw new IllegalArgumentException(sb.toString());
+        }
+
+        long value = (long) key.length << CUT_COUNT_SHIFT;
+        for (int cut = 0; cut < key.length; cut++) {
+
+            // Validate the depth.
+            if ((key[cut] < 0) || (key[cut] > DEPTH_MAX)) {
+
+                StringBuilder sb = new StringBuilder();
+                sb.append("Could not pack the key; cut ");
+                sb.append(cut);
+                sb.append(" has a depth (");
+                sb.append(key[cut]);
+                sb.append(") outside [0, ");
+                sb.append(DEPTH_MAX);
+                sb.append("].");
+                throw new IllegalArgumentException(sb.toString());
+            }
+
+            value |= (long) key[cut] << ((key.length - cut - 1) * BITS_PER_CUT);
+        }
+
+        return value;
+    }
+
+    /**
+     * Unpacks the given packed cuts.
+     *
+     * @param value the packed cuts
+     * @return the newly unpacked key cuts
+     */
+    public static int[] unpack(long value) {
+
+        int[] key = new int[getCutCount(value)];
+        unpack(value, key);
+
+        return key;
+    }
+
+    /**
+     * Unpacks the given packed cuts into the given array.
+     *
+     * @param value the packed cuts
+     * @param key the array to fill (must have room for the packed cuts)
+     */
+    public static void unpack(long value, int[] key) {
+
+        int cutCount = getCutCount(value);
+        for (int cut = 0; cut < cutCount; cut++)
+            key[cut] = (int) ((value >>> ((cutCount - cut - 1) * BITS_PER_CUT)) & CUT_MASK);
+    }
+
+    /**
+     * Gets the number of cuts held in the given packed cuts.
+     *
+     * @param value the packed cuts
+     * @return the number of cuts
+     */
+    public static int getCutCount(long value) {
+        return (int) (value >>> CUT_COUNT_SHIFT);
+    }
+
+    /**
+     * Gets the depth of the given cut from the given packed cuts.
+     *
+     * @param value the packed cuts
+     * @param cut the index of the cut [0, cutCount)
+     * @return the cut's depth
+     */
+    public static int getCut(long value, int cut) {
+        return (int) ((value >>> ((getCutCount(value) - cut - 1) * BITS_PER_CUT)) & CUT_MASK);
+    }
+
+    /**
+     * Replaces the depth of the given cut in the given packed cuts.
+     *
+     * @param value the packed cuts
+     * @param cut the index of the cut [0, cutCount)
+     * @param depth the new depth [0, 15]
+     * @return the updated packed cuts
+     */
+    public static long setCut(long value, int cut, int depth) {
+
+        int shift = (getCutCount(value) - cut - 1) * BITS_PER_CUT;
+        return (value & ~(CUT_MASK << shift)) | (((long) depth & CUT_MASK) << shift);
+    }
+}
@@ -1,6 +1,9 @@
 package com.eames.masterkey.service.progression;
 
 import com.eames.masterkey.model.BittingList;
+import com.eames.masterkey.model.BittingListPage;
+
+import java.util.Map;
 
 /**
  * This class holds the results of Progression Services' bitting list generations.
@@ -16,6 +19,12 @@ public class ProgressionServiceResults {
     // The generated bitting list.
     private BittingList bittingList;
 
+    // The generated bitting list page (when a single page was requested instead of the whole bitting list).
+    private BittingListPage bittingListPage;
+
+    // The number of usable change keys for every valid MACS, keyed by MACS (when requested).
+    private Map<Integer, Long> macsHistogram;
+
     /**
      * Constructor
      *
@@ -30,6 +39,20 @@ public class ProgressionServiceResults {
         this.bittingList = bittingList;
     }
 
+    /**
+     * Constructor
+     *
+     * @param source the source progression service
+     * @param criteria the criteria used to generate the bitting list page
+     * @param bittingListPage the generated bitting list page
+     */
+    public ProgressionServiceResults(String source, ProgressionCriteria criteria, BittingListPage bittingListPage) {
+
+        this.source = source;
+        this.criteria = criteria;
+        this.bittingListPage = bittingListPage;
+    }
+
     /**
      * Gets the name of the service that generated these results.
      *
@@ -51,9 +74,36 @@ public class ProgressionServiceResults {
     /**
      * Gets the generated {@link BittingList}.
      *
-     * @return the bitting list
+     * @return the bitting list, or {@code null} if a single page was generated
      */
     public BittingList getBittingList() {
         return bittingList;
     }
+
+    /**
+     * Gets the generated {@link BittingListPage}.
+     *
+     * @return the bitting list page, or {@code null} if the whole bitting list was generated
+     */
+    public BittingListPage getBittingListPage() {
+        return bittingListPage;
+    }
+
+    /**
+     * Gets the number of usable change keys for every valid MACS.
+     *
+     * @return the usable key counts keyed by MACS, or {@code null} if they were not requested
+     */
+    public Map<Integer, Long> getMACSHistogram() {
+        return macsHistogram;
+    }
+
+    /**
+     * Sets the number of usable change keys for every valid MACS.
+     *
+     * @param macsHistogram the usable key counts keyed by MACS
+     */
+    public void setMACSHistogram(Map<Integer, Long> macsHistogram) {
+        this.macsHistogram = macsHistogram;
+    }
 }
@@ -1,6 +1,7 @@
 package com.eames.masterkey.service.progression.services.totalposition;
 
 import com.eames.masterkey.model.BittingList;
+import com.eames.masterkey.model.BittingListPage;
 import com.eames.masterkey.service.ProcessingCapability;
 import com.eames.masterkey.service.ValidationException;
 import com.eames.masterkey.service.progression.ProgressionService;
@@ -8,11 +9,13 @@ import com.eames.masterkey.service.progression.ProgressionServiceException;
 import com.eames.masterkey.service.progression.ProgressionServiceResults;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * This abstract class is a partial implementation of the {@link ProgressionService} interface.
@@ -21,10 +24,82 @@ import java.util.List;
  * .getName() operation to the concrete child classes.
  *
  * In addition, it defines two abstract operations that must be implemented by the concrete child classes.
+ *
+ * Child classes may also accept optional attributes. In particular, a child class that accepts the paging attributes
+ * ({@link #PAGING_KEYS}) generates a single page of the bitting list when any of them is present:
+ * {
+ *     offset : [0, keyCount) // The rank of the page's first change key (defaults to 0)
+ *     limit : [1, ...) // The maximum number of change keys in the page (defaults to 1000)
+ *     cursor : // The cursor token returned with the previous page (replaces the offset)
+ * }
+ * and a child class that accepts the subtree attributes ({@link #GROUP_PATH_KEY}, {@link #STOP_BLOCK_LEVEL_KEY})
+ * generates only part of the bitting list tree when they are present:
+ * {
+ *     groupPath : // An array of step indices that lead from the root bitting group to the only group to generate
+ *     stopBlockLevel : [0, cutCount] // The block level at which to stop progressing (1 for the masters only)
+ * }
+ * A child class that accepts the {@link #USABLE_KEYS_ONLY_KEY} attribute leaves the violating change keys, and the
+ * groups left without a usable key, out of the generated bitting list tree when it is {@code true}; the children
+ * arrays are compacted (see {@link TotalPositionUsableKeyIndex}):
+ * {
+ *     usableKeysOnly : [false, true] // Generate the usable change keys only (defaults to false)
+ * }
+ * A child class that accepts the {@link #GROUP_STATS_KEY} attribute attaches to every generated group the statistics
+ * of its change keys (key count, usable key count, largest adjacent cut difference) when it is {@code true}:
+ * {
+ *     groupStats : [false, true] // Compute the group statistics (defaults to false)
+ * }
+ * The subtree, usable keys only and group statistics attributes cannot be combined with the paging attributes.
+ *
+ * A child class that accepts the {@link #MACS_HISTOGRAM_KEY} attribute also returns the number of usable change keys
+ * for every valid MACS when it is {@code true}; the histogram is computed analytically, without regenerating the list:
+ * {
+ *     macsHistogram : [false, true] // Include the usable key count of every MACS (defaults to false)
+ * }
  */
 public abstract class AbstractTotalPositionProgressionService
         implements ProgressionService {
 
+    /*
+     * The paging configuration constants
+     */
+
+    // The offset configuration
+    protected static final String OFFSET_KEY = "offset";
+
+    // The limit configuration
+    protected static final String LIMIT_KEY = "limit";
+    protected static final int LIMIT_DEFAULT = 1000;
+
+    // The cursor configuration
+    protected static final String CURSOR_KEY = "cursor";
+
+    // The paging configurations
+    protected static final String[] PAGING_KEYS = { OFFSET_KEY, LIMIT_KEY, CURSOR_KEY };
+
+    /*
+     * The subtree configuration constants
+     */
+
+    // The group path configuration
+    protected static final String GROUP_PATH_KEY = "groupPath";
+
+    // The stop block level configuration
+    protected static final String STOP_BLOCK_LEVEL_KEY = "stopBlockLevel";
+
+    // The usable keys only configuration
+    protected static final String USABLE_KEYS_ONLY_KEY = "usableKeysOnly";
+
+    // The group statistics configuration
+    protected static final String GROUP_STATS_KEY = "groupStats";
+
+    /*
+     * The statistics configuration constants
+     */
+
+    // The MACS histogram configuration
+    protected static final String MACS_HISTOGRAM_KEY = "macsHistogram";
+
     // Initialize the Log4j logger.
     private static final Logger logger = LogManager.getLogger(AbstractTotalPositionProgressionService.class);
 
@@ -34,6 +109,9 @@ public abstract class AbstractTotalPositionProgressionService
     // The expected configs attribute keys
     private String[] attributeKeys;
 
+    // The optional configs attribute keys
+    private String[] optionalAttributeKeys;
+
     /**
      * Constructor
      *
@@ -42,8 +120,22 @@ public abstract class AbstractTotalPositionProgressionService
      */
     public AbstractTotalPositionProgressionService(String name, String[] attributeKeys) {
 
+        this(name, attributeKeys, new String[0]);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param name the service name
+     * @param attributeKeys the attribute keys expected in the configs
+     * @param optionalAttributeKeys the attribute keys that may appear in the configs
+     */
+    public AbstractTotalPositionProgressionService(String name, String[] attributeKeys,
+                                                   String[] optionalAttributeKeys) {
+
         this.name = name;
         this.attributeKeys = attributeKeys;
+        this.optionalAttributeKeys = optionalAttributeKeys;
     }
 
     /**
@@ -93,12 +185,103 @@ public abstract class AbstractTotalPositionProgressionService
             // Construct a progression service.
             TotalPositionProgressionService service = new TotalPositionProgressionService(criteria);
 
+            // A subtree cannot be paged.
+            for (String attrKey : new String[] { GROUP_PATH_KEY, STOP_BLOCK_LEVEL_KEY, USABLE_KEYS_ONLY_KEY,
+                    GROUP_STATS_KEY }) {
+                if (hasOptionalAttribute(jsonConfigs, attrKey) && isPagingRequested(jsonConfigs)) {
+
+                    StringBuilder sb = new StringBuilder();
+                    sb.append("The '");
+                    sb.append(attrKey);
+                    sb.append("' configuration cannot be combined with the paging configurations.");
+                    String errorMessage = sb.toString();
+                    logger.error(errorMessage);
+
+                    throw new ValidationException(errorMessage);
+                }
+            }
+
+            // Generate the usable change keys only, compacted.
+            // Throws: ValidationException
+            if (hasOptionalAttribute(jsonConfigs, USABLE_KEYS_ONLY_KEY))
+                service.setUsableKeysOnly(getBooleanAttribute(jsonConfigs, USABLE_KEYS_ONLY_KEY));
+
+            // Compute the group statistics.
+            // Throws: ValidationException
+            if (hasOptionalAttribute(jsonConfigs, GROUP_STATS_KEY))
+                service.setGroupStats(getBooleanAttribute(jsonConfigs, GROUP_STATS_KEY));
+
+            // Stop progressing at the given block level.
+            if (hasOptionalAttribute(jsonConfigs, STOP_BLOCK_LEVEL_KEY))
+                // Throws: ValidationException, ProgressionServiceException
+                service.setStopBlockLevel(getIntAttribute(jsonConfigs, STOP_BLOCK_LEVEL_KEY, 0));
+
+            // Generate a single group's subtree.
+            ProgressionServiceResults results;
+            if (hasOptionalAttribute(jsonConfigs, GROUP_PATH_KEY)) {
+
+                // Throws: ValidationException, ProgressionServiceException
+                BittingList bittingList = service.generateBittingList(getGroupPathAttribute(jsonConfigs));
+
+                // Construct the results.
+                results = new ProgressionServiceResults(getName(), criteria, bittingList);
+            }
+
+            // Generate a single page.
+            else if (isPagingRequested(jsonConfigs)) {
+
+                // Throws: ValidationException
+                int limit = getIntAttribute(jsonConfigs, LIMIT_KEY, LIMIT_DEFAULT);
+
+                // Throws: ProgressionServiceException
+                BittingListPage bittingListPage;
+                if (jsonConfigs.has(CURSOR_KEY)) {
+
+                    // The cursor replaces the offset.
+                    if (jsonConfigs.has(OFFSET_KEY)) {
+
+                        StringBuilder sb = new StringBuilder();
+                        sb.append("The '");
+                        sb.append(OFFSET_KEY);
+                        sb.append("' and '");
+                        sb.append(CURSOR_KEY);
+                        sb.append("' configurations cannot be combined.");
+                        String errorMessage = sb.toString();
+                        logger.error(errorMessage);
+
+                        throw new ValidationException(errorMessage);
+                    }
+
+                    // Throws: JSONException
+                    bittingListPage = service.generateBittingListPage(jsonConfigs.getString(CURSOR_KEY), limit);
+                }
+                else
+                    // Throws: ValidationException
+                    bittingListPage = service.generateBittingListPage(getIntAttribute(jsonConfigs, OFFSET_KEY, 0),
+                            limit);
+
+                // Construct the results.
+                results = new ProgressionServiceResults(getName(), criteria, bittingListPage);
+            }
+
             // Generate the bitting list.
-            // Throws: ProgressionServiceException
-            BittingList bittingList = service.generateBittingList();
+            else {
+
+                // Throws: ProgressionServiceException
+                BittingList bittingList = service.generateBittingList();
 
-            // Construct and return the results.
-            return new ProgressionServiceResults(getName(), criteria, bittingList);
+                // Construct the results.
+                results = new ProgressionServiceResults(getName(), criteria, bittingList);
+            }
+
+            // Count the usable keys of every MACS.
+            // Throws: ValidationException
+            if (hasOptionalAttribute(jsonConfigs, MACS_HISTOGRAM_KEY) &&
+                    getBooleanAttribute(jsonConfigs, MACS_HISTOGRAM_KEY))
+                results.setMACSHistogram(new TotalPositionMACSCounter(criteria).getUsableKeyCountsByMACS());
+
+            // Return the results.
+            return results;
 
         } catch (ValidationException ex) {
 
@@ -147,6 +330,35 @@ public abstract class AbstractTotalPositionProgressionService
      * Local operations
      */
 
+    /**
+     * Tests whether the given configs request a single page (this service accepts paging and at least one paging
+     * attribute is present).
+     *
+     * @param jsonConfigs the configs to test
+     * @return {@code True} if a page was requested, {@code false} if the whole bitting list was
+     */
+    private boolean isPagingRequested(JSONObject jsonConfigs) {
+
+        for (String attrKey : PAGING_KEYS) {
+            if (hasOptionalAttribute(jsonConfigs, attrKey))
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Tests whether this service accepts the given optional attribute and the given configs contain it.
+     *
+     * @param jsonConfigs the configs to test
+     * @param attributeKey the optional attribute to test for
+     * @return {@code True} if the attribute is accepted and present, {@code false} if not
+     */
+    private boolean hasOptionalAttribute(JSONObject jsonConfigs, String attributeKey) {
+
+        return Arrays.asList(optionalAttributeKeys).contains(attributeKey) && jsonConfigs.has(attributeKey);
+    }
+
     /**
      * Validates the structure of the given JSON string and converts it into a JSONObject.
      * The JSONObject returned will never be {@code null} and will always contain a capability. If the capability is
@@ -247,8 +459,15 @@ public abstract class AbstractTotalPositionProgressionService
      */
     private boolean containsUnrecognizedAttributes(JSONObject jsonConfigs, boolean checkPhase) {
 
+        // Find the attributes that are neither expected nor optional.
+        List<String> attrKeyList = Arrays.asList(attributeKeys);
+        List<String> optionalAttrKeyList = Arrays.asList(optionalAttributeKeys);
+        List<String> unrecognizedKeys = jsonConfigs.keySet().stream()
+                .filter(k -> !attrKeyList.contains(k) && !optionalAttrKeyList.contains(k))
+                .collect(Collectors.toList());
+
         // The configurations contain extra, unrecognized attributes.
-        if (jsonConfigs.keySet().size() > attributeKeys.length) {
+        if (!unrecognizedKeys.isEmpty()) {
 
             if (checkPhase)
                 logger.info("This service can process the configurations if necessary.");
@@ -259,17 +478,14 @@ public abstract class AbstractTotalPositionProgressionService
             else
                 logger.error(errorMessage);
 
-            List attrKetList = Arrays.asList(attributeKeys);
-            jsonConfigs.keySet().stream()
-                    .filter(k -> !attrKetList.contains(k))
-                    .forEach(k -> {
+            unrecognizedKeys.forEach(k -> {
 
-                        String errorMessage2 = "Key: {}";
-                        if (checkPhase)
-                            logger.debug(errorMessage2, k);
-                        else
-                            logger.error(errorMessage2, k);
-                    });
+                String errorMessage2 = "Key: {}";
+                if (checkPhase)
+                    logger.debug(errorMessage2, k);
+                else
+                    logger.error(errorMessage2, k);
+            });
 
             return true;
         }
@@ -318,4 +534,135 @@ public abstract class AbstractTotalPositionProgressionService
             return false;
         }
     }
+
+    /**
+     * Gets the given optional non-negative integer attribute from the given JSON configs.
+     *
+     * @param jsonConfigs the JSON configs to use
+     * @param attributeKey the attribute to get
+     * @param defaultValue the value to use when the attribute is missing
+     * @return the attribute's value
+     * @throws ValidationException if the attribute is not a non-negative integer
+     */
+    static protected int getIntAttribute(JSONObject jsonConfigs, String attributeKey, int defaultValue)
+        throws ValidationException {
+
+        // Throws: ValidationException
+        return getIntAttribute(jsonConfigs, attributeKey, defaultValue, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Gets the given optional integer attribute from the given JSON configs and validates its range.
+     *
+     * @param jsonConfigs the JSON configs to use
+     * @param attributeKey the attribute to get
+     * @param defaultValue the value to use when the attribute is missing
+     * @param min the smallest valid value
+     * @param max the largest valid value
+     * @return the attribute's value
+     * @throws ValidationException if the attribute is not an integer or is out of range
+     */
+    static protected int getIntAttribute(JSONObject jsonConfigs, String attributeKey, int defaultValue, int min,
+                                         int max)
+        throws ValidationException {
+
+        // The attribute is missing.
+        if (!jsonConfigs.has(attributeKey))
+            return defaultValue;
+
+        // Throws: JSONException (never, the attribute is there)
+        Object valueObj = jsonConfigs.get(attributeKey);
+        if (!(valueObj instanceof Integer) || ((Integer) valueObj < min) || ((Integer) valueObj > max)) {
+
+            StringBuilder sb = new StringBuilder();
+            sb.append("The '");
+            sb.append(attributeKey);
+            sb.append("' configuration is not an integer in [");
+            sb.append(min);
+            sb.append(", ");
+            sb.append(max);
+            sb.append("] (");
+            sb.append(valueObj);
+            sb.append(").");
+            String errorMessage = sb.toString();
+            logger.error(errorMessage);
+
+            throw new ValidationException(errorMessage);
+        }
+
+        return (Integer) valueObj;
+    }
+
+    /**
+     * Gets the given boolean attribute from the given JSON configs.
+     *
+     * @param jsonConfigs the JSON configs to use (must contain the attribute)
+     * @param attributeKey the attribute to get
+     * @return the attribute's value
+     * @throws ValidationException if the attribute is not a boolean
+     */
+    static private boolean getBooleanAttribute(JSONObject jsonConfigs, String attributeKey)
+        throws ValidationException {
+
+        // Throws: JSONException (never, the attribute is there)
+        Object valueObj = jsonConfigs.get(attributeKey);
+        if (!(valueObj instanceof Boolean)) {
+
+            StringBuilder sb = new StringBuilder();
+            sb.append("The '");
+            sb.append(attributeKey);
+            sb.append("' configuration is not a boolean.");
+            String errorMessage = sb.toString();
+            logger.error(errorMessage);
+
+            throw new ValidationException(errorMessage);
+        }
+
+        return (Boolean) valueObj;
+    }
+
+    /**
+     * Gets the group path attribute from the given JSON configs.
+     *
+     * @param jsonConfigs the JSON configs to use (must contain the group path)
+     * @return the group path
+     * @throws ValidationException if the attribute is not an array of integers
+     */
+    static private int[] getGroupPathAttribute(JSONObject jsonConfigs)
+        throws ValidationException {
+
+        // Throws: JSONException (never, the attribute is there)
+        Object groupPathObj = jsonConfigs.get(GROUP_PATH_KEY);
+
+        // Convert the array into step indices (the service validates their range).
+        boolean valid = (groupPathObj instanceof JSONArray);
+        int[] groupPath = null;
+        if (valid) {
+
+            JSONArray groupPathArray = (JSONArray) groupPathObj;
+            groupPath = new int[groupPathArray.length()];
+            for (int depth = 0; valid && (depth < groupPath.length); depth++) {
+
+                // Throws: JSONException (never, the element is there)
+                Object stepObj = groupPathArray.get(depth);
+                valid = (stepObj instanceof Integer);
+                if (valid)
+                    groupPath[depth] = (Integer) stepObj;
+            }
+        }
+
+        if (valid)
+            return groupPath;
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("The '");
+        sb.append(GROUP_PATH_KEY);
+        sb.append("' configuration is not an array of integers (");
+        sb.append(groupPathObj);
+        sb.append(").");
+        String errorMessage = sb.toString();
+        logger.error(errorMessage);
+
+        throw new ValidationException(errorMessage);
+    }
 }
@@ -8,6 +8,8 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.util.Arrays;
+
 /**
  * This class is responsible for generating a bitting list using the given master cuts, progression steps, progression
  * sequence, and MACS contained in the JSON configurations passed to it.
@@ -23,6 +25,19 @@ import org.json.JSONObject;
  *     macs : [1-10] // The Maximum Adjacent Cut Specification
  * }
  *
+ * It also accepts the optional paging configurations (offset, limit, cursor) and the optional subtree configurations
+ * (groupPath, stopBlockLevel) described by {@link AbstractTotalPositionProgressionService}, in which case it
+ * generates a single page of the bitting list or only part of the bitting list tree, the optional usable keys only
+ * configuration (usableKeysOnly), the optional group statistics configuration (groupStats) and the optional MACS
+ * histogram configuration (macsHistogram).
+ *
+ * Finally, it accepts the optional sequence optimization configuration:
+ * {
+ *     optimizeSequence : [false, true] // Replace the progression sequence with the one that best balances the
+ *                                      // usable keys across the top-level groups (see
+ *                                      // {@link TotalPositionSequenceOptimizer})
+ * }
+ *
  * This Progression service is automatically registered by the
  * {@link com.eames.masterkey.aws.gateway.http.BittingListHTTPGateway} at startup.
  */
@@ -49,6 +64,9 @@ public class GenericTotalPositionProgressionService
     // The Maximum Adjacent Cut Specification
     private static final String MACS_KEY = "macs";
 
+    // The sequence optimization configuration
+    private static final String OPTIMIZE_SEQUENCE_KEY = "optimizeSequence";
+
     // Initialize the Log4j logger.
     private static final Logger logger = LogManager.getLogger(GenericTotalPositionProgressionService.class);
 
@@ -59,7 +77,10 @@ public class GenericTotalPositionProgressionService
 
         super("Generic Total Position Progression Service",
                 new String[] { MASTER_CUTS_KEY, PROGRESSION_STEPS_KEY, PROGRESSION_SEQUENCE_KEY, STARTING_DEPTH_KEY,
-                        MACS_KEY });
+                        MACS_KEY },
+                new String[] { OFFSET_KEY, LIMIT_KEY, CURSOR_KEY, GROUP_PATH_KEY, STOP_BLOCK_LEVEL_KEY,
+                        OPTIMIZE_SEQUENCE_KEY, MACS_HISTOGRAM_KEY, USABLE_KEYS_ONLY_KEY,
+                        GROUP_STATS_KEY });
     }
 
     /*
@@ -225,6 +246,30 @@ public class GenericTotalPositionProgressionService
             }
             int macs = (Integer) macsObj;
 
+            /*
+             * Validate that the optional 'optimize sequence' attribute is valid.
+             */
+
+            // Get and validate the 'optimize sequence'.
+            boolean optimizeSequence = false;
+            if (jsonConfigs.has(OPTIMIZE_SEQUENCE_KEY)) {
+
+                // Throws: JSONException
+                Object optimizeSequenceObj = jsonConfigs.get(OPTIMIZE_SEQUENCE_KEY);
+                if (!(optimizeSequenceObj instanceof Boolean)) {
+
+                    StringBuilder sb = new StringBuilder();
+                    sb.append("The '");
+                    sb.append(OPTIMIZE_SEQUENCE_KEY);
+                    sb.append("' configuration is not a boolean.");
+                    String errorMessage = sb.toString();
+                    logger.error(errorMessage);
+
+                    throw new ValidationException(errorMessage);
+                }
+                optimizeSequence = (Boolean) optimizeSequenceObj;
+            }
+
             /*
              * Attempt to construct a TotalPositionProgressionCriteria from the configs.
              */
@@ -239,6 +284,24 @@ public class GenericTotalPositionProgressionService
                     .setStartingDepth(startingDepth)
                     .build();
 
+            // Replace the progression sequence with the best balanced one.
+            if (optimizeSequence) {
+
+                TotalPositionSequenceOptimizer optimizer = new TotalPositionSequenceOptimizer(criteria,
+                        TotalPositionSequenceOptimizer.GROUP_DEPTH_DEFAULT);
+                int[] bestProgressionSequence = optimizer.optimize(1).get(0).getProgressionSequence();
+                logger.debug("The optimized progression sequence: {}.", Arrays.toString(bestProgressionSequence));
+
+                // Throws: ValidationException
+                criteria = new TotalPositionProgressionCriteria.Builder()
+                        .setMACS(macs)
+                        .setMasterCuts(masterCuts)
+                        .setProgressionSteps(progressionSteps)
+                        .setProgressionSequence(bestProgressionSequence)
+                        .setStartingDepth(startingDepth)
+                        .build();
+            }
+
             // Return the newly created criteria.
             return criteria;
 
@@ -8,7 +8,11 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.util.Arrays;
-import java.util.Random;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class is responsible for generating a bitting list using the given cut count, depth count, starting depth,
@@ -24,8 +28,21 @@ import java.util.Random;
  *     startingDepth : [0, 1] // The value of the shallowest depth
  *     doubleStepProgression : [false, true] // Single or double step depth progression
  *     macs : [1-10] // The Maximum Adjacent Cut Specification
+ *     optimizeTimeBudget : [1-10000] // (Optional) Search for the best criteria for this many milliseconds
+ *     candidates : [1-10000] // (Optional) The number of criteria to generate concurrently per round (default: 1)
  * }
  *
+ * When an optimize time budget is given, random criteria are generated until the budget runs out and the criteria
+ * with the most usable (non-violating) change keys are returned. Each candidate is scored analytically by the
+ * {@link TotalPositionMACSCounter}, so no bitting list is generated while searching. In a double step progression,
+ * the master cuts also choose each column's odd or even depths, so the search covers that choice as well.
+ *
+ * When a number of candidates is given, each round generates that many criteria in parallel, each from its own
+ * {@link SplittableRandom} stream, and keeps the best. Without a time budget, a single round is run.
+ *
+ * It also accepts the optional usable keys only (usableKeysOnly), group statistics (groupStats) and MACS histogram
+ * (macsHistogram) configurations described by {@link AbstractTotalPositionProgressionService}.
+ *
  * This Progression service is automatically registered by the
  * {@link com.eames.masterkey.aws.gateway.http.BittingListHTTPGateway} at startup.
  */
@@ -51,6 +68,17 @@ public class RandomGenericTotalPositionProgressionService
     // The Maximum Adjacent Cut Specification
     private static final String MACS_KEY = "macs";
 
+    // The optimize time budget configuration (in milliseconds)
+    static final String OPTIMIZE_TIME_BUDGET_KEY = "optimizeTimeBudget";
+    static final int OPTIMIZE_TIME_BUDGET_MIN = 1;
+    static final int OPTIMIZE_TIME_BUDGET_MAX = 10000;
+
+    // The candidates configuration (the number of criteria generated concurrently per round)
+    static final String CANDIDATES_KEY = "candidates";
+    static final int CANDIDATES_DEFAULT = 1;
+    static final int CANDIDATES_MIN = 1;
+    static final int CANDIDATES_MAX = 10000;
+
     // Initialize the Log4j logger.
     private static final Logger logger = LogManager.getLogger(RandomGenericTotalPositionProgressionService.class);
 
@@ -61,7 +89,9 @@ public class RandomGenericTotalPositionProgressionService
 
         super("Random Generic Total Position Progression Service",
                 new String[] { CUT_COUNT_KEY, DEPTH_COUNT_KEY, STARTING_DEPTH_KEY, DOUBLE_STEP_PROGRESSION_KEY,
-                        MACS_KEY });
+                        MACS_KEY },
+                new String[] { OPTIMIZE_TIME_BUDGET_KEY, CANDIDATES_KEY, MACS_HISTOGRAM_KEY, USABLE_KEYS_ONLY_KEY,
+                        GROUP_STATS_KEY });
     }
 
     /*
@@ -270,101 +300,53 @@ public class RandomGenericTotalPositionProgressionService
             logger.debug("Generating progression criteria with a MACS of '{}'.", macs);
 
             /*
-             * Generate the criteria.
-             */
-
-            // Create a random number generator.
-            Random random = new Random();
-
-            /*
-             * Generate the master cuts.
-             */
-
-            /*
-             * Generate the master cuts using random integers.
-             * All cuts must be in the range: [startingDepth, depthCount + startingDepth - 1]
-             * Adjacent cuts must honor the MACS.
+             * Validate that the optional 'optimize time budget' and 'candidates' attributes are valid.
              */
-            int maxDepth = depthCount + startingDepth - 1;
-            int[] masterCuts = new int[cutCount];
-            masterCuts[0] = random.nextInt(depthCount) + startingDepth;
-            for (int cut = 1; cut < cutCount; cut++) {
-
-                int lastVal = masterCuts[cut - 1];
-                int minVal = Integer.max(startingDepth, lastVal - macs);
-                int maxVal = Integer.min(lastVal + macs, maxDepth);
-                masterCuts[cut] = random.nextInt(maxVal - minVal + 1) + minVal;
-            }
-            logger.debug("Generated the master key: {}.", Arrays.toString(masterCuts));
 
-            /*
-             * Generate the progression steps.
-             */
-
-            /*
-             * Generate the progression steps.
-             * Progression steps never include the master cut.
-             * Single step progressions use every depth.
-             * Double step progressions use all odd or all even depths, matching the oddness/evenness of the master.
-             */
-            int stepCount = (doubleStepProgression ? (depthCount / 2) : depthCount) - 1;
-            int[][] progressionSteps = new int[stepCount][cutCount];
-            for (int cut = 0; cut < cutCount; cut++) {
-
-                // Get the master cut value and its oddness/evenness.
-                int masterCutValue = masterCuts[cut];
-                boolean masterIsEven = (masterCutValue % 2) == 0;
-
-                // Generate and shuffle the column's progression steps.
-                int[] colSteps = new int[stepCount];
-                int step = 0;
-                for (int depth = 0; depth < depthCount; depth++) {
-
-                    // The depth cannot match the master cut and double step progression
-                    // depths must match the master's oddness/evenness.
-                    int depthVal = depth + startingDepth;
-                    if (depthVal != masterCutValue) {
-                        if (!doubleStepProgression ||
-                            (doubleStepProgression && (((depthVal % 2) == 0) == masterIsEven)))
-                        colSteps[step++] = depthVal;
-                    }
-                }
-                shuffle(colSteps, random);
+            // Get and validate the 'optimize time budget'.
+            // Throws: ValidationException
+            int optimizeTimeBudget = getIntAttribute(jsonConfigs, OPTIMIZE_TIME_BUDGET_KEY, 0,
+                    OPTIMIZE_TIME_BUDGET_MIN, OPTIMIZE_TIME_BUDGET_MAX);
 
-                // Move the column's progression steps to the progression steps.
-                for (step = 0; step < stepCount; step++)
-                    progressionSteps[step][cut] = colSteps[step];
-            }
-            for (int row = 0; row < stepCount; row++)
-                logger.debug("Generated the progression steps: {}.", Arrays.toString(progressionSteps[row]));
+            // Get and validate the 'candidates'.
+            // Throws: ValidationException
+            int candidates = getIntAttribute(jsonConfigs, CANDIDATES_KEY, CANDIDATES_DEFAULT, CANDIDATES_MIN,
+                    CANDIDATES_MAX);
+            logger.debug("Generating {} candidate(s) per round for {} ms.", candidates, optimizeTimeBudget);
 
             /*
-             * Generate the progression sequence.
+             * Generate the criteria.
              */
 
-            // Generate and shuffle the progression sequence.
-            int[] progressionSequence = new int[cutCount];
-            for (int cut = 0; cut < cutCount; cut++)
-                progressionSequence[cut] = cut + 1;
-            shuffle(progressionSequence, random);
-            logger.debug("Generated the progression sequence: {}.", Arrays.toString(progressionSequence));
-
-            /*
-             * Generate the progression criteria.
-             */
+            // Create a random number generator.
+            SplittableRandom random = new SplittableRandom();
 
-            // Build the progression criteria object from the randomly generated criteria.
+            // Generate a single set of criteria.
             // Throws: ValidationException
-            TotalPositionProgressionCriteria criteria = new TotalPositionProgressionCriteria.Builder()
-                    .setMACS(macs)
-                    .setMasterCuts(masterCuts)
-                    .setProgressionSteps(progressionSteps)
-                    .setProgressionSequence(progressionSequence)
-                    .setStartingDepth(startingDepth)
-                    .build();
+            if ((optimizeTimeBudget == 0) && (candidates == 1))
+                return generateCriteria(cutCount, depthCount, startingDepth, doubleStepProgression, macs, random);
+
+            // Generate rounds of candidates until the time budget runs out (or for a single round when there is no
+            // budget) and keep the criteria with the most usable keys.
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(optimizeTimeBudget);
+            ScoredCriteria best = null;
+            int roundCount = 0;
+            do {
+
+                // Throws: ValidationException
+                ScoredCriteria roundBest = generateBestCriteria(cutCount, depthCount, startingDepth,
+                        doubleStepProgression, macs, candidates, random);
+                roundCount++;
+
+                if ((best == null) || (roundBest.usableKeyCount > best.usableKeyCount))
+                    best = roundBest;
+            }
+            while ((System.nanoTime() < deadline) && (best.usableKeyCount < best.criteria.getKeyCount()));
+            logger.debug("Scored {} round(s) of {} candidate(s); the best has {} usable keys.", roundCount, candidates,
+                    best.usableKeyCount);
 
-            // Return the criteria.
-            return criteria;
+            // Return the best criteria.
+            return best.criteria;
 
         } catch (JSONException ex) {
 
@@ -382,13 +364,185 @@ public class RandomGenericTotalPositionProgressionService
      * Local operations
      */
 
+    /**
+     * Generates the given number of random sets of progression criteria concurrently and returns the one with the
+     * most usable change keys.
+     * Each candidate draws from its own stream split from the given random number generator, so the candidates never
+     * contend for a shared generator, and each is scored by the {@link TotalPositionMACSCounter} without generating its
+     * bitting list.
+     *
+     * @param cutCount the number of cuts in the key
+     * @param depthCount the number of cut depths
+     * @param startingDepth the value of the shallowest depth
+     * @param doubleStepProgression {@code true} for a double step progression, {@code false} for a single step one
+     * @param macs the Maximum Adjacent Cut Specification
+     * @param candidates the number of candidates to generate (at least 1)
+     * @param random the random number generator to split the candidates' streams from
+     * @return the best scored criteria
+     * @throws ValidationException if none of the generated criteria is valid
+     */
+    private static ScoredCriteria generateBestCriteria(int cutCount, int depthCount, int startingDepth,
+                                                       boolean doubleStepProgression, int macs, int candidates,
+                                                       SplittableRandom random)
+        throws ValidationException {
+
+        // Split the candidates' streams up front (splitting is not thread-safe).
+        SplittableRandom[] randoms = new SplittableRandom[candidates];
+        for (int candidate = 0; candidate < candidates; candidate++)
+            randoms[candidate] = random.split();
+
+        Optional<ScoredCriteria> best = Arrays.stream(randoms)
+                .parallel()
+                .map(candidateRandom -> {
+
+                    try {
+
+                        // Throws: ValidationException
+                        TotalPositionProgressionCriteria criteria = generateCriteria(cutCount, depthCount,
+                                startingDepth, doubleStepProgression, macs, candidateRandom);
+                        return new ScoredCriteria(criteria, new TotalPositionMACSCounter(criteria).getUsableKeyCount());
+
+                    } catch (ValidationException ex) {
+
+                        // Drop the candidate; the error has been logged.
+                        return null;
+                    }
+                })
+                .filter(Objects::nonNull)
+                .max(Comparator.comparingLong(scored -> scored.usableKeyCount));
+
+        if (!best.isPresent()) {
+
+            String errorMessage = "None of the generated progression criteria is valid.";
+            logger.error(errorMessage);
+
+            throw new ValidationException(errorMessage);
+        }
+
+        return best.get();
+    }
+
+    /**
+     * Generates a random set of progression criteria.
+     * The master cuts are a random walk that honors the MACS. In a double step progression, each master cut's
+     * oddness/evenness chooses the oddness/evenness of its column's progression steps.
+     *
+     * @param cutCount the number of cuts in the key
+     * @param depthCount the number of cut depths
+     * @param startingDepth the value of the shallowest depth
+     * @param doubleStepProgression {@code true} for a double step progression, {@code false} for a single step one
+     * @param macs the Maximum Adjacent Cut Specification
+     * @param random the random number generator to use
+     * @return the newly generated progression criteria
+     * @throws ValidationException if the generated criteria are not valid
+     */
+    private static TotalPositionProgressionCriteria generateCriteria(int cutCount, int depthCount, int startingDepth,
+                                                                     boolean doubleStepProgression, int macs,
+                                                                     SplittableRandom random)
+        throws ValidationException {
+
+        /*
+         * Generate the master cuts.
+         */
+
+        /*
+         * Generate the master cuts using random integers.
+         * All cuts must be in the range: [startingDepth, depthCount + startingDepth - 1]
+         * Adjacent cuts must honor the MACS.
+         */
+        int maxDepth = depthCount + startingDepth - 1;
+        int[] masterCuts = new int[cutCount];
+        masterCuts[0] = random.nextInt(depthCount) + startingDepth;
+        for (int cut = 1; cut < cutCount; cut++) {
+
+            int lastVal = masterCuts[cut - 1];
+            int minVal = Integer.max(startingDepth, lastVal - macs);
+            int maxVal = Integer.min(lastVal + macs, maxDepth);
+            masterCuts[cut] = random.nextInt(maxVal - minVal + 1) + minVal;
+        }
+        if (logger.isDebugEnabled())
+            logger.debug("Generated the master key: {}.", Arrays.toString(masterCuts));
+
+        /*
+         * Generate the progression steps.
+         */
+
+        /*
+         * Generate the progression steps.
+         * Progression steps never include the master cut.
+         * Single step progressions use every depth.
+         * Double step progressions use all odd or all even depths, matching the oddness/evenness of the master.
+         */
+        int stepCount = (doubleStepProgression ? (depthCount / 2) : depthCount) - 1;
+        int[][] progressionSteps = new int[stepCount][cutCount];
+        for (int cut = 0; cut < cutCount; cut++) {
+
+            // Get the master cut value and its oddness/evenness.
+            int masterCutValue = masterCuts[cut];
+            boolean masterIsEven = (masterCutValue % 2) == 0;
+
+            // Generate and shuffle the column's progression steps.
+            int[] colSteps = new int[stepCount];
+            int step = 0;
+            for (int depth = 0; depth < depthCount; depth++) {
+
+                // The depth cannot match the master cut and double step progression
+                // depths must match the master's oddness/evenness.
+                int depthVal = depth + startingDepth;
+                if (depthVal != masterCutValue) {
+                    if (!doubleStepProgression ||
+                        (doubleStepProgression && (((depthVal % 2) == 0) == masterIsEven)))
+                    colSteps[step++] = depthVal;
+                }
+            }
+            shuffle(colSteps, random);
+
+            // Move the column's progression steps to the progression steps.
+            for (step = 0; step < stepCount; step++)
+                progressionSteps[step][cut] = colSteps[step];
+        }
+        if (logger.isDebugEnabled()) {
+            for (int row = 0; row < stepCount; row++)
+                logger.debug("Generated the progression steps: {}.", Arrays.toString(progressionSteps[row]));
+        }
+
+        /*
+         * Generate the progression sequence.
+         */
+
+        // Generate and shuffle the progression sequence.
+        int[] progressionSequence = new int[cutCount];
+        for (int cut = 0; cut < cutCount; cut++)
+            progressionSequence[cut] = cut + 1;
+        shuffle(progressionSequence, random);
+        if (logger.isDebugEnabled())
+            logger.debug("Generated the progression sequence: {}.", Arrays.toString(progressionSequence));
+
+        /*
+         * Generate the progression criteria.
+         */
+
+        // Build the progression criteria object from the randomly generated criteria.
+        // Throws: ValidationException
+        TotalPositionProgressionCriteria criteria = new TotalPositionProgressionCriteria.Builder()
+                .setMACS(macs)
+                .setMasterCuts(masterCuts)
+                .setProgressionSteps(progressionSteps)
+                .setProgressionSequence(progressionSequence)
+                .setStartingDepth(startingDepth)
+                .build();
+
+        // Return the criteria.
+        return criteria;
+    }
+
     /**
      * Shuffles the given int array.
      *
      * @param array the array to shuffle
      * @param random the random number generator to use
      */
-    private static void shuffle(int[] array, Random random) {
+    private static void shuffle(int[] array, SplittableRandom random) {
 
         for (int i = array.length - 1; i > 0; --i) {
 
@@ -398,4 +552,28 @@ public class RandomGenericTotalPositionProgressionService
             array[j] = temp;
         }
     }
+
+    /**
+     * This class holds a set of generated progression criteria and its usable key count.
+     */
+    private static class ScoredCriteria {
+
+        // The generated criteria.
+        private final TotalPositionProgressionCriteria criteria;
+
+        // The number of the criteria's change keys that do not violate the MACS.
+        private final long usableKeyCount;
+
+        /**
+         * Constructor
+         *
+         * @param criteria the generated criteria
+         * @param usableKeyCount the criteria's usable key count
+         */
+        ScoredCriteria(TotalPositionProgressionCriteria criteria, long usableKeyCount) {
+
+            this.criteria = criteria;
+            this.usableKeyCount = usableKeyCount;
+        }
+    }
 }
@@ -0,0 +1,280 @@
+package com.eames.masterkey.service.progression.services.totalposition;
+
+import com.eames.masterkey.model.BittingGroup;
+import com.eames.masterkey.model.BittingList;
+import com.eames.masterkey.model.BittingNode;
+import com.eames.masterkey.model.FlatBittingList;
+import com.eames.masterkey.model.KeyBitting;
+import com.eames.masterkey.service.progression.ProgressionServiceException;
+
+import java.util.Arrays;
+
+/**
+ * This class expands an already generated Total Position Progression bitting list after a progression step row has
+ * been added to its criteria.
+ *
+ * The new row is the last one, so every existing group keeps its step index: the group paths of the existing groups
+ * and keys stay valid, and each group simply gains one more child. In a bitting list tree, the existing groups and keys
+ * are left where they are and only the new children (the new row's subtree under every group) are generated and
+ * grafted in. The ranks do change, since they are read in base stepCount; {@link #remapRank(long)} and
+ * {@link #buildRankMap()} translate them. A flat bitting list cannot grow, so a new one is allocated: the existing keys
+ * are copied byte for byte to their new ranks and only the new keys are generated.
+ *
+ * The old and new criteria must differ by the added (last) progression step row only.
+ */
+public class TotalPositionExpander {
+
+    // The criteria the bitting lists were generated with.
+    private final TotalPositionProgressionCriteria oldCriteria;
+
+    // The expanded criteria.
+    private final TotalPositionProgressionCriteria newCriteria;
+
+    // The cut count comes from the criteria.
+    private final int cutCount;
+
+    // The old step count (the index of the new row).
+    private final int oldStepCount;
+
+    // The new step count.
+    private final int newStepCount;
+
+    // Whether to add only the groups and change keys that do not violate the MACS (leaving nulls for the others).
+    private boolean usableKeysInPlace = false;
+
+    /**
+     * Constructor
+     *
+     * @param oldCriteria the {@link TotalPositionProgressionCriteria} the bitting lists were generated with
+     * @param newCriteria the expanded {@link TotalPositionProgressionCriteria}
+     * @throws IllegalArgumentException if the new criteria do not just add a last progression step row to the old ones
+     */
+    public TotalPositionExpander(TotalPositionProgressionCriteria oldCriteria,
+                                 TotalPositionProgressionCriteria newCriteria) {
+
+        boolean valid = (oldCriteria.getMacs() == newCriteria.getMacs()) &&
+                (oldCriteria.getStartingDepth() == newCriteria.getStartingDepth()) &&
+                (oldCriteria.getStepCount() + 1 == newCriteria.getStepCount()) &&
+                Arrays.equals(oldCriteria.getMasterCuts(), newCriteria.getMasterCuts()) &&
+                Arrays.equals(oldCriteria.getProgressionSequence(), newCriteria.getProgressionSequence());
+        for (int row = 0; valid && (row < oldCriteria.getStepCount()); row++)
+            valid = Arrays.equals(oldCriteria.getProgressionSteps()[row], newCriteria.getProgressionSteps()[row]);
+        if (!valid)
+            throw new IllegalArgumentException("The new criteria must only add a last progression step row.");
+
+        this.oldCriteria = oldCriteria;
+        this.newCriteria = newCriteria;
+        cutCount = oldCriteria.getCutCount();
+        oldStepCount = oldCriteria.getStepCount();
+        newStepCount = newCriteria.getStepCount();
+    }
+
+    /**
+     * Gets whether only the groups and change keys that do not violate the MACS are added, at their step positions.
+     *
+     * @return {@code True} if only usable keys are added, {@code false} if every key is
+     */
+    boolean getUsableKeysInPlace() {
+        return usableKeysInPlace;
+    }
+
+    /**
+     * Sets whether only the groups and change keys that do not violate the MACS are added, at their step positions (use
+     * it to expand a bitting list that was generated with 'usable keys in place', see
+     * {@link TotalPositionProgressionService#setUsableKeysInPlace(boolean)}).
+     *
+     * @param usableKeysInPlace {@code True} to add usable keys only, {@code false} to add every key
+     */
+    void setUsableKeysInPlace(boolean usableKeysInPlace) {
+        this.usableKeysInPlace = usableKeysInPlace;
+    }
+
+    /**
+     * Translates a change key rank (or a group index) of the old system into the new system.
+     * The step rows (digits) are the same; only the base changes.
+     *
+     * @param rank the old rank
+     * @return the new rank
+     */
+    public long remapRank(long rank) {
+
+        long newRank = 0;
+        for (long weight = 1; rank > 0; rank /= oldStepCount, weight *= newStepCount)
+            newRank += (rank % oldStepCount) * weight;
+
+        return newRank;
+    }
+
+    /**
+     * Builds the table that translates every change key rank of the old system into the new system.
+     *
+     * @return the new rank of each old rank
+     * @throws IllegalArgumentException if the system has too many change keys for a table
+     */
+    public int[] buildRankMap() {
+
+        if (newCriteria.getKeyCount() > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("The system has too many change keys for a rank table.");
+
+        int[] rankMap = new int[(int) oldCriteria.getKeyCount()];
+        for (int rank = 0; rank < rankMap.length; rank++)
+            rankMap[rank] = (int) remapRank(rank);
+
+        return rankMap;
+    }
+
+    /**
+     * Expands the given bitting list in place.
+     * Every existing group gains the new row's child, generated with its whole subtree; the existing groups and keys
+     * are not touched. Missing (skipped) groups stay missing.
+     *
+     * @param bittingList the bitting list generated with the old criteria (every group must be progressed)
+     * @throws IllegalArgumentException if the bitting list does not match the old criteria
+     * @throws ProgressionServiceException if the new subtrees cannot be generated
+     */
+    public void expand(BittingList bittingList)
+        throws ProgressionServiceException {
+
+        BittingGroup rootBittingGroup = bittingList.getRootBittingGroup();
+        if (rootBittingGroup == null)
+            throw new IllegalArgumentException("The bitting list has no root bitting group.");
+
+        TotalPositionProgressionService service = new TotalPositionProgressionService(newCriteria);
+        service.setUsableKeysInPlace(usableKeysInPlace);
+        expandGroup(rootBittingGroup, new int[0], service, new TotalPositionMACSCounter(newCriteria));
+    }
+
+    /**
+     * Expands the given flat bitting list into a new one.
+     * The existing change keys and masters are copied to their new positions as they are; only the keys that use the
+     * new row are generated.
+     *
+     * @param bittingList the flat bitting list generated with the old criteria
+     * @return the newly expanded flat bitting list
+     * @throws IllegalArgumentException if the flat bitting list does not match the old criteria or the expanded list
+     *         is too large to be stored in flat arrays
+     */
+    public FlatBittingList expand(FlatBittingList bittingList) {
+
+        if ((bittingList.getCutCount() != cutCount) || (bittingList.getStepCount() != oldStepCount))
+            throw new IllegalArgumentException("The flat bitting list does not match the criteria.");
+
+        // Throws: IllegalArgumentException
+        FlatBittingList newBittingList = new FlatBittingList(cutCount, newStepCount);
+
+        // Copy the existing change keys to their new ranks.
+        for (int rank = 0; rank < bittingList.getKeyCount(); rank++)
+            newBittingList.copyKey((int) remapRank(rank), bittingList, rank);
+
+        // Copy the existing masters to their new group indexes.
+        for (int depth = 0, groupCount = 1; depth < cutCount; depth++, groupCount *= oldStepCount) {
+            for (int groupIndex = 0; groupIndex < groupCount; groupIndex++)
+                newBittingList.copyMaster(newBittingList.getMasterIndex(depth, (int) remapRank(groupIndex)),
+                        bittingList, bittingList.getMasterIndex(depth, groupIndex));
+        }
+
+        // Generate the change keys and masters that use the new row.
+        TotalPositionMACSTable macsTable = new TotalPositionMACSTable(newCriteria);
+        int[] newCutOrder = newCriteria.getCutOrder();
+        int[][] progressionSteps = newCriteria.getProgressionSteps();
+        int[] rows = new int[cutCount];
+        int[] depths = new int[cutCount];
+        for (int depth = 0, groupCount = 1; depth <= cutCount; depth++, groupCount *= newStepCount) {
+            for (int groupIndex = 0; groupIndex < groupCount; groupIndex++) {
+
+                // The group index is the group path read as a base-stepCount number (the last step moves fastest).
+                System.arraycopy(newCriteria.getMasterCuts(), 0, depths, 0, cutCount);
+                Arrays.fill(rows, macsTable.getMasterRow());
+                boolean usesNewRow = false;
+                for (int level = 0, index = groupIndex; level < depth; level++, index /= newStepCount) {
+
+                    int cut = newCutOrder[cutCount - depth + level];
+                    rows[cut] = index % newStepCount;
+                    depths[cut] = progressionSteps[rows[cut]][cut];
+                    usesNewRow |= (rows[cut] == oldStepCount);
+                }
+                if (!usesNewRow)
+                    continue;
+
+                // A path of cutCount steps leads to a change key (its group index is its rank).
+                if (depth == cutCount) {
+
+                    newBittingList.setKey(groupIndex, depths);
+                    newBittingList.setHasMACSViolation(groupIndex, macsTable.hasViolation(rows));
+                }
+                else {
+
+                    int masterIndex = newBittingList.getMasterIndex(depth, groupIndex);
+                    newBittingList.setMaster(masterIndex, depths);
+                    newBittingList.setMasterHasMACSViolation(masterIndex, macsTable.hasViolation(rows));
+                }
+            }
+        }
+
+        return newBittingList;
+    }
+
+    /*
+     * Local operations
+     */
+
+    /**
+     * Expands the given bitting group: its existing children first, then the new row's child.
+     *
+     * @param bittingGroup the bitting group to expand
+     * @param groupPath the group's path
+     * @param service the progression service that generates the new subtrees
+     * @param counter the usable key counter of the new criteria
+     * @throws IllegalArgumentException if the bitting group does not match the old criteria
+     * @throws ProgressionServiceException if a new subtree cannot be generated
+     */
+    private void expandGroup(BittingGroup bittingGroup, int[] groupPath, TotalPositionProgressionService service,
+                             TotalPositionMACSCounter counter)
+        throws ProgressionServiceException {
+
+        BittingNode[] bittingNodes = bittingGroup.getGroups();
+        if ((bittingNodes == null) || (bittingNodes.length != oldStepCount))
+            throw new IllegalArgumentException("The bitting list does not match the criteria or was not fully " +
+                    "progressed.");
+
+        // Expand the existing children.
+        int depth = groupPath.length;
+        int[] childPath = Arrays.copyOf(groupPath, depth + 1);
+        if (depth < cutCount - 1) {
+
+            for (int step = 0; step < oldStepCount; step++) {
+
+                if (bittingNodes[step] != null) {
+
+                    childPath[depth] = step;
+                    expandGroup((BittingGroup) bittingNodes[step], childPath.clone(), service, counter);
+                }
+            }
+        }
+
+        // Add the new row's child.
+        BittingNode[] newBittingNodes = Arrays.copyOf(bittingNodes, newStepCount);
+        childPath[depth] = oldStepCount;
+        if (!usableKeysInPlace || (counter.getUsableKeyCount(childPath) > 0)) {
+
+            if (depth < cutCount - 1) {
+
+                // Generate the new group's subtree and detach it from its chain of masters.
+                // Throws: ProgressionServiceException
+                BittingGroup newBittingGroup = service.generateBittingList(childPath).getRootBittingGroup();
+                for (int step : childPath)
+                    newBittingGroup = (BittingGroup) newBittingGroup.getGroups()[step];
+                newBittingNodes[oldStepCount] = newBittingGroup;
+            }
+            else {
+
+                // The new change key differs from the group's master in the last progressed cut only.
+                int cut = newCriteria.getCutOrder()[0];
+                int[] key = bittingGroup.getMaster().getKey().clone();
+                key[cut] = newCriteria.getProgressionSteps()[oldStepCount][cut];
+                newBittingNodes[oldStepCount] = new KeyBitting(key, newCriteria.getMacs());
+            }
+        }
+        bittingGroup.setGroups(newBittingNodes);
+    }
+}
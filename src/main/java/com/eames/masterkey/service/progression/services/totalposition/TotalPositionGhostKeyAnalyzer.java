@@ -0,0 +1,379 @@
+package com.eames.masterkey.service.progression.services.totalposition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class analyzes the ghost keys (incidental masters) of a Total Position Progression system without generating
+ * the bitting list.
+ *
+ * The cylinder of a change key is pinned to shear at two depths in each chamber: the change key's own progression step
+ * depth and the top master key's depth (every master above the change key takes one or the other). Any key whose every
+ * cut sits at one of those two depths operates the cylinder. Such a key is identified by the set of cuts it takes at a
+ * progression step depth (the others are at the top master key's depth) and by the step rows of those cuts. When that
+ * set is the set of cuts progressed down to some depth of the hierarchy, the key is a master (or the change key)
+ * itself; otherwise it is a ghost key: it is in no group's chain of masters, yet it operates every cylinder whose rows
+ * match its own on its step cuts, across the groups of the hierarchy.
+ *
+ * The ghost keys that operate at least one cylinder of a group are counted per column with a transfer matrix over the
+ * column step sets (the top master key's row and the step rows), then the masters are subtracted. Each count costs
+ * O(cutCount^2 * stepCount^2), whatever the size of the system.
+ */
+public class TotalPositionGhostKeyAnalyzer {
+
+    // The master cuts come from the criteria.
+    private final int[] masterCuts;
+
+    // The progression steps come from the criteria.
+    private final int[][] progressionSteps;
+
+    // The cut order comes from the criteria.
+    private final int[] cutOrder;
+
+    // The cut count comes from the criteria.
+    private final int cutCount;
+
+    // The step count comes from the criteria.
+    private final int stepCount;
+
+    // The MACS violation tables are built from the criteria.
+    private final TotalPositionMACSTable macsTable;
+
+    // The step cuts of the masters at each depth, as cut masks (bit c is set when cut c is at its step depth).
+    private final int[] masterMasks;
+
+    // Whether to analyze only the ghost keys that do not violate the MACS (the ones that can actually be cut).
+    private boolean usableGhostKeysOnly = false;
+
+    /**
+     * Constructor
+     *
+     * @param criteria the {@link TotalPositionProgressionCriteria} of the system to analyze
+     */
+    public TotalPositionGhostKeyAnalyzer(TotalPositionProgressionCriteria criteria) {
+
+        masterCuts = criteria.getMasterCuts();
+        progressionSteps = criteria.getProgressionSteps();
+        cutOrder = criteria.getCutOrder();
+        cutCount = criteria.getCutCount();
+        stepCount = criteria.getStepCount();
+        macsTable = new TotalPositionMACSTable(criteria);
+
+        // The master at depth d has the cuts progressed by the first d levels at their step depths.
+        masterMasks = new int[cutCount + 1];
+        for (int depth = 1; depth <= cutCount; depth++)
+            masterMasks[depth] = masterMasks[depth - 1] | (1 << cutOrder[cutCount - depth]);
+    }
+
+    /**
+     * Gets whether only the ghost keys that do not violate the MACS are analyzed.
+     *
+     * @return {@code True} if only usable ghost keys are analyzed, {@code false} if every ghost key is
+     */
+    public boolean getUsableGhostKeysOnly() {
+        return usableGhostKeysOnly;
+    }
+
+    /**
+     * Sets whether only the ghost keys that do not violate the MACS (the ones that can actually be cut) are analyzed.
+     *
+     * @param usableGhostKeysOnly {@code True} to analyze usable ghost keys only, {@code false} to analyze every one
+     */
+    public void setUsableGhostKeysOnly(boolean usableGhostKeysOnly) {
+        this.usableGhostKeysOnly = usableGhostKeysOnly;
+    }
+
+    /**
+     * Counts the ghost keys of the whole system.
+     *
+     * @return the number of ghost keys that operate at least one cylinder of the system
+     */
+    public long getGhostKeyCount() {
+
+        // Throws: IllegalArgumentException (never, the path is empty)
+        return getGhostKeyCount(new int[0]);
+    }
+
+    /**
+     * Counts the ghost keys that operate at least one cylinder of the group with the given group path.
+     *
+     * @param groupPath the step indices that lead from the root bitting group to the group [0, cutCount] (a path of
+     *        cutCount steps leads to a single change key's cylinder)
+     * @return the number of ghost keys that operate at least one of the group's cylinders
+     * @throws IllegalArgumentException if the group path is not valid
+     */
+    public long getGhostKeyCount(int[] groupPath) {
+
+        // Throws: IllegalArgumentException
+        int[] rows = getRows(groupPath);
+
+        // Every key at a shear depth of one of the group's cylinders, less the masters.
+        long ghostKeyCount = countKeys(rows, 0, 0);
+        for (int depth = 0; depth <= cutCount; depth++)
+            ghostKeyCount -= countMasters(rows, depth);
+
+        return ghostKeyCount;
+    }
+
+    /**
+     * Counts the ghost keys that operate at least one cylinder of the group with the given group path and at least one
+     * cylinder outside of it: the ghost keys that cross the group's boundary.
+     *
+     * @param groupPath the step indices that lead from the root bitting group to the group [0, cutCount]
+     * @return the number of ghost keys that cross the group's boundary
+     * @throws IllegalArgumentException if the group path is not valid
+     */
+    public long getCrossGroupGhostKeyCount(int[] groupPath) {
+
+        // Throws: IllegalArgumentException
+        int[] rows = getRows(groupPath);
+
+        // A key stays inside the group when it has every cut the group path fixes at its step depth.
+        int fixedMask = masterMasks[groupPath.length];
+        long insideKeyCount = countKeys(rows, fixedMask, 0);
+        for (int depth = 0; depth <= cutCount; depth++) {
+            if ((masterMasks[depth] & fixedMask) == fixedMask)
+                insideKeyCount -= countMasters(rows, depth);
+        }
+
+        return getGhostKeyCount(groupPath) - insideKeyCount;
+    }
+
+    /**
+     * Counts the ghost keys that cross the boundary of every group at the given depth.
+     * The groups are listed in bitting list order, so group {@code g} is the one whose path is the depth-digit,
+     * base-stepCount representation of {@code g}.
+     *
+     * @param depth the depth of the groups [0, cutCount] (0 for the root, cutCount for the change keys' cylinders)
+     * @return the number of ghost keys that cross the boundary of each group
+     * @throws IllegalArgumentException if the depth is out of range or there are too many groups at that depth
+     */
+    public long[] getCrossGroupGhostKeyCounts(int depth) {
+
+        if ((depth < 0) || (depth > cutCount)) {
+
+            StringBuilder sb = new StringBuilder();
+            sb.append("The depth is out of range (");
+            sb.append(depth);
+            sb.append(") [0, ");
+            sb.append(cutCount);
+            sb.append("].");
+            throw new IllegalArgumentException(sb.toString());
+        }
+
+        long groupCount = 1;
+        for (int level = 0; level < depth; level++)
+            groupCount *= stepCount;
+        if (groupCount > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("There are too many groups at that depth.");
+
+        // Walk the group paths like an odometer (the last step moves fastest).
+        long[] ghostKeyCounts = new long[(int) groupCount];
+        int[] groupPath = new int[depth];
+        for (int group = 0; group < groupCount; group++) {
+
+            ghostKeyCounts[group] = getCrossGroupGhostKeyCount(groupPath);
+
+            for (int index = depth - 1; (index >= 0) && (++groupPath[index] == stepCount); index--)
+                groupPath[index] = 0;
+        }
+
+        return ghostKeyCounts;
+    }
+
+    /**
+     * Lists the ghost keys that operate at least one cylinder of the group with the given group path.
+     * The list holds {@link #getGhostKeyCount(int[])} keys; a path of cutCount steps lists the ghost keys of a single
+     * change key's cylinder (at most 2 ^ cutCount keys).
+     *
+     * @param groupPath the step indices that lead from the root bitting group to the group [0, cutCount]
+     * @return the ghost keys' cuts
+     * @throws IllegalArgumentException if the group path is not valid
+     */
+    public List<int[]> getGhostKeys(int[] groupPath) {
+
+        // Throws: IllegalArgumentException
+        int[] rows = getRows(groupPath);
+
+        // The rows each cut may take: the top master key's row, then its fixed row or every step row.
+        int masterRow = macsTable.getMasterRow();
+        int[][] cutRows = new int[cutCount][];
+        for (int cut = 0; cut < cutCount; cut++) {
+
+            if (rows[cut] == TotalPositionMACSTable.FREE_ROW) {
+
+                cutRows[cut] = new int[stepCount + 1];
+                cutRows[cut][0] = masterRow;
+                for (int row = 0; row < stepCount; row++)
+                    cutRows[cut][row + 1] = row;
+            }
+            else
+                cutRows[cut] = new int[]{masterRow, rows[cut]};
+        }
+
+        // Walk the keys like an odometer, keeping the ones that are not masters.
+        List<int[]> ghostKeys = new ArrayList<>();
+        int[] indexes = new int[cutCount];
+        int[] keyRows = new int[cutCount];
+        do {
+
+            int stepMask = 0;
+            for (int cut = 0; cut < cutCount; cut++) {
+
+                keyRows[cut] = cutRows[cut][indexes[cut]];
+                if (keyRows[cut] != masterRow)
+                    stepMask |= (1 << cut);
+            }
+
+            if (!isMasterMask(stepMask) && !(usableGhostKeysOnly && macsTable.hasViolation(keyRows))) {
+
+                int[] key = new int[cutCount];
+                for (int cut = 0; cut < cutCount; cut++)
+                    key[cut] = (keyRows[cut] == masterRow) ? masterCuts[cut] : progressionSteps[keyRows[cut]][cut];
+                ghostKeys.add(key);
+            }
+
+            int cut = cutCount - 1;
+            while ((cut >= 0) && (++indexes[cut] == cutRows[cut].length))
+                indexes[cut--] = 0;
+            if (cut < 0)
+                break;
+
+        } while (true);
+
+        return ghostKeys;
+    }
+
+    /*
+     * Local operations
+     */
+
+    /**
+     * Validates the given group path and converts it into the rows of the cuts it fixes.
+     *
+     * @param groupPath the group path
+     * @return the rows, indexed by cut ({@link TotalPositionMACSTable#FREE_ROW} for the cuts the path does not fix)
+     * @throws IllegalArgumentException if the group path is missing, too long, or contains an invalid step
+     */
+    private int[] getRows(int[] groupPath) {
+
+        if ((groupPath == null) || (groupPath.length > cutCount))
+            throw new IllegalArgumentException("The group path is missing or too long.");
+
+        int[] rows = new int[cutCount];
+        Arrays.fill(rows, TotalPositionMACSTable.FREE_ROW);
+        for (int depth = 0; depth < groupPath.length; depth++) {
+
+            int step = groupPath[depth];
+            if ((step < 0) || (step >= stepCount)) {
+
+                StringBuilder sb = new StringBuilder();
+                sb.append("The group path contains an invalid step (");
+                sb.append(step);
+                sb.append(") [0, ");
+                sb.append(stepCount);
+                sb.append(").");
+                throw new IllegalArgumentException(sb.toString());
+            }
+
+            rows[cutOrder[cutCount - depth - 1]] = step;
+        }
+
+        return rows;
+    }
+
+    /**
+     * Tests whether the given step cuts are those of a master (or of a change key).
+     *
+     * @param stepMask the cuts at their step depth, as a cut mask
+     * @return {@code True} if the mask is a master's, {@code false} if it is a ghost key's
+     */
+    private boolean isMasterMask(int stepMask) {
+
+        for (int masterMask : masterMasks) {
+            if (masterMask == stepMask)
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Counts the masters at the given depth that operate at least one cylinder of the group with the given rows.
+     *
+     * @param rows the rows of the cuts the group fixes, indexed by cut
+     * @param depth the depth of the masters [0, cutCount]
+     * @return the number of masters
+     */
+    private long countMasters(int[] rows, int depth) {
+        return countKeys(rows, masterMasks[depth], ~masterMasks[depth]);
+    }
+
+    /**
+     * Counts the keys whose cuts each sit at a shear depth of at least one cylinder of the group with the given rows.
+     * A cut in the step mask must sit at a step depth, a cut in the master mask at the top master key's depth; any
+     * other cut may take either.
+     *
+     * @param rows the rows of the cuts the group fixes, indexed by cut
+     * @param stepMask the cuts that must sit at a step depth, as a cut mask
+     * @param masterMask the cuts that must sit at the top master key's depth, as a cut mask
+     * @return the number of keys (those that do not violate the MACS only, if requested)
+     */
+    private long countKeys(int[] rows, int stepMask, int masterMask) {
+
+        // The rows each cut may take, as row masks.
+        int masterRow = macsTable.getMasterRow();
+        long[] allowedRows = new long[cutCount];
+        for (int cut = 0; cut < cutCount; cut++) {
+
+            if ((stepMask & (1 << cut)) == 0)
+                allowedRows[cut] |= (1L << masterRow);
+            if ((masterMask & (1 << cut)) == 0)
+                allowedRows[cut] |= (rows[cut] == TotalPositionMACSTable.FREE_ROW) ? (1L << stepCount) - 1 :
+                        (1L << rows[cut]);
+        }
+
+        // Every combination counts.
+        if (!usableGhostKeysOnly) {
+
+            long keyCount = 1;
+            for (long cutRows : allowedRows)
+                keyCount *= Long.bitCount(cutRows);
+
+            return keyCount;
+        }
+
+        // Only the combinations without a MACS violation count: keep the number of usable prefixes that end in each
+        // row of the current cut.
+        long[] counts = new long[stepCount + 1];
+        for (int row = 0; row <= stepCount; row++)
+            counts[row] = ((allowedRows[0] & (1L << row)) != 0) ? 1 : 0;
+
+        long[] nextCounts = new long[stepCount + 1];
+        for (int cut = 0; cut < cutCount - 1; cut++) {
+
+            for (int nextRow = 0; nextRow <= stepCount; nextRow++) {
+
+                nextCounts[nextRow] = 0;
+                if ((allowedRows[cut + 1] & (1L << nextRow)) == 0)
+                    continue;
+
+                for (int row = 0; row <= stepCount; row++) {
+                    if ((counts[row] != 0) && !macsTable.isViolation(cut, row, nextRow))
+                        nextCounts[nextRow] += counts[row];
+                }
+            }
+
+            long[] swap = counts;
+            counts = nextCounts;
+            nextCounts = swap;
+        }
+
+        long keyCount = 0;
+        for (long count : counts)
+            keyCount += count;
+
+        return keyCount;
+    }
+}
@@ -0,0 +1,222 @@
+package com.eames.masterkey.service.progression.services.totalposition;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * This class counts the usable (non-violating) change keys of a Total Position Progression system without generating
+ * them.
+ *
+ * A MACS violation only couples adjacent cuts, so the number of usable completions of a key whose outer cuts are fixed
+ * can be counted by walking the cuts left to right and, for each row a cut can take, keeping the number of usable
+ * prefixes that end in it (a transfer matrix over adjacent column pairs). Each count costs O(cutCount * stepCount^2),
+ * whatever the size of the system.
+ *
+ * The depth differences of the adjacent cuts do not depend on the MACS, so the counts for any other MACS come from the
+ * same tables; a histogram over every valid MACS costs no more than a handful of counts.
+ */
+public class TotalPositionMACSCounter {
+
+    // The cut order comes from the criteria.
+    private final int[] cutOrder;
+
+    // The cut count comes from the criteria.
+    private final int cutCount;
+
+    // The step count comes from the criteria.
+    private final int stepCount;
+
+    // The MACS comes from the criteria.
+    private final int macs;
+
+    // The MACS violation tables are built from the criteria.
+    private final TotalPositionMACSTable macsTable;
+
+    /**
+     * Constructor
+     *
+     * @param criteria the {@link TotalPositionProgressionCriteria} of the system to count
+     */
+    public TotalPositionMACSCounter(TotalPositionProgressionCriteria criteria) {
+
+        cutOrder = criteria.getCutOrder();
+        cutCount = criteria.getCutCount();
+        stepCount = criteria.getStepCount();
+        macs = criteria.getMacs();
+        macsTable = new TotalPositionMACSTable(criteria);
+    }
+
+    /**
+     * Counts the usable change keys of the whole system.
+     *
+     * @return the number of change keys that do not violate the MACS
+     */
+    public long getUsableKeyCount() {
+
+        // Throws: IllegalArgumentException (never, the path is empty)
+        return getUsableKeyCount(new int[0]);
+    }
+
+    /**
+     * Counts the usable change keys of the group with the given group path.
+     *
+     * @param groupPath the step indices that lead from the root bitting group to the group [0, cutCount] (a path of
+     *        cutCount steps leads to a single change key)
+     * @return the number of the group's change keys that do not violate the MACS
+     * @throws IllegalArgumentException if the group path is not valid
+     */
+    public long getUsableKeyCount(int[] groupPath) {
+
+        validateGroupPath(groupPath);
+
+        // The path fixes the outer cuts; the others are free.
+        int[] rows = new int[cutCount];
+        Arrays.fill(rows, TotalPositionMACSTable.FREE_ROW);
+        for (int depth = 0; depth < groupPath.length; depth++)
+            rows[cutOrder[cutCount - depth - 1]] = groupPath[depth];
+
+        return countUsableKeys(rows);
+    }
+
+    /**
+     * Counts the usable change keys of every group at the given depth.
+     * The groups are listed in bitting list order, so group {@code g} is the one whose path is the depth-digit,
+     * base-stepCount representation of {@code g}.
+     *
+     * @param depth the depth of the groups [0, cutCount] (0 for the root, cutCount for the change keys themselves)
+     * @return the number of usable change keys of each group
+     * @throws IllegalArgumentException if the depth is out of range
+     */
+    public long[] getUsableKeyCounts(int depth) {
+
+        if ((depth < 0) || (depth > cutCount)) {
+
+            StringBuilder sb = new StringBuilder();
+            sb.append("The depth is out of range (");
+            sb.append(depth);
+            sb.append(") [0, ");
+            sb.append(cutCount);
+            sb.append("].");
+            throw new IllegalArgumentException(sb.toString());
+        }
+
+        int groupCount = 1;
+        for (int level = 0; level < depth; level++)
+            groupCount *= stepCount;
+
+        // Walk the group paths like an odometer (the last step moves fastest).
+        long[] usableKeyCounts = new long[groupCount];
+        int[] groupPath = new int[depth];
+        for (int group = 0; group < groupCount; group++) {
+
+            usableKeyCounts[group] = getUsableKeyCount(groupPath);
+
+            for (int index = depth - 1; (index >= 0) && (++groupPath[index] == stepCount); index--)
+                groupPath[index] = 0;
+        }
+
+        return usableKeyCounts;
+    }
+
+    /**
+     * Counts the usable change keys of the whole system for every valid MACS.
+     *
+     * @return the number of change keys that do not violate each MACS, keyed by MACS
+     *         [{@link TotalPositionProgressionCriteria#MACS_MIN}, {@link TotalPositionProgressionCriteria#MACS_MAX}]
+     */
+    public Map<Integer, Long> getUsableKeyCountsByMACS() {
+
+        int[] rows = new int[cutCount];
+        Arrays.fill(rows, TotalPositionMACSTable.FREE_ROW);
+
+        Map<Integer, Long> usableKeyCounts = new TreeMap<>();
+        for (int macs = TotalPositionProgressionCriteria.MACS_MIN; macs <= TotalPositionProgressionCriteria.MACS_MAX;
+             macs++)
+            usableKeyCounts.put(macs, countUsableKeys(rows, macs));
+
+        return usableKeyCounts;
+    }
+
+    /**
+     * Counts the usable completions of the given rows.
+     *
+     * @param rows the key's rows, indexed by cut ({@link TotalPositionMACSTable#FREE_ROW} for cuts that may take any
+     *        progression step row)
+     * @return the number of completions that do not violate the MACS
+     */
+    public long countUsableKeys(int[] rows) {
+        return countUsableKeys(rows, macs);
+    }
+
+    /**
+     * Counts the usable completions of the given rows for the given MACS.
+     *
+     * @param rows the key's rows, indexed by cut ({@link TotalPositionMACSTable#FREE_ROW} for cuts that may take any
+     *        progression step row)
+     * @param macs the MACS to count against
+     * @return the number of completions that do not violate the given MACS
+     */
+    public long countUsableKeys(int[] rows, int macs) {
+
+        // The number of usable prefixes that end in each row of the current cut (the master row is never reached).
+        long[] counts = new long[stepCount];
+        for (int row = 0; row < stepCount; row++)
+            counts[row] = ((rows[0] == TotalPositionMACSTable.FREE_ROW) || (rows[0] == row)) ? 1 : 0;
+
+        long[] nextCounts = new long[stepCount];
+        for (int cut = 0; cut < cutCount - 1; cut++) {
+
+            for (int nextRow = 0; nextRow < stepCount; nextRow++) {
+
+                nextCounts[nextRow] = 0;
+                if ((rows[cut + 1] != TotalPositionMACSTable.FREE_ROW) && (rows[cut + 1] != nextRow))
+                    continue;
+
+                for (int row = 0; row < stepCount; row++) {
+                    if ((counts[row] != 0) && (macsTable.getDifference(cut, row, nextRow) <= macs))
+                        nextCounts[nextRow] += counts[row];
+                }
+            }
+
+            long[] swap = counts;
+            counts = nextCounts;
+            nextCounts = swap;
+        }
+
+        long usableKeyCount = 0;
+        for (long count : counts)
+            usableKeyCount += count;
+
+        return usableKeyCount;
+    }
+
+    /*
+     * Local operations
+     */
+
+    /**
+     * Validates the given group path.
+     *
+     * @param groupPath the group path to validate
+     * @throws IllegalArgumentException if the group path is missing, too long, or contains an invalid step
+     */
+    private void validateGroupPath(int[] groupPath) {
+
+        if ((groupPath == null) || (groupPath.length > cutCount))
+            throw new IllegalArgumentException("The group path is missing or too long.");
+
+        for (int step : groupPath) {
+            if ((step < 0) || (step >= stepCount)) {
+
+                StringBuilder sb = new StringBuilder();
+                sb.append("The group path contains an invalid step (");
+                sb.append(step);
+                sb.append(") [0, ");
+                sb.append(stepCount);
+                sb.append(").");
+                throw new IllegalArgumentException(sb.toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.eames.masterkey.service.progression.services.totalposition;
+
+/**
+ * This class holds the precomputed MACS violation tables of a Total Position Progression system.
+ *
+ * A MACS violation depends only on the depths of two adjacent cuts, and each cut can only take the depths of its
+ * progression step rows or its master cut. So for every pair of adjacent cuts the table records which combinations of
+ * rows violate the MACS, and key checks become table lookups. Keys are described by their rows, indexed by cut: rows
+ * [0, stepCount) are the progression step rows and row stepCount is the master row.
+ *
+ * The tables also tell whether a block whose outer cuts are fixed can still hold a usable (non-violating) change key.
+ */
+public class TotalPositionMACSTable {
+
+    // The row that stands for a cut that is not fixed (it may take any progression step row).
+    public static final int FREE_ROW = -1;
+
+    // The cut order comes from the criteria.
+    private final int[] cutOrder;
+
+    // The cut count comes from the criteria.
+    private final int cutCount;
+
+    // The step count comes from the criteria.
+    private final int stepCount;
+
+    // The row of the master cuts.
+    private final int masterRow;
+
+    // The violation table, indexed by pair (the pair's first cut), first cut row, then second cut row.
+    private final boolean[][][] violations;
+
+    // The depth difference table, indexed like the violation table.
+    private final int[][][] differences;
+
+    // For each pair and first cut row, the mask of the second cut's step rows that do not violate the MACS.
+    private final long[][] compatibleRows;
+
+    /**
+     * Constructor
+     *
+     * @param criteria the {@link TotalPositionProgressionCriteria} to build the tables from
+     */
+    public TotalPositionMACSTable(TotalPositionProgressionCriteria criteria) {
+
+        int[] masterCuts = criteria.getMasterCuts();
+        int[][] progressionSteps = criteria.getProgressionSteps();
+        int macs = criteria.getMacs();
+
+        cutOrder = criteria.getCutOrder();
+        cutCount = criteria.getCutCount();
+        stepCount = criteria.getStepCount();
+        masterRow = stepCount;
+
+        // Build the tables.
+        violations = new boolean[cutCount - 1][stepCount + 1][stepCount + 1];
+        differences = new int[cutCount - 1][stepCount + 1][stepCount + 1];
+        compatibleRows = new long[cutCount - 1][stepCount + 1];
+        for (int cut = 0; cut < cutCount - 1; cut++) {
+            for (int row = 0; row <= stepCount; row++) {
+
+                int depth = (row == masterRow) ? masterCuts[cut] : progressionSteps[row][cut];
+                for (int nextRow = 0; nextRow <= stepCount; nextRow++) {
+
+                    int nextDepth = (nextRow == masterRow) ? masterCuts[cut + 1] : progressionSteps[nextRow][cut + 1];
+                    differences[cut][row][nextRow] = Math.abs(nextDepth - depth);
+                    violations[cut][row][nextRow] = (differences[cut][row][nextRow] > macs);
+
+                    if ((nextRow < stepCount) && !violations[cut][row][nextRow])
+                        compatibleRows[cut][row] |= (1L << nextRow);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the row that stands for the master cuts.
+     *
+     * @return the master row (stepCount)
+     */
+    public int getMasterRow() {
+        return masterRow;
+    }
+
+    /**
+     * Tests whether the given rows of the given cut and the cut after it violate the MACS.
+     *
+     * @param cut the pair's first cut [0, cutCount - 1)
+     * @param row the first cut's row [0, stepCount]
+     * @param nextRow the second cut's row [0, stepCount]
+     * @return {@code True} if the pair violates the MACS, {@code false} if not
+     */
+    public boolean isViolation(int cut, int row, int nextRow) {
+        return violations[cut][row][nextRow];
+    }
+
+    /**
+     * Gets the depth difference between the given rows of the given cut and the cut after it.
+     * The pair violates a MACS if and only if the difference is larger than the MACS.
+     *
+     * @param cut the pair's first cut [0, cutCount - 1)
+     * @param row the first cut's row [0, stepCount]
+     * @param nextRow the second cut's row [0, stepCount]
+     * @return the depth difference
+     */
+    public int getDifference(int cut, int row, int nextRow) {
+        return differences[cut][row][nextRow];
+    }
+
+    /**
+     * Gets the largest adjacent cut difference over every completion of the given rows.
+     * Each pair of cuts depends on its own two rows only, so the largest difference is found pair by pair.
+     *
+     * @param rows the key's rows, indexed by cut ({@link #FREE_ROW} for cuts that may take any progression step row)
+     * @return the largest adjacent cut difference
+     */
+    public int getMaxDifference(int[] rows) {
+
+        int maxDifference = 0;
+        for (int cut = 0; cut < cutCount - 1; cut++) {
+
+            int firstRow = (rows[cut] == FREE_ROW) ? 0 : rows[cut];
+            int lastRow = (rows[cut] == FREE_ROW) ? stepCount - 1 : rows[cut];
+            int firstNextRow = (rows[cut + 1] == FREE_ROW) ? 0 : rows[cut + 1];
+            int lastNextRow = (rows[cut + 1] == FREE_ROW) ? stepCount - 1 : rows[cut + 1];
+            for (int row = firstRow; row <= lastRow; row++) {
+                for (int nextRow = firstNextRow; nextRow <= lastNextRow; nextRow++)
+                    maxDifference = Integer.max(maxDifference, differences[cut][row][nextRow]);
+            }
+        }
+
+        return maxDifference;
+    }
+
+    /**
+     * Tests whether the key with the given rows violates the MACS.
+     *
+     * @param rows the key's rows, indexed by cut
+     * @return {@code True} if the key violates the MACS, {@code false} if not
+     */
+    public boolean hasViolation(int[] rows) {
+
+        for (int cut = 0; cut < cutCount - 1; cut++) {
+            if (violations[cut][rows[cut]][rows[cut + 1]])
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Builds the MACS violation mask of the key with the given rows.
+     * Bit {@code i} of the mask is set when cuts {@code i} and {@code i + 1} violate the MACS.
+     *
+     * @param rows the key's rows, indexed by cut
+     * @return the key's MACS violation mask
+     */
+    public int getViolationMask(int[] rows) {
+
+        int violationMask = 0;
+        for (int cut = 0; cut < cutCount - 1; cut++) {
+            if (violations[cut][rows[cut]][rows[cut + 1]])
+                violationMask |= (1 << cut);
+        }
+
+        return violationMask;
+    }
+
+    /**
+     * Updates the MACS violation mask of a key that differs from the key the mask was built for in the given cut only.
+     * Only the (at most two) pairs around the changed cut are looked up.
+     *
+     * @param violationMask the MACS violation mask of the unchanged key
+     * @param rows the changed key's rows, indexed by cut
+     * @param cut the index of the changed cut
+     * @return the changed key's MACS violation mask
+     */
+    public int updateViolationMask(int violationMask, int[] rows, int cut) {
+
+        // Look up the pair to the left of the cut.
+        if (cut > 0) {
+
+            if (violations[cut - 1][rows[cut - 1]][rows[cut]])
+                violationMask |= (1 << (cut - 1));
+            else
+                violationMask &= ~(1 << (cut - 1));
+        }
+
+        // Look up the pair to the right of the cut.
+        if (cut < cutCount - 1) {
+
+            if (violations[cut][rows[cut]][rows[cut + 1]])
+                violationMask |= (1 << cut);
+            else
+                violationMask &= ~(1 << cut);
+        }
+
+        return violationMask;
+    }
+
+    /**
+     * Tests whether the block with the given block level can still hold a usable change key.
+     * The block's cuts (cutOrder[0, blockLevel)) are free to take any progression step row; the others are fixed at
+     * the given rows.
+     *
+     * @param blockLevel the block level [0, cutCount]
+     * @param rows the rows of the fixed cuts, indexed by cut (the block's own cuts are ignored)
+     * @return {@code True} if at least one of the block's change keys does not violate the MACS, {@code false} if
+     * every one of them does
+     */
+    public boolean hasUsableKey(int blockLevel, int[] rows) {
+
+        int[] blockRows = rows.clone();
+        for (int seq = 0; seq < blockLevel; seq++)
+            blockRows[cutOrder[seq]] = FREE_ROW;
+
+        return hasUsableKey(blockRows);
+    }
+
+    /**
+     * Tests whether the given rows can be completed into a usable key.
+     *
+     * @param rows the key's rows, indexed by cut ({@link #FREE_ROW} for cuts that may take any progression step row)
+     * @return {@code True} if at least one completion does not violate the MACS, {@code false} if every one does
+     */
+    public boolean hasUsableKey(int[] rows) {
+
+        // Walk the cuts left to right, keeping the mask of rows the current cut can take without a violation so far.
+        long allStepRows = (1L << stepCount) - 1;
+        long reachable = (rows[0] == FREE_ROW) ? allStepRows : (1L << rows[0]);
+        for (int cut = 0; cut < cutCount - 1; cut++) {
+
+            // Collect the next cut's rows that follow at least one reachable row.
+            long nextReachable = 0;
+            long nextAllowed = (rows[cut + 1] == FREE_ROW) ? allStepRows : (1L << rows[cut + 1]);
+            for (int row = 0; row <= stepCount; row++) {
+
+                if ((reachable & (1L << row)) == 0)
+                    continue;
+
+                if (rows[cut + 1] == FREE_ROW)
+                    nextReachable |= compatibleRows[cut][row];
+                else if (!violations[cut][row][rows[cut + 1]])
+                    nextReachable |= nextAllowed;
+            }
+
+            reachable = nextReachable & nextAllowed;
+            if (reachable == 0)
+                return false;
+        }
+
+        return true;
+    }
+}
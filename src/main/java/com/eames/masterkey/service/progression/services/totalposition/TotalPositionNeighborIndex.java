@@ -0,0 +1,287 @@
+package com.eames.masterkey.service.progression.services.totalposition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * This class finds the near-miss neighbors of a key among the change keys of a Total Position Progression system
+ * without scanning the system.
+ *
+ * A neighbor differs from the key in at most a given number of cuts (the Hamming distance), and by at most a given
+ * depth tolerance in each of them; a tolerance of 1 finds the keys that a cut one depth off would let through. The
+ * change keys of a system are every combination of its progression step rows, one per column, so the index keeps, for
+ * every column, the bitset of the rows at each depth: a query looks up the rows at and around each of the key's depths
+ * and counts the combinations column by column. A count costs O(cutCount * maxDistance), whatever the size of the
+ * system.
+ */
+public class TotalPositionNeighborIndex {
+
+    // The tolerance that lets a differing cut take any depth (a plain Hamming distance search).
+    public static final int ANY_DEPTH = Integer.MAX_VALUE;
+
+    // The progression steps come from the criteria.
+    private final int[][] progressionSteps;
+
+    // The cut order comes from the criteria.
+    private final int[] cutOrder;
+
+    // The cut count comes from the criteria.
+    private final int cutCount;
+
+    // The step count comes from the criteria.
+    private final int stepCount;
+
+    // The number of change keys in the system.
+    private final long keyCount;
+
+    // The rows at each depth, as row masks, indexed by cut then depth.
+    private final long[][] rowsByDepth;
+
+    /**
+     * Constructor
+     *
+     * @param criteria the {@link TotalPositionProgressionCriteria} of the system to index
+     */
+    public TotalPositionNeighborIndex(TotalPositionProgressionCriteria criteria) {
+
+        progressionSteps = criteria.getProgressionSteps();
+        cutOrder = criteria.getCutOrder();
+        cutCount = criteria.getCutCount();
+        stepCount = criteria.getStepCount();
+        keyCount = criteria.getKeyCount();
+
+        // Build the per-column depth bitsets.
+        int maxDepth = 0;
+        for (int[] progressionStepRow : progressionSteps) {
+            for (int depth : progressionStepRow)
+                maxDepth = Integer.max(maxDepth, depth);
+        }
+
+        rowsByDepth = new long[cutCount][maxDepth + 1];
+        for (int row = 0; row < stepCount; row++) {
+            for (int cut = 0; cut < cutCount; cut++)
+                rowsByDepth[cut][progressionSteps[row][cut]] |= (1L << row);
+        }
+    }
+
+    /**
+     * Counts the change keys of the system that are neighbors of the given key (the key itself is not counted).
+     *
+     * @param key the key's cuts (it need not be one of the system's keys)
+     * @param maxDistance the largest number of cuts in which a neighbor may differ from the key [0, cutCount]
+     * @param tolerance the largest depth difference of a differing cut (at least 1, {@link #ANY_DEPTH} for any)
+     * @return the number of neighbors
+     * @throws IllegalArgumentException if the key or the search settings are not valid
+     */
+    public long countNeighbors(int[] key, int maxDistance, int tolerance) {
+
+        // Throws: IllegalArgumentException
+        validateSearch(key, maxDistance, tolerance);
+
+        // The number of combinations of the cuts so far that differ from the key in each number of cuts.
+        long[] counts = new long[maxDistance + 1];
+        counts[0] = 1;
+        for (int cut = 0; cut < cutCount; cut++) {
+
+            long sameRows = getSameRows(key, cut);
+            long nearRows = getNearRows(key, cut, tolerance) & ~sameRows;
+            int sameCount = Long.bitCount(sameRows);
+            int nearCount = Long.bitCount(nearRows);
+
+            for (int distance = maxDistance; distance > 0; distance--)
+                counts[distance] = counts[distance] * sameCount + counts[distance - 1] * nearCount;
+            counts[0] *= sameCount;
+        }
+
+        // The key itself is at distance 0.
+        long neighborCount = 0;
+        for (int distance = 1; distance <= maxDistance; distance++)
+            neighborCount += counts[distance];
+
+        return neighborCount;
+    }
+
+    /**
+     * Lists the change keys of the system that are neighbors of the given key (the key itself is not listed).
+     * The neighbors are listed in the order of their rows, the last cut moving fastest.
+     *
+     * @param key the key's cuts (it need not be one of the system's keys)
+     * @param maxDistance the largest number of cuts in which a neighbor may differ from the key [0, cutCount]
+     * @param tolerance the largest depth difference of a differing cut (at least 1, {@link #ANY_DEPTH} for any)
+     * @return the neighbors' cuts
+     * @throws IllegalArgumentException if the key or the search settings are not valid
+     */
+    public List<int[]> getNeighbors(int[] key, int maxDistance, int tolerance) {
+
+        // Throws: IllegalArgumentException
+        validateSearch(key, maxDistance, tolerance);
+
+        long[] sameRows = new long[cutCount];
+        long[] nearRows = new long[cutCount];
+        for (int cut = 0; cut < cutCount; cut++) {
+
+            sameRows[cut] = getSameRows(key, cut);
+            nearRows[cut] = getNearRows(key, cut, tolerance) & ~sameRows[cut];
+        }
+
+        List<int[]> neighbors = new ArrayList<>();
+        collectNeighbors(sameRows, nearRows, maxDistance, 0, 0, new int[cutCount], neighbors);
+
+        return neighbors;
+    }
+
+    /**
+     * Counts the neighbors of every change key of the system, in parallel.
+     *
+     * @param maxDistance the largest number of cuts in which a neighbor may differ from the key [0, cutCount]
+     * @param tolerance the largest depth difference of a differing cut (at least 1, {@link #ANY_DEPTH} for any)
+     * @return the number of neighbors of each change key, indexed by rank
+     * @throws IllegalArgumentException if the search settings are not valid or the system has too many change keys
+     */
+    public long[] getNeighborCounts(int maxDistance, int tolerance) {
+
+        if (keyCount > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("The system has too many change keys for a neighbor count table.");
+
+        // Throws: IllegalArgumentException
+        validateSearch(new int[cutCount], maxDistance, tolerance);
+
+        long[] neighborCounts = new long[(int) keyCount];
+        IntStream.range(0, neighborCounts.length).parallel()
+                .forEach(rank -> neighborCounts[rank] = countNeighbors(getKey(rank), maxDistance, tolerance));
+
+        return neighborCounts;
+    }
+
+    /**
+     * Gets the cuts of the change key with the given rank.
+     *
+     * @param rank the change key's rank [0, keyCount)
+     * @return the change key's cuts
+     * @throws IndexOutOfBoundsException if the rank is out of range
+     */
+    public int[] getKey(long rank) {
+
+        if ((rank < 0) || (rank >= keyCount)) {
+
+            StringBuilder sb = new StringBuilder();
+            sb.append("The rank is out of range (");
+            sb.append(rank);
+            sb.append(") [0, ");
+            sb.append(keyCount);
+            sb.append(").");
+            throw new IndexOutOfBoundsException(sb.toString());
+        }
+
+        // The rank's digit at position p is the row of the p-th progressed cut.
+        int[] key = new int[cutCount];
+        for (int position = 0; position < cutCount; position++, rank /= stepCount) {
+
+            int cut = cutOrder[position];
+            key[cut] = progressionSteps[(int) (rank % stepCount)][cut];
+        }
+
+        return key;
+    }
+
+    /*
+     * Local operations
+     */
+
+    /**
+     * Validates the given key and search settings.
+     *
+     * @param key the key's cuts
+     * @param maxDistance the largest number of differing cuts
+     * @param tolerance the largest depth difference of a differing cut
+     * @throws IllegalArgumentException if the key or the search settings are not valid
+     */
+    private void validateSearch(int[] key, int maxDistance, int tolerance) {
+
+        if ((key == null) || (key.length != cutCount))
+            throw new IllegalArgumentException("The key is missing or does not have the system's number of cuts.");
+
+        if ((maxDistance < 0) || (maxDistance > cutCount) || (tolerance < 1)) {
+
+            StringBuilder sb = new StringBuilder();
+            sb.append("Invalid neighbor search settings (maxDistance=");
+            sb.append(maxDistance);
+            sb.append(", tolerance=");
+            sb.append(tolerance);
+            sb.append("). The distance must be in [0, ");
+            sb.append(cutCount);
+            sb.append("] and the tolerance at least 1.");
+            throw new IllegalArgumentException(sb.toString());
+        }
+    }
+
+    /**
+     * Gets the rows of the given column that are at the key's depth.
+     *
+     * @param key the key's cuts
+     * @param cut the column's cut
+     * @return the rows, as a row mask
+     */
+    private long getSameRows(int[] key, int cut) {
+
+        int depth = key[cut];
+
+        return ((depth >= 0) && (depth < rowsByDepth[cut].length)) ? rowsByDepth[cut][depth] : 0;
+    }
+
+    /**
+     * Gets the rows of the given column that are within the tolerance of the key's depth (the same depth included).
+     *
+     * @param key the key's cuts
+     * @param cut the column's cut
+     * @param tolerance the largest depth difference
+     * @return the rows, as a row mask
+     */
+    private long getNearRows(int[] key, int cut, int tolerance) {
+
+        long[] columnRows = rowsByDepth[cut];
+        long minDepth = Long.max(0, (long) key[cut] - tolerance);
+        long maxDepth = Long.min(columnRows.length - 1, (long) key[cut] + tolerance);
+
+        long nearRows = 0;
+        for (long depth = minDepth; depth <= maxDepth; depth++)
+            nearRows |= columnRows[(int) depth];
+
+        return nearRows;
+    }
+
+    /**
+     * Collects the neighbors that complete the given partial key.
+     *
+     * @param sameRows the rows at the key's depth, per column
+     * @param nearRows the other rows within the tolerance, per column
+     * @param maxDistance the largest number of differing cuts
+     * @param cut the next cut to fill
+     * @param distance the number of differing cuts so far
+     * @param neighbor the partial neighbor's cuts
+     * @param neighbors the collected neighbors
+     */
+    private void collectNeighbors(long[] sameRows, long[] nearRows, int maxDistance, int cut, int distance,
+                                  int[] neighbor, List<int[]> neighbors) {
+
+        if (cut == cutCount) {
+
+            if (distance > 0)
+                neighbors.add(neighbor.clone());
+            return;
+        }
+
+        for (int row = 0; row < stepCount; row++) {
+
+            boolean same = (sameRows[cut] & (1L << row)) != 0;
+            boolean near = (nearRows[cut] & (1L << row)) != 0;
+            if (same || (near && (distance < maxDistance))) {
+
+                neighbor[cut] = progressionSteps[row][cut];
+                collectNeighbors(sameRows, nearRows, maxDistance, cut + 1, same ? distance : distance + 1, neighbor,
+                        neighbors);
+            }
+        }
+    }
+}
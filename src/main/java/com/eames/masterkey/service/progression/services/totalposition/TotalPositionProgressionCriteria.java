@@ -49,6 +49,13 @@ public class TotalPositionProgressionCriteria implements ProgressionCriteria {
     // The starting depth
     private final int startingDepth;
 
+    /*
+     * Derived attributes
+     */
+
+    // The cut order is generated from the progression sequence (transient, so that it is not serialized).
+    private final transient int[] cutOrder;
+
     /**
      * Constructor
      * This constructor has been declared private so that it can only
@@ -68,6 +75,20 @@ public class TotalPositionProgressionCriteria implements ProgressionCriteria {
         this.progressionSteps = progressionSteps;
         this.progressionSequence = progressionSequence;
         this.startingDepth = startingDepth;
+
+        /*
+         * Generate the cut order array from the progression sequence.
+         * The cut order array determines the order in which the progression steps are applied during the progression
+         * process.
+         *
+         * e.g.:
+         *  [1, 2, 3, 4, 5] becomes [0, 1, 2, 3, 4]
+         *  [5, 4, 3, 2, 1] becomes [4, 3, 2, 1, 0]
+         *  [3, 5, 2, 1, 4] becomes [3, 2, 0, 4, 1]
+         */
+        cutOrder = new int[progressionSequence.length];
+        for (int cut = 0; cut < progressionSequence.length; cut++)
+            cutOrder[progressionSequence[cut] - 1] = cut;
     }
 
     /**
@@ -115,6 +136,49 @@ public class TotalPositionProgressionCriteria implements ProgressionCriteria {
         return startingDepth;
     }
 
+    /**
+     * Gets the cut count.
+     *
+     * @return the number of cuts in every key of the system
+     */
+    public int getCutCount() {
+        return progressionSequence.length;
+    }
+
+    /**
+     * Gets the step count.
+     *
+     * @return the number of progression steps (rows) used for every cut
+     */
+    public int getStepCount() {
+        return progressionSteps.length;
+    }
+
+    /**
+     * Gets the cut order.
+     * Element 0 is the cut that is progressed first (innermost), the last element is the cut that is progressed last
+     * (outermost).
+     *
+     * @return the cut order
+     */
+    public int[] getCutOrder() {
+        return cutOrder;
+    }
+
+    /**
+     * Gets the number of change keys in the system (stepCount ^ cutCount).
+     *
+     * @return the change key count
+     */
+    public long getKeyCount() {
+
+        long keyCount = 1;
+        for (int cut = 0; cut < getCutCount(); cut++)
+            keyCount *= getStepCount();
+
+        return keyCount;
+    }
+
     /**
      * This class builds {@link TotalPositionProgressionCriteria} objects.
      * All objects built by this builder have been validated.
@@ -0,0 +1,126 @@
+package com.eames.masterkey.service.progression.services.totalposition;
+
+import com.eames.masterkey.service.ValidationException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * This class encodes and decodes the stateless cursor tokens used to page through a Total Position Progression
+ * bitting list.
+ *
+ * A token holds the levels of the next page's first change key along with a fingerprint of the criteria it was issued
+ * for, so that a token cannot be replayed against a different system. Tokens are URL-safe Base64 strings.
+ */
+final class TotalPositionProgressionCursor {
+
+    // Initialize the Log4j logger.
+    private static final Logger logger = LogManager.getLogger(TotalPositionProgressionCursor.class);
+
+    // Separates the fingerprint from the levels.
+    private static final char FINGERPRINT_SEPARATOR = ':';
+
+    // Separates the levels.
+    private static final char LEVEL_SEPARATOR = ',';
+
+    /**
+     * Constructor
+     * Prevents instantiation.
+     */
+    private TotalPositionProgressionCursor() {
+    }
+
+    /**
+     * Encodes the cursor token of the given change key rank.
+     *
+     * @param index the {@link TotalPositionProgressionIndex} of the system
+     * @param rank the rank of the next page's first change key
+     * @return the cursor token
+     */
+    static String encode(TotalPositionProgressionIndex index, long rank) {
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(Integer.toHexString(fingerprint(index.getCriteria())));
+        sb.append(FINGERPRINT_SEPARATOR);
+
+        int[] levels = index.getLevels(rank);
+        for (int cut = 0; cut < levels.length; cut++) {
+
+            if (cut > 0)
+                sb.append(LEVEL_SEPARATOR);
+            sb.append(levels[cut]);
+        }
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes the given cursor token into the rank of the change key it points to.
+     *
+     * @param index the {@link TotalPositionProgressionIndex} of the system
+     * @param cursor the cursor token to decode
+     * @return the change key rank
+     * @throws ValidationException if the token is malformed or was issued for a different system
+     */
+    static long decode(TotalPositionProgressionIndex index, String cursor)
+        throws ValidationException {
+
+        try {
+
+            if (cursor == null)
+                throw new IllegalArgumentException("the cursor is missing");
+
+            // Throws: IllegalArgumentException
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+
+            // The token must have been issued for these criteria.
+            int separator = decoded.indexOf(FINGERPRINT_SEPARATOR);
+            if ((separator < 0) || !decoded.substring(0, separator)
+                    .equals(Integer.toHexString(fingerprint(index.getCriteria()))))
+                throw new IllegalArgumentException("the cursor was issued for different criteria");
+
+            // Convert the levels into the group path of the change key and rank it.
+            String[] levelStrings = decoded.substring(separator + 1).split(String.valueOf(LEVEL_SEPARATOR));
+            int cutCount = index.getCriteria().getCutCount();
+            if (levelStrings.length != cutCount)
+                throw new IllegalArgumentException("the cursor has the wrong number of levels");
+
+            int[] levels = new int[cutCount];
+            for (int cut = 0; cut < cutCount; cut++)
+                // Throws: NumberFormatException
+                levels[cut] = Integer.parseInt(levelStrings[cut]);
+
+            // Throws: IllegalArgumentException
+            return index.getRank(index.generateGroupPath(levels, cutCount));
+
+        } catch (IllegalArgumentException ex) {
+
+            StringBuilder sb = new StringBuilder();
+            sb.append("The cursor is not valid (");
+            sb.append(cursor);
+            sb.append("). Cause: ");
+            sb.append(ex.getMessage());
+            String errorMessage = sb.toString();
+            logger.error(errorMessage);
+
+            throw new ValidationException(errorMessage);
+        }
+    }
+
+    /**
+     * Calculates the fingerprint of the given criteria.
+     *
+     * @param criteria the criteria
+     * @return the fingerprint
+     */
+    private static int fingerprint(TotalPositionProgressionCriteria criteria) {
+
+        return Objects.hash(criteria.getMacs(), criteria.getStartingDepth(), Arrays.hashCode(criteria.getMasterCuts()),
+                Arrays.deepHashCode(criteria.getProgressionSteps()),
+                Arrays.hashCode(criteria.getProgressionSequence()));
+    }
+}
@@ -0,0 +1,653 @@
+package com.eames.masterkey.service.progression.services.totalposition;
+
+import com.eames.masterkey.model.BittingGroup;
+import com.eames.masterkey.model.BittingList;
+import com.eames.masterkey.model.BittingListEntry;
+import com.eames.masterkey.model.BittingNode;
+import com.eames.masterkey.model.KeyBitting;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class provides random access to the keys of a Total Position Progression system without generating the
+ * bitting list.
+ *
+ * The change key at rank N is fully determined by the criteria: N is a mixed-radix number with base stepCount whose
+ * digits, from the least significant, are the levels of the cuts in cut order (cutOrder[0] first). The group path of
+ * a key is the same digits read from the most significant. Every operation runs in O(cutCount).
+ *
+ * The reverse direction is answered with per-cut depth to row lookup tables: every depth appears at most once in a
+ * cut's progression steps and never matches the cut's master depth, so each depth of a key identifies a unique row
+ * (or the master).
+ */
+public class TotalPositionProgressionIndex {
+
+    // The criteria the index was built from.
+    private final TotalPositionProgressionCriteria criteria;
+
+    // The master cuts come from the criteria.
+    private final int[] masterCuts;
+
+    // The progression steps come from the criteria.
+    private final int[][] progressionSteps;
+
+    // The cut order comes from the criteria.
+    private final int[] cutOrder;
+
+    // The MACS violation tables are built from the criteria.
+    private final TotalPositionMACSTable macsTable;
+
+    // The cut count comes from the criteria.
+    private final int cutCount;
+
+    // The step count comes from the criteria.
+    private final int stepCount;
+
+    // The number of change keys in a block of each block level (stepCount ^ level) [0, cutCount].
+    private final long[] blockSizes;
+
+    // The row of each depth in each cut, indexed by [cut][depth] (stepCount for the master depth, -1 for none).
+    private final int[][] depthRows;
+
+    // The row that stands for the master depth in the depth rows.
+    private final int masterRow;
+
+    /**
+     * Constructor
+     *
+     * @param criteria the {@link TotalPositionProgressionCriteria} to index
+     */
+    public TotalPositionProgressionIndex(TotalPositionProgressionCriteria criteria) {
+
+        this.criteria = criteria;
+        masterCuts = criteria.getMasterCuts();
+        progressionSteps = criteria.getProgressionSteps();
+        cutOrder = criteria.getCutOrder();
+        cutCount = criteria.getCutCount();
+        stepCount = criteria.getStepCount();
+
+        // Calculate the block sizes.
+        blockSizes = new long[cutCount + 1];
+        blockSizes[0] = 1;
+        for (int level = 1; level <= cutCount; level++)
+            blockSizes[level] = blockSizes[level - 1] * stepCount;
+
+        // Build the MACS violation tables.
+        macsTable = new TotalPositionMACSTable(criteria);
+
+        // Find the deepest depth.
+        int maxDepth = 0;
+        for (int cut = 0; cut < cutCount; cut++) {
+
+            maxDepth = Integer.max(maxDepth, masterCuts[cut]);
+            for (int[] progressionStepRow : progressionSteps)
+                maxDepth = Integer.max(maxDepth, progressionStepRow[cut]);
+        }
+
+        // Build the depth to row lookup tables.
+        masterRow = stepCount;
+        depthRows = new int[cutCount][maxDepth + 1];
+        for (int cut = 0; cut < cutCount; cut++) {
+
+            for (int depth = 0; depth <= maxDepth; depth++)
+                depthRows[cut][depth] = -1;
+
+            for (int row = 0; row < stepCount; row++) {
+                if (progressionSteps[row][cut] >= 0)
+                    depthRows[cut][progressionSteps[row][cut]] = row;
+            }
+            depthRows[cut][masterCuts[cut]] = masterRow;
+        }
+    }
+
+    /**
+     * Gets the criteria the index was built from.
+     *
+     * @return the criteria
+     */
+    public TotalPositionProgressionCriteria getCriteria() {
+        return criteria;
+    }
+
+    /**
+     * Gets the number of change keys in the system.
+     *
+     * @return the change key count
+     */
+    public long getKeyCount() {
+        return blockSizes[cutCount];
+    }
+
+    /**
+     * Gets the number of change keys in a block with the given block level.
+     *
+     * @param blockLevel the block level [0, cutCount]
+     * @return the number of change keys in the block (stepCount ^ blockLevel)
+     */
+    public long getBlockKeyCount(int blockLevel) {
+        return blockSizes[blockLevel];
+    }
+
+    /**
+     * Gets the step level of every cut of the change key with the given rank.
+     *
+     * @param rank the change key rank [0, keyCount)
+     * @return the levels, indexed by cut
+     * @throws IndexOutOfBoundsException if the rank is out of range
+     */
+    public int[] getLevels(long rank) {
+
+        validateRank(rank);
+
+        int[] levels = new int[cutCount];
+        fillLevels(rank, levels);
+
+        return levels;
+    }
+
+    /**
+     * Gets the group path of the change key with the given rank.
+     * The path has one step index per cut; the last one is the key's index within its group.
+     *
+     * @param rank the change key rank [0, keyCount)
+     * @return the group path
+     * @throws IndexOutOfBoundsException if the rank is out of range
+     */
+    public int[] getGroupPath(long rank) {
+
+        validateRank(rank);
+
+        int[] groupPath = new int[cutCount];
+        long remainder = rank;
+        for (int index = cutCount - 1; index >= 0; index--) {
+
+            groupPath[index] = (int) (remainder % stepCount);
+            remainder /= stepCount;
+        }
+
+        return groupPath;
+    }
+
+    /**
+     * Gets the rank of the change key with the given group path.
+     * A shorter path identifies a group; the rank of the group's first change key is returned.
+     *
+     * @param groupPath the group path [0, cutCount] steps
+     * @return the rank
+     * @throws IllegalArgumentException if the path is too long or contains an invalid step
+     */
+    public long getRank(int[] groupPath) {
+
+        validateGroupPath(groupPath);
+
+        long rank = 0;
+        for (int step : groupPath)
+            rank = (rank * stepCount) + step;
+
+        return rank * blockSizes[cutCount - groupPath.length];
+    }
+
+    /**
+     * Gets the change key with the given rank, along with its group path and MACS status.
+     *
+     * @param rank the change key rank [0, keyCount)
+     * @return the change key entry
+     * @throws IndexOutOfBoundsException if the rank is out of range
+     */
+    public BittingListEntry getChangeKey(long rank) {
+
+        // Throws: IndexOutOfBoundsException
+        int[] levels = getLevels(rank);
+
+        return new BittingListEntry(generateChangeKey(levels), generateGroupPath(levels, cutCount), rank, false);
+    }
+
+    /**
+     * Gets the master key of the group with the given group path, along with its MACS status.
+     * The empty path identifies the root group.
+     *
+     * @param groupPath the group path [0, cutCount) steps
+     * @return the master key entry
+     * @throws IllegalArgumentException if the path is too long or contains an invalid step
+     */
+    public BittingListEntry getMasterKey(int[] groupPath) {
+
+        // A path of cutCount steps leads to a change key.
+        if ((groupPath != null) && (groupPath.length >= cutCount))
+            throw new IllegalArgumentException("The group path leads to a change key, not a group.");
+
+        // Throws: IllegalArgumentException
+        long rank = getRank(groupPath);
+        int[] levels = new int[cutCount];
+        fillLevels(rank, levels);
+
+        int blockLevel = cutCount - groupPath.length - 1;
+        return new BittingListEntry(generateMasterKey(blockLevel, levels), groupPath.clone(), rank, true);
+    }
+
+    /**
+     * Looks up the given key in the system.
+     * The key may be a change key or a group's master key.
+     *
+     * @param key the key cuts to look up
+     * @return the key's entry (with its rank, group path and MACS status), or {@code null} if the key does not belong
+     * to the system
+     */
+    public BittingListEntry lookup(int[] key) {
+
+        // Map the depths to rows.
+        int[] rows = getRows(key);
+        if (rows == null)
+            return null;
+
+        // Count the master cuts at the start of the cut order; they must all be master cuts or none.
+        int masterCount = 0;
+        while ((masterCount < cutCount) && (rows[cutOrder[masterCount]] == masterRow))
+            masterCount++;
+        for (int seq = masterCount; seq < cutCount; seq++) {
+            if (rows[cutOrder[seq]] == masterRow)
+                return null;
+        }
+
+        // The path length leads to the key's group (masters) or the key itself (change keys).
+        int[] groupPath = generateGroupPath(rows, cutCount - masterCount);
+
+        // Throws: IllegalArgumentException (never, the path is valid)
+        long rank = getRank(groupPath);
+
+        KeyBitting keyBitting = new KeyBitting(key.clone());
+        keyBitting.setHasMACSViolation(macsTable.hasViolation(rows));
+
+        return new BittingListEntry(keyBitting, groupPath, rank, masterCount > 0);
+    }
+
+    /**
+     * Gets the rank of the given change key.
+     *
+     * @param key the change key cuts
+     * @return the rank, or -1 if the key is not a change key of the system
+     */
+    public long findRank(int[] key) {
+
+        BittingListEntry entry = lookup(key);
+
+        return ((entry == null) || entry.isMaster()) ? -1 : entry.getRank();
+    }
+
+    /**
+     * Gets the master keys that operate the given key, from the root (top) master down.
+     * A change key is operated by the masters of every group on its path; a master key by its own group's master and
+     * the masters above it.
+     *
+     * @param key the key cuts
+     * @return the master key entries, or {@code null} if the key does not belong to the system
+     */
+    public List<BittingListEntry> getMasterKeys(int[] key) {
+
+        BittingListEntry entry = lookup(key);
+        if (entry == null)
+            return null;
+
+        // Walk the path from the root.
+        int[] groupPath = entry.getGroupPath();
+        int groupCount = entry.isMaster() ? groupPath.length + 1 : groupPath.length;
+        List<BittingListEntry> masters = new ArrayList<>(groupCount);
+        for (int length = 0; length < groupCount; length++)
+            masters.add(getMasterKey(Arrays.copyOf(groupPath, length)));
+
+        return masters;
+    }
+
+    /**
+     * Gets the lowest common master of the given keys: the master of the deepest group that contains both keys.
+     *
+     * @param key1 the first key's cuts
+     * @param key2 the second key's cuts
+     * @return the lowest common master key entry, or {@code null} if either key does not belong to the system
+     */
+    public BittingListEntry getLowestCommonMaster(int[] key1, int[] key2) {
+
+        BittingListEntry entry1 = lookup(key1);
+        BittingListEntry entry2 = lookup(key2);
+        if ((entry1 == null) || (entry2 == null))
+            return null;
+
+        // A master's group contains its own master, but a change key is not a group.
+        int[] groupPath1 = entry1.getGroupPath();
+        int[] groupPath2 = entry2.getGroupPath();
+        int maxLength = Integer.min(entry1.isMaster() ? groupPath1.length : groupPath1.length - 1,
+                entry2.isMaster() ? groupPath2.length : groupPath2.length - 1);
+
+        // Find the common prefix.
+        int length = 0;
+        while ((length < maxLength) && (groupPath1[length] == groupPath2[length]))
+            length++;
+
+        return getMasterKey(Arrays.copyOf(groupPath1, length));
+    }
+
+    /**
+     * Counts the change keys that match the given search pattern.
+     *
+     * @param pattern the search pattern (see {@link #search(String)})
+     * @return the number of matching change keys
+     * @throws IllegalArgumentException if the pattern is not valid
+     */
+    public long countMatches(String pattern) {
+
+        // Throws: IllegalArgumentException
+        int[][] pathRows = getPatternRows(pattern);
+
+        long matchCount = 1;
+        for (int[] rows : pathRows)
+            matchCount *= rows.length;
+
+        return matchCount;
+    }
+
+    /**
+     * Searches the change keys for those that match the given search pattern.
+     *
+     * A pattern holds one character per cut, from the first cut: a digit for a fixed depth ('0' stands for depth 10
+     * when the starting depth is 1) or '?' for any depth. A pattern shorter than the key is a prefix: the cuts it does
+     * not cover match any depth. The change keys of a system are every combination of its progression step rows, one
+     * per column, so each fixed depth pins its column to a single row and the matches are enumerated directly; the
+     * cost is proportional to the number of matches, whatever the size of the system.
+     *
+     * The entries carry the ranks and group paths to find the keys in a flat bitting list ({@code getKey(rank)}), a
+     * stream of entries or a bitting list tree ({@link #search(BittingList, String)}).
+     *
+     * @param pattern the search pattern
+     * @return the matching change key entries, in rank order
+     * @throws IllegalArgumentException if the pattern is not valid
+     */
+    public List<BittingListEntry> search(String pattern) {
+
+        // Throws: IllegalArgumentException
+        int[][] pathRows = getPatternRows(pattern);
+
+        List<BittingListEntry> entries = new ArrayList<>();
+        for (int[] rows : pathRows) {
+            if (rows.length == 0)
+                return entries;
+        }
+
+        // Enumerate the matches like an odometer, the last group path step moving fastest (rank order).
+        int[] indexes = new int[cutCount];
+        int[] groupPath = new int[cutCount];
+        int[] levels = new int[cutCount];
+        for (int index = 0; index < cutCount; index++) {
+
+            groupPath[index] = pathRows[index][0];
+            levels[cutOrder[cutCount - index - 1]] = groupPath[index];
+        }
+
+        for (int index = 0; index >= 0; ) {
+
+            long rank = 0;
+            for (int step : groupPath)
+                rank = (rank * stepCount) + step;
+            entries.add(new BittingListEntry(generateChangeKey(levels), groupPath.clone(), rank, false));
+
+            index = cutCount - 1;
+            while ((index >= 0) && (++indexes[index] == pathRows[index].length))
+                indexes[index--] = 0;
+            for (int reset = Integer.max(index, 0); reset < cutCount; reset++) {
+
+                groupPath[reset] = pathRows[reset][indexes[reset]];
+                levels[cutOrder[cutCount - reset - 1]] = groupPath[reset];
+            }
+        }
+
+        return entries;
+    }
+
+    /**
+     * Searches the given bitting list tree for the change keys that match the given search pattern.
+     * Each match is reached by following its group path from the root, so the list's children arrays must be indexed
+     * by step (a list generated with compacted usable keys is not); the matches that the list does not hold (keys
+     * skipped as unusable, or below the generation's stop depth) are left out.
+     *
+     * @param bittingList the bitting list generated from the index's criteria
+     * @param pattern the search pattern (see {@link #search(String)})
+     * @return the matching change keys held by the list, in rank order
+     * @throws IllegalArgumentException if the pattern is not valid
+     */
+    public List<KeyBitting> search(BittingList bittingList, String pattern) {
+
+        // Throws: IllegalArgumentException
+        List<BittingListEntry> entries = search(pattern);
+
+        List<KeyBitting> keyBittings = new ArrayList<>(entries.size());
+        for (BittingListEntry entry : entries) {
+
+            BittingNode node = bittingList.getRootBittingGroup();
+            for (int step : entry.getGroupPath()) {
+
+                BittingNode[] groups = (node instanceof BittingGroup) ? ((BittingGroup) node).getGroups() : null;
+                node = ((groups != null) && (step < groups.length)) ? groups[step] : null;
+            }
+
+            if (node instanceof KeyBitting)
+                keyBittings.add((KeyBitting) node);
+        }
+
+        return keyBittings;
+    }
+
+    /*
+     * Package operations
+     */
+
+    /**
+     * Fills the given levels with the levels of the change key with the given rank.
+     *
+     * @param rank the change key rank [0, keyCount)
+     * @param levels the levels to fill
+     */
+    void fillLevels(long rank, int[] levels) {
+
+        // Each digit of the rank is the level of the cut at that position in the cut order.
+        long remainder = rank;
+        for (int seq = 0; seq < cutCount; seq++) {
+
+            levels[cutOrder[seq]] = (int) (remainder % stepCount);
+            remainder /= stepCount;
+        }
+    }
+
+    /**
+     * Generates the group path of the given length for the given levels.
+     *
+     * @param levels the levels to use
+     * @param length the path length [0, cutCount]
+     * @return the newly generated group path
+     */
+    int[] generateGroupPath(int[] levels, int length) {
+
+        int[] groupPath = new int[length];
+        for (int index = 0; index < length; index++)
+            groupPath[index] = levels[cutOrder[cutCount - index - 1]];
+
+        return groupPath;
+    }
+
+    /**
+     * Generates a master key {@link KeyBitting} for the given level.
+     *
+     * @param blockLevel the level for which to generate the master key
+     * @param levels the levels to use
+     * @return the newly generated key
+     */
+    KeyBitting generateMasterKey(int blockLevel, int[] levels) {
+
+        // Generate the key depths and rows for those cuts that come from the master.
+        int[] depths = new int[cutCount];
+        int[] rows = new int[cutCount];
+        for (int seq = 0; seq <= blockLevel; seq++) {
+
+            depths[cutOrder[seq]] = masterCuts[cutOrder[seq]];
+            rows[cutOrder[seq]] = masterRow;
+        }
+
+        // Generate the key depths and rows for those cuts that come from the progression steps.
+        for (int seq = blockLevel + 1; seq < cutCount; seq++) {
+
+            depths[cutOrder[seq]] = progressionSteps[levels[cutOrder[seq]]][cutOrder[seq]];
+            rows[cutOrder[seq]] = levels[cutOrder[seq]];
+        }
+
+        // Instantiate the key, look up its MACS violation, and return it.
+        KeyBitting keyBitting = new KeyBitting(depths);
+        keyBitting.setHasMACSViolation(macsTable.hasViolation(rows));
+
+        return keyBitting;
+    }
+
+    /**
+     * Generates a change key {@link KeyBitting} for the given levels.
+     *
+     * @param levels the levels to use
+     * @return the newly generated change key
+     */
+    KeyBitting generateChangeKey(int[] levels) {
+
+        // Generate the key depths.
+        int[] depths = new int[cutCount];
+        for (int cut = 0; cut < cutCount; cut++)
+            depths[cut] = progressionSteps[levels[cut]][cut];
+
+        // Instantiate the key, look up its MACS violation (the levels are the rows), and return it.
+        KeyBitting keyBitting = new KeyBitting(depths);
+        keyBitting.setHasMACSViolation(macsTable.hasViolation(levels));
+
+        return keyBitting;
+    }
+
+    /*
+     * Local operations
+     */
+
+    /**
+     * Maps the given key's depths to progression step rows.
+     *
+     * @param key the key cuts
+     * @return the rows, indexed by cut (the master row for master depths), or {@code null} if a depth does not
+     * belong to its cut
+     */
+    private int[] getRows(int[] key) {
+
+        if ((key == null) || (key.length != cutCount))
+            return null;
+
+        int[] rows = new int[cutCount];
+        for (int cut = 0; cut < cutCount; cut++) {
+
+            int depth = key[cut];
+            if ((depth < 0) || (depth >= depthRows[cut].length) || (depthRows[cut][depth] < 0))
+                return null;
+
+            rows[cut] = depthRows[cut][depth];
+        }
+
+        return rows;
+    }
+
+    /**
+     * Maps the given search pattern to the rows each group path step may take.
+     *
+     * @param pattern the search pattern
+     * @return the matching rows, in ascending order, indexed by group path step (empty if a fixed depth is not one of
+     * its column's progression steps)
+     * @throws IllegalArgumentException if the pattern is missing, too long or contains an invalid character
+     */
+    private int[][] getPatternRows(String pattern) {
+
+        if ((pattern == null) || (pattern.length() > cutCount))
+            throw new IllegalArgumentException("The search pattern is missing or longer than the key.");
+
+        int[] allRows = new int[stepCount];
+        for (int row = 0; row < stepCount; row++)
+            allRows[row] = row;
+
+        int[][] pathRows = new int[cutCount][];
+        for (int index = 0; index < cutCount; index++) {
+
+            int cut = cutOrder[cutCount - index - 1];
+            char character = (cut < pattern.length()) ? pattern.charAt(cut) : '?';
+
+            if (character == '?') {
+
+                pathRows[index] = allRows;
+
+            } else if ((character >= '0') && (character <= '9')) {
+
+                // (If the depth is '0' and the starting depth is '1', then this depth is actually a '10'.)
+                int depth = character - '0';
+                if ((depth == 0) && (criteria.getStartingDepth() == 1))
+                    depth = 10;
+
+                // The master depth is never a change key's depth.
+                int row = (depth < depthRows[cut].length) ? depthRows[cut][depth] : -1;
+                pathRows[index] = ((row >= 0) && (row != masterRow)) ? new int[]{row} : new int[0];
+
+            } else {
+
+                StringBuilder sb = new StringBuilder();
+                sb.append("The search pattern contains an invalid character ('");
+                sb.append(character);
+                sb.append("'). Use a digit or '?'.");
+                throw new IllegalArgumentException(sb.toString());
+            }
+        }
+
+        return pathRows;
+    }
+
+    /**
+     * Validates the given rank.
+     *
+     * @param rank the rank to validate
+     * @throws IndexOutOfBoundsException if the rank is out of range
+     */
+    private void validateRank(long rank) {
+
+        if ((rank < 0) || (rank >= getKeyCount())) {
+
+            StringBuilder sb = new StringBuilder();
+            sb.append("The rank is out of range (");
+            sb.append(rank);
+            sb.append(") [0, ");
+            sb.append(getKeyCount());
+            sb.append(").");
+            throw new IndexOutOfBoundsException(sb.toString());
+        }
+    }
+
+    /**
+     * Validates the given group path.
+     *
+     * @param groupPath the group path to validate
+     * @throws IllegalArgumentException if the path is missing, too long or contains an invalid step
+     */
+    private void validateGroupPath(int[] groupPath) {
+
+        if ((groupPath == null) || (groupPath.length > cutCount))
+            throw new IllegalArgumentException("The group path is missing or too long.");
+
+        for (int step : groupPath) {
+            if ((step < 0) || (step >= stepCount)) {
+
+                StringBuilder sb = new StringBuilder();
+                sb.append("The group path contains an invalid step (");
+                sb.append(step);
+                sb.append(") [0, ");
+                sb.append(stepCount);
+                sb.append(").");
+                throw new IllegalArgumentException(sb.toString());
+            }
+        }
+    }
+}
@@ -1,14 +1,28 @@
 package com.eames.masterkey.service.progression.services.totalposition;
 
 import com.eames.masterkey.model.BittingGroup;
+import com.eames.masterkey.model.BittingGroupStats;
 import com.eames.masterkey.model.BittingList;
+import com.eames.masterkey.model.BittingListEntry;
+import com.eames.masterkey.model.BittingListPage;
 import com.eames.masterkey.model.BittingNode;
+import com.eames.masterkey.model.FlatBittingList;
 import com.eames.masterkey.model.KeyBitting;
+import com.eames.masterkey.service.ValidationException;
 import com.eames.masterkey.service.progression.ProgressionServiceException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * This class is responsible for generating a bitting list using the Total Position Progression
@@ -37,6 +51,27 @@ public class TotalPositionProgressionService {
     // The cut order is generated from the progression sequence.
     private int[] cutOrder;
 
+    // The criteria passed to the constructor.
+    private TotalPositionProgressionCriteria criteria;
+
+    // The MACS violation tables are built from the criteria.
+    private TotalPositionMACSTable macsTable;
+
+    // The usable key counter is built from the criteria.
+    private TotalPositionMACSCounter macsCounter;
+
+    // Whether the generated bitting list holds the usable (non-violating) change keys only.
+    private boolean usableKeysOnly = false;
+
+    // Whether the skipped (violating) nodes are left as nulls in the children arrays instead of being removed.
+    private boolean usableKeysInPlace = false;
+
+    // The block level at which the progression stops (0 to progress down to the change keys).
+    private int stopBlockLevel = 0;
+
+    // Whether the generated groups get the aggregate statistics of their change keys.
+    private boolean groupStats = false;
+
     /**
      * Constructor
      *
@@ -47,6 +82,8 @@ public class TotalPositionProgressionService {
         // Convert the criteria into the parts needed to generate the bitting list.
         if (criteria != null) {
 
+            this.criteria = criteria;
+
             /*
              * No need to validate the criteria because they use a builder that guarantees
              * that all criteria it generates are valid.
@@ -77,20 +114,13 @@ public class TotalPositionProgressionService {
             cutCount = progressionSequence.length;
             logger.debug("The cut count: {}.", cutCount);
 
-            /*
-             * Generate the cut order array from the progression sequence.
-             * The cut order array determines the order in which the progression steps are applied during the progression
-             * process.
-             *
-             * e.g.:
-             *  [1, 2, 3, 4, 5] becomes [0, 1, 2, 3, 4]
-             *  [5, 4, 3, 2, 1] becomes [4, 3, 2, 1, 0]
-             *  [3, 5, 2, 1, 4] becomes [3, 2, 0, 4, 1]
-             */
-            cutOrder = new int[cutCount];
-            for (int cut = 0; cut < cutCount; cut++)
-                cutOrder[progressionSequence[cut] - 1] = cut;
+            // Get the cut order generated from the progression sequence.
+            cutOrder = criteria.getCutOrder();
             logger.debug("The cut order: {}.", Arrays.toString(cutOrder));
+
+            // Build the MACS violation tables.
+            macsTable = new TotalPositionMACSTable(criteria);
+            macsCounter = new TotalPositionMACSCounter(criteria);
         }
 
         // There are no criteria, so log an error
@@ -98,6 +128,117 @@ public class TotalPositionProgressionService {
             logger.error("No criteria were passed to the constructor.");
     }
 
+    /**
+     * Gets the 'usable keys only' flag.
+     *
+     * @return {@code True} if the generated bitting lists hold the usable change keys only, {@code false} if they hold
+     * every change key
+     */
+    public boolean getUsableKeysOnly() {
+        return usableKeysOnly;
+    }
+
+    /**
+     * Sets the 'usable keys only' flag.
+     * When set, the bitting lists generated by {@link #generateBittingList()} and
+     * {@link #generateBittingList(ForkJoinPool, int, int)} hold the usable change keys only: the change keys that
+     * violate the MACS and the groups whose change keys all violate the MACS are left out (such groups are not
+     * progressed at all). The children arrays hold the remaining nodes in step order, with no gaps, so a node's
+     * position in its array is no longer its step index; {@link TotalPositionUsableKeyIndex} maps the positions back to
+     * ranks and group paths. Group masters are kept even when they violate the MACS.
+     *
+     * @param usableKeysOnly the new 'usable keys only' flag
+     */
+    public void setUsableKeysOnly(boolean usableKeysOnly) {
+        this.usableKeysOnly = usableKeysOnly;
+    }
+
+    /**
+     * Gets the 'usable keys in place' flag.
+     *
+     * @return {@code True} if the generated bitting lists hold the usable change keys only, at their step positions,
+     * {@code false} if not
+     */
+    boolean getUsableKeysInPlace() {
+        return usableKeysInPlace;
+    }
+
+    /**
+     * Sets the 'usable keys in place' flag.
+     * When set, the generated bitting lists hold the usable change keys only (as with {@link #setUsableKeysOnly}), but
+     * the skipped nodes are left as {@code null} in the children arrays, so the remaining nodes keep their step
+     * positions (see {@link BittingGroup#getGroups()}). The mode is meant for the package's tools that address the
+     * nodes by step (e.g. {@link TotalPositionExpander}); it is ignored when 'usable keys only' is set.
+     *
+     * @param usableKeysInPlace the new 'usable keys in place' flag
+     */
+    void setUsableKeysInPlace(boolean usableKeysInPlace) {
+        this.usableKeysInPlace = usableKeysInPlace;
+    }
+
+    /**
+     * Gets the 'group statistics' flag.
+     *
+     * @return {@code True} if the generated groups get the statistics of their change keys, {@code false} if not
+     */
+    public boolean getGroupStats() {
+        return groupStats;
+    }
+
+    /**
+     * Sets the 'group statistics' flag.
+     * When set, the tree generators attach to every group they progress the aggregate statistics of its change keys
+     * ({@link BittingGroup#getStats()}), computed bottom-up as the groups are filled out. They cover the change keys
+     * the group holds, so the keys a 'usable keys only' list leaves out are not counted. A group whose children are
+     * not generated (see {@link #setStopBlockLevel(int)}) gets the statistics of every change key of its block,
+     * computed from the MACS tables. The chain of masters above a group generated by
+     * {@link #generateBittingList(int[])} gets none.
+     *
+     * @param groupStats the new 'group statistics' flag
+     */
+    public void setGroupStats(boolean groupStats) {
+        this.groupStats = groupStats;
+    }
+
+    /**
+     * Gets the stop block level.
+     *
+     * @return the block level at which the progression stops (0 if it progresses down to the change keys)
+     */
+    public int getStopBlockLevel() {
+        return stopBlockLevel;
+    }
+
+    /**
+     * Sets the stop block level.
+     * The tree generators ({@link #generateBittingList()} and its variants) do not progress the groups of the given
+     * block level and below: those groups hold their master and their key count ({@link BittingGroup#getKeyCount()})
+     * but no children. The key count is that of the usable change keys when the violations are skipped (see
+     * {@link #setUsableKeysOnly(boolean)}). Stopping at block level 1 leaves out the change keys only; stopping at
+     * cutCount leaves only the root master.
+     *
+     * @param stopBlockLevel the block level at which to stop [0, cutCount] (0 to progress down to the change keys)
+     * @throws ProgressionServiceException if the block level is out of range
+     */
+    public void setStopBlockLevel(int stopBlockLevel)
+        throws ProgressionServiceException {
+
+        if ((stopBlockLevel < 0) || (stopBlockLevel > cutCount)) {
+
+            StringBuilder sb = new StringBuilder();
+            sb.append("The stop block level is out of range (");
+            sb.append(stopBlockLevel);
+            sb.append(") [0, ");
+            sb.append(cutCount);
+            sb.append("].");
+            String errorMessage = sb.toString();
+            logger.error(errorMessage);
+            throw new ProgressionServiceException(errorMessage);
+        }
+
+        this.stopBlockLevel = stopBlockLevel;
+    }
+
     /**
      * Generates a bitting list using the Total Position Progression technique.
      *
@@ -126,6 +267,397 @@ public class TotalPositionProgressionService {
         return bittingList;
     }
 
+    /**
+     * Generates the part of the bitting list that holds the group with the given group path.
+     * Only that group's subtree and the chain of masters above it are generated: every group on the path holds
+     * {@code null} in place of its other children. Each level of path depth divides the cost by the step count.
+     *
+     * @param groupPath the step indices that lead from the root bitting group to the group (at most cutCount - 1)
+     * @return the newly generated {@link BittingList}
+     * @throws ProgressionServiceException if the group path is not valid or any other error occurs
+     */
+    public BittingList generateBittingList(int[] groupPath)
+        throws ProgressionServiceException {
+
+        // Validate that the criteria have been loaded.
+        if (cutOrder == null) {
+
+            final String errorMessage = "Could not generate the bitting list; no progression criteria.";
+            logger.error(errorMessage);
+            throw new ProgressionServiceException(errorMessage);
+        }
+
+        // Validate the group path.
+        boolean validGroupPath = (groupPath != null) && (groupPath.length < cutCount);
+        for (int depth = 0; validGroupPath && (depth < groupPath.length); depth++)
+            validGroupPath = (groupPath[depth] >= 0) && (groupPath[depth] < stepCount);
+        if (!validGroupPath) {
+
+            StringBuilder sb = new StringBuilder();
+            sb.append("Could not generate the bitting list; invalid group path (");
+            sb.append(Arrays.toString(groupPath));
+            sb.append("). It must hold at most ");
+            sb.append(cutCount - 1);
+            sb.append(" step indices in [0, ");
+            sb.append(stepCount);
+            sb.append(").");
+            String errorMessage = sb.toString();
+            logger.error(errorMessage);
+            throw new ProgressionServiceException(errorMessage);
+        }
+
+        // Instantiate the root bitting group; every cut of its master is on the master row.
+        int[] rows = new int[cutCount];
+        Arrays.fill(rows, macsTable.getMasterRow());
+        int violationMask = macsTable.getViolationMask(rows);
+        BittingGroup rootBittingGroup = new BittingGroup();
+        rootBittingGroup.setMaster(createKeyBitting(masterCuts.clone(), violationMask));
+
+        // Generate the chain of groups down the path, each with its master only.
+        BittingGroup bittingGroup = rootBittingGroup;
+        int blockLevel = cutCount;
+        for (int step : groupPath) {
+
+            // The cut that changes at this level, and the master the child is copied from.
+            blockLevel--;
+            int cut = cutOrder[blockLevel];
+            int[] depths = bittingGroup.getMaster().getKey().clone();
+            depths[cut] = progressionSteps[step][cut];
+            rows[cut] = step;
+            violationMask = macsTable.updateViolationMask(violationMask, rows, cut);
+
+            // Create the child and set it into its step position.
+            BittingGroup childBittingGroup = new BittingGroup();
+            childBittingGroup.setMaster(createKeyBitting(depths, violationMask));
+            BittingNode[] bittingNodes = new BittingGroup[stepCount];
+            bittingNodes[step] = childBittingGroup;
+            bittingGroup.setGroups(bittingNodes);
+
+            bittingGroup = childBittingGroup;
+        }
+
+        // Progress the group's subtree.
+        progressBlock(blockLevel, rows, bittingGroup, violationMask);
+
+        // The bitting list to construct and return.
+        BittingList bittingList = new BittingList();
+        bittingList.setRootBittingGroup(rootBittingGroup);
+
+        // Return the bitting list.
+        return bittingList;
+    }
+
+    /**
+     * Generates a bitting list using the Total Position Progression technique, progressing the blocks in parallel.
+     * The top blocks are split into {@link ForkJoinPool} tasks, one per step, down to the given split depth. Blocks
+     * that are below the split depth or that hold fewer change keys than the sequential threshold are progressed
+     * sequentially. The generated bitting list is identical to the one generated by {@link #generateBittingList()}.
+     *
+     * @param pool the fork/join pool in which to run the tasks
+     * @param splitDepth the number of block levels (from the top) that are split into parallel tasks [0, cutCount)
+     * @param sequentialThreshold the minimum number of change keys a block must hold to be split (at least 1)
+     * @return the newly generated {@link BittingList}
+     * @throws ProgressionServiceException if any error occurs
+     */
+    public BittingList generateBittingList(ForkJoinPool pool, int splitDepth, int sequentialThreshold)
+        throws ProgressionServiceException {
+
+        // Validate that the criteria have been loaded.
+        if (cutOrder == null) {
+
+            final String errorMessage = "Could not generate the bitting list; no progression criteria.";
+            logger.error(errorMessage);
+            throw new ProgressionServiceException(errorMessage);
+        }
+
+        // Validate the parallelism settings.
+        if ((pool == null) || (splitDepth < 0) || (sequentialThreshold < 1)) {
+
+            StringBuilder sb = new StringBuilder();
+            sb.append("Could not generate the bitting list; invalid parallelism settings (pool=");
+            sb.append(pool);
+            sb.append(", splitDepth=");
+            sb.append(splitDepth);
+            sb.append(", sequentialThreshold=");
+            sb.append(sequentialThreshold);
+            sb.append(").");
+            String errorMessage = sb.toString();
+            logger.error(errorMessage);
+            throw new ProgressionServiceException(errorMessage);
+        }
+
+        // Instantiate the root bitting group; every cut of its master is on the master row.
+        int[] rows = new int[cutCount];
+        Arrays.fill(rows, macsTable.getMasterRow());
+        int violationMask = macsTable.getViolationMask(rows);
+        BittingGroup rootBittingGroup = new BittingGroup();
+        rootBittingGroup.setMaster(createKeyBitting(masterCuts.clone(), violationMask));
+
+        // Progress the system from the root block in the pool.
+        pool.invoke(new ProgressBlockTask(cutCount, rows, rootBittingGroup, violationMask, splitDepth,
+                sequentialThreshold));
+
+        // The bitting list to construct and return.
+        BittingList bittingList = new BittingList();
+        bittingList.setRootBittingGroup(rootBittingGroup);
+
+        // Return the bitting list.
+        return bittingList;
+    }
+
+    /**
+     * Generates a bitting list using the Total Position Progression technique and stores it in flat primitive arrays.
+     * The keys are generated by an odometer over the levels; no {@link BittingGroup} or {@link KeyBitting} objects
+     * are created.
+     *
+     * @return the newly generated {@link FlatBittingList}
+     * @throws ProgressionServiceException if any error occurs
+     */
+    public FlatBittingList generateFlatBittingList()
+        throws ProgressionServiceException {
+
+        // Validate that the criteria have been loaded.
+        if (criteria == null) {
+
+            final String errorMessage = "Could not generate the flat bitting list; no progression criteria.";
+            logger.error(errorMessage);
+            throw new ProgressionServiceException(errorMessage);
+        }
+
+        // Allocate the flat bitting list.
+        FlatBittingList bittingList;
+        try {
+
+            // Throws: IllegalArgumentException
+            bittingList = new FlatBittingList(cutCount, stepCount);
+
+        } catch (IllegalArgumentException ex) {
+
+            StringBuilder sb = new StringBuilder();
+            sb.append("Could not generate the flat bitting list. Cause: ");
+            sb.append(ex.getMessage());
+            String errorMessage = sb.toString();
+            logger.error(errorMessage);
+
+            throw new ProgressionServiceException(errorMessage);
+        }
+
+        // Holds the current step level for each cut (initializes each to 0).
+        int[] levels = new int[cutCount];
+
+        // Holds the index of the next group at each depth.
+        int[] groupIndexes = new int[cutCount];
+
+        // The current key depths, rows and MACS violation mask for each block level, offset by one: entry 0 holds the
+        // change key and entry blockLevel + 1 the master key of the current group at that block level. Each entry is
+        // derived from the one above it by changing a single cut.
+        int[][] depths = new int[cutCount + 1][];
+        int[][] rows = new int[cutCount + 1][];
+        int[] violationMasks = new int[cutCount + 1];
+        depths[cutCount] = masterCuts.clone();
+        rows[cutCount] = new int[cutCount];
+        Arrays.fill(rows[cutCount], macsTable.getMasterRow());
+        violationMasks[cutCount] = macsTable.getViolationMask(rows[cutCount]);
+        for (int entry = 0; entry < cutCount; entry++) {
+
+            depths[entry] = new int[cutCount];
+            rows[entry] = new int[cutCount];
+        }
+
+        // Every group starts at the first rank.
+        int startingBlocks = cutCount;
+
+        int keyCount = bittingList.getKeyCount();
+        for (int rank = 0; rank < keyCount; rank++) {
+
+            // Store the master keys of the groups that start at this rank (outermost first).
+            for (int blockLevel = startingBlocks - 1; blockLevel >= 0; blockLevel--) {
+
+                // The root master is the system's master; every other master comes from its parent's.
+                if (blockLevel < cutCount - 1)
+                    deriveKeyDepths(depths, rows, violationMasks, blockLevel + 1, cutOrder[blockLevel + 1], levels);
+
+                int depth = cutCount - blockLevel - 1;
+                int masterIndex = bittingList.getMasterIndex(depth, groupIndexes[depth]++);
+
+                bittingList.setMaster(masterIndex, depths[blockLevel + 1]);
+                bittingList.setMasterHasMACSViolation(masterIndex, violationMasks[blockLevel + 1] != 0);
+            }
+
+            // Store the change key, which comes from the key group's master or, within the key group, its predecessor.
+            if (startingBlocks > 0)
+                deriveKeyDepths(depths, rows, violationMasks, 0, cutOrder[0], levels);
+            else
+                updateKeyDepths(depths, rows, violationMasks, 0, cutOrder[0], levels);
+
+            bittingList.setKey(rank, depths[0]);
+            bittingList.setHasMACSViolation(rank, violationMasks[0] != 0);
+
+            // Bump the innermost cut's level and carry into the outer cuts.
+            int seq = 0;
+            while ((seq < cutCount) && (++levels[cutOrder[seq]] == stepCount)) {
+
+                levels[cutOrder[seq]] = 0;
+                seq++;
+            }
+
+            // Every block that was carried out of starts a new group.
+            startingBlocks = seq;
+        }
+
+        // Return the bitting list.
+        return bittingList;
+    }
+
+    /**
+     * Creates a {@link Spliterator} that streams the bitting list's keys without building the bitting list.
+     * The keys are streamed in the same order as a depth-first walk of the list built by
+     * {@link #generateBittingList()}: each group's master key comes just before the group's first change key.
+     *
+     * @param includeMasters {@code True} to stream the master keys along with the change keys, {@code false} to
+     *        stream the change keys only
+     * @return the newly created spliterator
+     * @throws ProgressionServiceException if any error occurs
+     */
+    public Spliterator<BittingListEntry> spliterator(boolean includeMasters)
+        throws ProgressionServiceException {
+
+        // Validate that the criteria have been loaded.
+        if (criteria == null) {
+
+            final String errorMessage = "Could not stream the bitting list; no progression criteria.";
+            logger.error(errorMessage);
+            throw new ProgressionServiceException(errorMessage);
+        }
+
+        return new TotalPositionProgressionSpliterator(criteria, includeMasters, 0, criteria.getKeyCount());
+    }
+
+    /**
+     * Creates an {@link Iterator} over the bitting list's keys without building the bitting list.
+     *
+     * @param includeMasters {@code True} to iterate over the master keys along with the change keys, {@code false} to
+     *        iterate over the change keys only
+     * @return the newly created iterator
+     * @throws ProgressionServiceException if any error occurs
+     * @see #spliterator(boolean)
+     */
+    public Iterator<BittingListEntry> iterator(boolean includeMasters)
+        throws ProgressionServiceException {
+
+        // Throws: ProgressionServiceException
+        return Spliterators.iterator(spliterator(includeMasters));
+    }
+
+    /**
+     * Creates a {@link Stream} of the bitting list's keys without building the bitting list.
+     *
+     * @param includeMasters {@code True} to stream the master keys along with the change keys, {@code false} to
+     *        stream the change keys only
+     * @param parallel {@code True} for a parallel stream, {@code false} for a sequential stream
+     * @return the newly created stream
+     * @throws ProgressionServiceException if any error occurs
+     * @see #spliterator(boolean)
+     */
+    public Stream<BittingListEntry> stream(boolean includeMasters, boolean parallel)
+        throws ProgressionServiceException {
+
+        // Throws: ProgressionServiceException
+        return StreamSupport.stream(spliterator(includeMasters), parallel);
+    }
+
+    /**
+     * Generates one page of the bitting list without building the rest of it.
+     * The page holds the change keys with ranks [offset, offset + limit), each preceded by the master keys of the
+     * groups that start with it. Generation seeks straight to the first rank, so its cost depends on the page size
+     * only.
+     *
+     * @param offset the rank of the page's first change key [0, keyCount)
+     * @param limit the maximum number of change keys in the page (at least 1)
+     * @return the newly generated {@link BittingListPage}
+     * @throws ProgressionServiceException if any error occurs
+     */
+    public BittingListPage generateBittingListPage(long offset, int limit)
+        throws ProgressionServiceException {
+
+        // Validate that the criteria have been loaded.
+        if (criteria == null) {
+
+            final String errorMessage = "Could not generate the bitting list page; no progression criteria.";
+            logger.error(errorMessage);
+            throw new ProgressionServiceException(errorMessage);
+        }
+
+        // Validate the page settings.
+        long keyCount = criteria.getKeyCount();
+        if ((offset < 0) || (offset >= keyCount) || (limit < 1)) {
+
+            StringBuilder sb = new StringBuilder();
+            sb.append("Could not generate the bitting list page; invalid page settings (offset=");
+            sb.append(offset);
+            sb.append(", limit=");
+            sb.append(limit);
+            sb.append(") for ");
+            sb.append(keyCount);
+            sb.append(" change keys.");
+            String errorMessage = sb.toString();
+            logger.error(errorMessage);
+            throw new ProgressionServiceException(errorMessage);
+        }
+
+        // Stream the page's entries.
+        long endRank = Long.min(offset + limit, keyCount);
+        List<BittingListEntry> entries = new ArrayList<>();
+        new TotalPositionProgressionSpliterator(criteria, true, offset, endRank).forEachRemaining(entries::add);
+
+        // Point to the next page, if any.
+        if (endRank < keyCount)
+            return new BittingListPage(entries, offset, keyCount, endRank,
+                    TotalPositionProgressionCursor.encode(new TotalPositionProgressionIndex(criteria), endRank));
+        else
+            return new BittingListPage(entries, offset, keyCount, -1, null);
+    }
+
+    /**
+     * Generates the page of the bitting list that the given cursor token points to.
+     *
+     * @param cursor the cursor token returned with the previous page
+     * @param limit the maximum number of change keys in the page (at least 1)
+     * @return the newly generated {@link BittingListPage}
+     * @throws ProgressionServiceException if the cursor is not valid for these criteria or any other error occurs
+     * @see #generateBittingListPage(long, int)
+     */
+    public BittingListPage generateBittingListPage(String cursor, int limit)
+        throws ProgressionServiceException {
+
+        // Validate that the criteria have been loaded.
+        if (criteria == null) {
+
+            final String errorMessage = "Could not generate the bitting list page; no progression criteria.";
+            logger.error(errorMessage);
+            throw new ProgressionServiceException(errorMessage);
+        }
+
+        try {
+
+            // Throws: ValidationException
+            long offset = TotalPositionProgressionCursor.decode(new TotalPositionProgressionIndex(criteria), cursor);
+
+            // Throws: ProgressionServiceException
+            return generateBittingListPage(offset, limit);
+
+        } catch (ValidationException ex) {
+
+            StringBuilder sb = new StringBuilder();
+            sb.append("Could not generate the bitting list page. Cause: ");
+            sb.append(ex.getMessage());
+            String errorMessage = sb.toString();
+            logger.error(errorMessage);
+
+            throw new ProgressionServiceException(errorMessage);
+        }
+    }
+
     /**
      * Starts the progression to generate the bitting list.
      * Creates the bitting list then recursively progresses all levels.
@@ -134,14 +666,15 @@ public class TotalPositionProgressionService {
      */
     private BittingGroup doProgression() {
 
-        // Instantiate the root bitting group
+        // Instantiate the root bitting group; every cut of its master is on the master row.
+        int[] rows = new int[cutCount];
+        Arrays.fill(rows, macsTable.getMasterRow());
+        int violationMask = macsTable.getViolationMask(rows);
         BittingGroup rootBittingGroup = new BittingGroup();
-
-        // Holds the current step level for each cut (initializes each to 0).
-        int[] levels = new int[cutCount];
+        rootBittingGroup.setMaster(createKeyBitting(masterCuts.clone(), violationMask));
 
         // Start progressing at the top-level block.
-        progressBlock(cutCount, levels, rootBittingGroup);
+        progressBlock(cutCount, rows, rootBittingGroup, violationMask);
 
         // Return the filled-out root bitting group.
         return rootBittingGroup;
@@ -149,18 +682,33 @@ public class TotalPositionProgressionService {
 
     /**
      * Progresses the block with the given block level.
+     * Each child key differs from the parent group's master in the block's own cut only, so it is copied from the
+     * master and only the pairs around that cut are looked up in the MACS violation tables.
      *
      * @param blockLevel the block level to progress [1, cutCount])
-     * @param levels the set of block current levels
-     * @param parentBittingGroup the parent {@link BittingGroup} to fill out
+     * @param rows the rows of the parent's master, indexed by cut (restored before returning)
+     * @param parentBittingGroup the parent {@link BittingGroup} to fill out (its master must be set)
+     * @param violationMask the MACS violation mask of the parent's master
      */
-    private void progressBlock(int blockLevel, int[] levels, BittingGroup parentBittingGroup) {
+    private void progressBlock(int blockLevel, int[] rows, BittingGroup parentBittingGroup, int violationMask) {
+
+        // The progression stops here; only count the block's change keys.
+        if (blockLevel <= stopBlockLevel) {
+
+            // A list that skips the violations holds (and counts) the usable change keys only.
+            int[] blockRows = getBlockRows(blockLevel, rows);
+            parentBittingGroup.setKeyCount(isSkippingViolations() ? macsCounter.countUsableKeys(blockRows) :
+                    calculateBlockKeyCount(blockLevel));
+            setBlockStats(blockLevel, blockRows, parentBittingGroup);
+            return;
+        }
 
         // Decrement the block level.
         blockLevel--;
 
-        // Set the parent bitting group's master.
-        parentBittingGroup.setMaster(generateMasterKey(blockLevel, levels));
+        // The cut that changes in this block, and the master the children are copied from.
+        int cut = cutOrder[blockLevel];
+        int[] masterDepths = parentBittingGroup.getMaster().getKey();
 
         // We're still processing groups.
         if (blockLevel > 0) {
@@ -172,15 +720,23 @@ public class TotalPositionProgressionService {
             // Loop through the steps.
             for (int step = 0; step < stepCount; step++) {
 
-                // Set the level.
-                levels[cutOrder[blockLevel]] = step;
+                // Skip the groups whose change keys all violate the MACS.
+                rows[cut] = step;
+                if (isSkippingViolations() && !macsTable.hasUsableKey(blockLevel, rows))
+                    continue;
+
+                // Generate the next level bitting group's master.
+                int[] depths = masterDepths.clone();
+                depths[cut] = progressionSteps[step][cut];
+                int stepViolationMask = macsTable.updateViolationMask(violationMask, rows, cut);
 
                 // Create the next level bitting group and set it into the bitting node array.
                 BittingGroup bittingGroup = new BittingGroup();
+                bittingGroup.setMaster(createKeyBitting(depths, stepViolationMask));
                 bittingNodes[step] = bittingGroup;
 
                 // Process the next level down.
-                progressBlock(blockLevel, levels, bittingGroup);
+                progressBlock(blockLevel, rows, bittingGroup, stepViolationMask);
             }
         }
 
@@ -194,51 +750,284 @@ public class TotalPositionProgressionService {
             // Loop through the steps.
             for (int step = 0; step < stepCount; step++) {
 
-                // Set the level.
-                levels[cutOrder[blockLevel]] = step;
+                // Skip the change keys that violate the MACS.
+                rows[cut] = step;
+                int stepViolationMask = macsTable.updateViolationMask(violationMask, rows, cut);
+                if (isSkippingViolations() && (stepViolationMask != 0))
+                    continue;
 
-                KeyBitting keyBitting = generateChangeKey(levels);
-                bittingNodes[step] = keyBitting;
+                int[] depths = masterDepths.clone();
+                depths[cut] = progressionSteps[step][cut];
+                bittingNodes[step] = createKeyBitting(depths, stepViolationMask);
             }
         }
+
+        // Drop the skipped nodes, then sum up the children.
+        compactGroups(parentBittingGroup);
+        if (groupStats)
+            parentBittingGroup.setStats(BittingGroupStats.aggregate(parentBittingGroup.getGroups()));
+
+        // Restore the master row.
+        rows[cut] = macsTable.getMasterRow();
+    }
+
+    /**
+     * Sets the statistics of a group whose children are not generated from the MACS tables, when they are requested.
+     * Like the statistics of a progressed group, they cover the change keys the group would hold: the usable ones only
+     * when the violations are skipped.
+     *
+     * @param blockLevel the group's block level [0, cutCount]
+     * @param blockRows the rows of the group's change keys, indexed by cut (see {@link #getBlockRows(int, int[])})
+     * @param bittingGroup the {@link BittingGroup} to set the statistics of
+     */
+    private void setBlockStats(int blockLevel, int[] blockRows, BittingGroup bittingGroup) {
+
+        if (!groupStats)
+            return;
+
+        long usableKeyCount = macsCounter.countUsableKeys(blockRows);
+        if (!isSkippingViolations()) {
+
+            bittingGroup.setStats(new BittingGroupStats(calculateBlockKeyCount(blockLevel), usableKeyCount,
+                    macsTable.getMaxDifference(blockRows)));
+            return;
+        }
+
+        // The largest difference of the usable keys is the smallest MACS that every one of them still meets.
+        int maxDifference = -1;
+        if (usableKeyCount > 0) {
+
+            int low = 0;
+            int high = Integer.min(criteria.getMacs(), macsTable.getMaxDifference(blockRows));
+            while (low < high) {
+
+                int middle = (low + high) / 2;
+                if (macsCounter.countUsableKeys(blockRows, middle) == usableKeyCount)
+                    high = middle;
+                else
+                    low = middle + 1;
+            }
+            maxDifference = low;
+        }
+
+        bittingGroup.setStats(new BittingGroupStats(usableKeyCount, usableKeyCount, maxDifference));
+    }
+
+    /**
+     * Gets the rows of the change keys of a group whose children are not generated.
+     *
+     * @param blockLevel the group's block level [0, cutCount]
+     * @param rows the rows of the group's master, indexed by cut
+     * @return the rows, indexed by cut ({@link TotalPositionMACSTable#FREE_ROW} for the block's own cuts)
+     */
+    private int[] getBlockRows(int blockLevel, int[] rows) {
+
+        // The block's own cuts may take any step row.
+        int[] blockRows = rows.clone();
+        for (int level = 0; level < blockLevel; level++)
+            blockRows[cutOrder[level]] = TotalPositionMACSTable.FREE_ROW;
+
+        return blockRows;
+    }
+
+    /**
+     * Tests whether the progression skips the violating change keys and the groups without a usable key.
+     *
+     * @return {@code True} if violations are skipped, {@code false} if every key is generated
+     */
+    private boolean isSkippingViolations() {
+        return usableKeysOnly || usableKeysInPlace;
+    }
+
+    /**
+     * Removes the skipped ({@code null}) nodes from the given bitting group's children when compacting.
+     *
+     * @param bittingGroup the bitting group whose children to compact
+     */
+    private void compactGroups(BittingGroup bittingGroup) {
+
+        if (!usableKeysOnly)
+            return;
+
+        BittingNode[] bittingNodes = bittingGroup.getGroups();
+        int count = 0;
+        for (BittingNode bittingNode : bittingNodes) {
+            if (bittingNode != null)
+                bittingNodes[count++] = bittingNode;
+        }
+
+        if (count < bittingNodes.length)
+            bittingGroup.setGroups(Arrays.copyOf(bittingNodes, count));
+    }
+
+    /**
+     * Calculates the number of change keys in a block with the given block level.
+     *
+     * @param blockLevel the block level [0, cutCount]
+     * @return the number of change keys in the block (stepCount ^ blockLevel)
+     */
+    private long calculateBlockKeyCount(int blockLevel) {
+
+        long keyCount = 1;
+        for (int level = 0; level < blockLevel; level++)
+            keyCount *= stepCount;
+
+        return keyCount;
     }
 
     /**
-     * Generates a master key {@link KeyBitting} for the given level.
+     * Derives an entry of the flat generation's key depths from the entry above it, changing the given cut to its
+     * current step level.
      *
-     * @param blockLevel the level for which to generate the master key
-     * @param levels the levels to use
-     * @return the newly generated key
+     * @param depths the key depths for each entry
+     * @param rows the key rows for each entry
+     * @param violationMasks the MACS violation mask for each entry
+     * @param entry the entry to derive
+     * @param cut the cut that changes
+     * @param levels the current levels
      */
-    private KeyBitting generateMasterKey(int blockLevel, int[] levels) {
+    private void deriveKeyDepths(int[][] depths, int[][] rows, int[] violationMasks, int entry, int cut,
+                                 int[] levels) {
 
-        // Generate the key depths for those cuts that come from the progression steps.
-        int[] depths = new int[cutCount];
-        for (int seq = 0; seq <= blockLevel; seq++)
-            depths[cutOrder[seq]] = masterCuts[cutOrder[seq]];
+        System.arraycopy(depths[entry + 1], 0, depths[entry], 0, cutCount);
+        System.arraycopy(rows[entry + 1], 0, rows[entry], 0, cutCount);
+        violationMasks[entry] = violationMasks[entry + 1];
+        updateKeyDepths(depths, rows, violationMasks, entry, cut, levels);
+    }
 
-        // Generate the key depths for those cuts that come from the master.
-        for (int seq = blockLevel + 1; seq < cutCount; seq++)
-            depths[cutOrder[seq]] = progressionSteps[levels[cutOrder[seq]]][cutOrder[seq]];
+    /**
+     * Changes the given cut of an entry of the flat generation's key depths to its current step level and looks up
+     * only the pairs around it.
+     *
+     * @param depths the key depths for each entry
+     * @param rows the key rows for each entry
+     * @param violationMasks the MACS violation mask for each entry
+     * @param entry the entry to update
+     * @param cut the cut that changes
+     * @param levels the current levels
+     */
+    private void updateKeyDepths(int[][] depths, int[][] rows, int[] violationMasks, int entry, int cut,
+                                 int[] levels) {
 
-        // Instantiate the key, test it for a MACS violation, and return it.
-        return new KeyBitting(depths, macs);
+        depths[entry][cut] = progressionSteps[levels[cut]][cut];
+        rows[entry][cut] = levels[cut];
+        violationMasks[entry] = macsTable.updateViolationMask(violationMasks[entry], rows[entry], cut);
     }
 
     /**
-     * Generates a change key {@link KeyBitting} for the given set of levels.
+     * Creates a {@link KeyBitting} whose MACS violation flag comes from the given, already computed, violation mask.
+     * The key's largest adjacent cut difference is computed on demand, the first time the list is re-flagged.
      *
-     * @param levels the levels to use
-     * @return the newly generated change key
+     * @param depths the key depths
+     * @param violationMask the key's MACS violation mask
+     * @return the newly created key
      */
-    private KeyBitting generateChangeKey(int[] levels) {
+    private KeyBitting createKeyBitting(int[] depths, int violationMask) {
+
+        KeyBitting keyBitting = new KeyBitting(depths);
+        keyBitting.setHasMACSViolation(violationMask != 0);
+
+        return keyBitting;
+    }
+
+    /**
+     * This class is a fork/join task that progresses one block.
+     * It splits the block into one sub-task per step until the split depth or the sequential threshold is reached,
+     * then falls back to the sequential {@link #progressBlock(int, int[], BittingGroup, int)}.
+     */
+    private class ProgressBlockTask
+            extends RecursiveAction {
+
+        // The serialization version (RecursiveAction is Serializable).
+        private static final long serialVersionUID = 1L;
+
+        // The block level to progress [1, cutCount].
+        private final int blockLevel;
+
+        // The task's own copy of the rows of the bitting group's master.
+        private final int[] rows;
+
+        // The bitting group to fill out (its master is set).
+        private final BittingGroup bittingGroup;
+
+        // The MACS violation mask of the bitting group's master.
+        private final int violationMask;
 
-        // Generate the key depths.
-        int[] depths = new int[cutCount];
-        for (int cut = 0; cut < cutCount; cut++)
-            depths[cut] = progressionSteps[levels[cut]][cut];
+        // The number of block levels that may still be split.
+        private final int splitDepth;
 
-        // Instantiate the key, test it for a MACS violation, and return it.
-        return new KeyBitting(depths, macs);
+        // The minimum number of change keys a block must hold to be split.
+        private final int sequentialThreshold;
+
+        /**
+         * Constructor
+         *
+         * @param blockLevel the block level to progress [1, cutCount]
+         * @param rows the task's own copy of the rows of the bitting group's master
+         * @param bittingGroup the {@link BittingGroup} to fill out (its master must be set)
+         * @param violationMask the MACS violation mask of the bitting group's master
+         * @param splitDepth the number of block levels that may still be split
+         * @param sequentialThreshold the minimum number of change keys a block must hold to be split
+         */
+        ProgressBlockTask(int blockLevel, int[] rows, BittingGroup bittingGroup, int violationMask, int splitDepth,
+                          int sequentialThreshold) {
+
+            this.blockLevel = blockLevel;
+            this.rows = rows;
+            this.bittingGroup = bittingGroup;
+            this.violationMask = violationMask;
+            this.splitDepth = splitDepth;
+            this.sequentialThreshold = sequentialThreshold;
+        }
+
+        @Override
+        protected void compute() {
+
+            // The block holds the key group, is too deep, is too small to split, or is not progressed at all, so
+            // progress it sequentially.
+            if ((blockLevel <= 1) || (splitDepth <= 0) || (calculateBlockKeyCount(blockLevel) < sequentialThreshold)
+                    || (blockLevel <= stopBlockLevel)) {
+
+                progressBlock(blockLevel, rows, bittingGroup, violationMask);
+                return;
+            }
+
+            // The cut that changes in this block, and the master the children are copied from.
+            int level = blockLevel - 1;
+            int cut = cutOrder[level];
+            int[] masterDepths = bittingGroup.getMaster().getKey();
+
+            // Create the next level bitting group's nodes.
+            BittingNode[] bittingNodes = new BittingGroup[stepCount];
+            bittingGroup.setGroups(bittingNodes);
+
+            // Create one sub-task per step, each with its own rows, bitting group and master.
+            List<ProgressBlockTask> tasks = new ArrayList<>(stepCount);
+            for (int step = 0; step < stepCount; step++) {
+
+                // Skip the groups whose change keys all violate the MACS.
+                int[] stepRows = rows.clone();
+                stepRows[cut] = step;
+                if (isSkippingViolations() && !macsTable.hasUsableKey(level, stepRows))
+                    continue;
+
+                int[] depths = masterDepths.clone();
+                depths[cut] = progressionSteps[step][cut];
+                int stepViolationMask = macsTable.updateViolationMask(violationMask, stepRows, cut);
+
+                BittingGroup stepBittingGroup = new BittingGroup();
+                stepBittingGroup.setMaster(createKeyBitting(depths, stepViolationMask));
+                bittingNodes[step] = stepBittingGroup;
+
+                tasks.add(new ProgressBlockTask(level, stepRows, stepBittingGroup, stepViolationMask, splitDepth - 1,
+                        sequentialThreshold));
+            }
+
+            // Drop the skipped nodes, progress the sub-blocks in parallel, then sum up the children.
+            compactGroups(bittingGroup);
+            invokeAll(tasks);
+            if (groupStats)
+                bittingGroup.setStats(BittingGroupStats.aggregate(bittingGroup.getGroups()));
+        }
     }
 }
@@ -0,0 +1,209 @@
+package com.eames.masterkey.service.progression.services.totalposition;
+
+import com.eames.masterkey.model.BittingListEntry;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * This class streams the keys of a Total Position Progression bitting list without building the bitting list tree.
+ *
+ * Instead of recursing through the blocks, it drives an odometer over the levels array: the innermost cut (cutOrder[0])
+ * is the fastest moving digit and the outermost cut (cutOrder[cutCount - 1]) the slowest. The change key rank is the
+ * mixed-radix number formed by those digits. A group's master key is emitted just before the group's first change key,
+ * so the entries come out in the same order as a depth-first walk of the tree built by
+ * {@link TotalPositionProgressionService#generateBittingList()}.
+ *
+ * Only the current levels are held in memory, so a system of any size can be streamed in constant memory. The
+ * spliterator is SIZED and SUBSIZED; it splits its range of change key ranks in half so that parallel streams work.
+ */
+class TotalPositionProgressionSpliterator
+        implements Spliterator<BittingListEntry> {
+
+    // The index that generates the keys.
+    private final TotalPositionProgressionIndex index;
+
+    // The cut order comes from the criteria.
+    private final int[] cutOrder;
+
+    // The cut count comes from the criteria.
+    private final int cutCount;
+
+    // The step count comes from the criteria.
+    private final int stepCount;
+
+    // Whether the master keys are streamed along with the change keys.
+    private final boolean includeMasters;
+
+    // The rank of the next change key to stream.
+    private long rank;
+
+    // The rank at which to stop streaming (exclusive).
+    private long endRank;
+
+    // Holds the current step level for each cut.
+    private final int[] levels;
+
+    // The block level of the next master key to stream before the current change key (-1 if none).
+    private int masterLevel;
+
+    /**
+     * Constructor
+     *
+     * @param criteria the {@link TotalPositionProgressionCriteria} to use
+     * @param includeMasters {@code True} to stream the master keys along with the change keys, {@code false} to stream
+     *        the change keys only
+     * @param startRank the rank of the first change key to stream (inclusive)
+     * @param endRank the rank of the last change key to stream (exclusive)
+     */
+    TotalPositionProgressionSpliterator(TotalPositionProgressionCriteria criteria, boolean includeMasters,
+                                        long startRank, long endRank) {
+
+        index = new TotalPositionProgressionIndex(criteria);
+        cutOrder = criteria.getCutOrder();
+        cutCount = criteria.getCutCount();
+        stepCount = criteria.getStepCount();
+        this.includeMasters = includeMasters;
+
+        // Position the odometer on the first rank.
+        levels = new int[cutCount];
+        this.endRank = endRank;
+        seek(startRank);
+    }
+
+    /**
+     * Constructor
+     * Constructs a spliterator that covers the prefix of the given spliterator up to the given rank.
+     *
+     * @param other the spliterator to copy
+     * @param endRank the rank at which to stop streaming (exclusive)
+     */
+    private TotalPositionProgressionSpliterator(TotalPositionProgressionSpliterator other, long endRank) {
+
+        index = other.index;
+        cutOrder = other.cutOrder;
+        cutCount = other.cutCount;
+        stepCount = other.stepCount;
+        includeMasters = other.includeMasters;
+
+        rank = other.rank;
+        levels = other.levels.clone();
+        masterLevel = other.masterLevel;
+        this.endRank = endRank;
+    }
+
+    /*
+     * Implemented Spliterator operations
+     */
+
+    @Override
+    public boolean tryAdvance(Consumer<? super BittingListEntry> action) {
+
+        // There are no more keys.
+        if (rank >= endRank)
+            return false;
+
+        // Stream the pending master key.
+        if (masterLevel >= 0) {
+
+            action.accept(new BittingListEntry(index.generateMasterKey(masterLevel, levels),
+                    index.generateGroupPath(levels, cutCount - masterLevel - 1), rank, true));
+            masterLevel--;
+        }
+
+        // Stream the change key and move to the next one.
+        else {
+
+            action.accept(new BittingListEntry(index.generateChangeKey(levels), index.generateGroupPath(levels, cutCount),
+                    rank, false));
+            advance();
+        }
+
+        return true;
+    }
+
+    @Override
+    public Spliterator<BittingListEntry> trySplit() {
+
+        // Too small to split.
+        long remaining = endRank - rank;
+        if (remaining < 2)
+            return null;
+
+        // The prefix keeps the current state; this spliterator moves to the middle.
+        long midRank = rank + (remaining / 2);
+        TotalPositionProgressionSpliterator prefix = new TotalPositionProgressionSpliterator(this, midRank);
+        seek(midRank);
+
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+
+        // There are no more keys.
+        if (rank >= endRank)
+            return 0;
+
+        // Count the change keys.
+        long size = endRank - rank;
+
+        // Count the master keys that are still pending at this rank and those of the groups that start later.
+        if (includeMasters) {
+
+            size += masterLevel + 1;
+            for (int level = 1; level <= cutCount; level++)
+                size += ((endRank - 1) / index.getBlockKeyCount(level)) - (rank / index.getBlockKeyCount(level));
+        }
+
+        return size;
+    }
+
+    @Override
+    public int characteristics() {
+
+        return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+
+    /*
+     * Local operations
+     */
+
+    /**
+     * Positions the odometer on the given rank.
+     *
+     * @param newRank the rank to move to
+     */
+    private void seek(long newRank) {
+
+        rank = newRank;
+
+        // Each digit of the rank is the level of the cut at that position in the cut order.
+        index.fillLevels(newRank, levels);
+
+        // Every group that starts at this rank still needs its master key.
+        int startingBlocks = 0;
+        while ((startingBlocks < cutCount) && (newRank % index.getBlockKeyCount(startingBlocks + 1) == 0))
+            startingBlocks++;
+        masterLevel = includeMasters ? startingBlocks - 1 : -1;
+    }
+
+    /**
+     * Moves the odometer to the next rank.
+     */
+    private void advance() {
+
+        rank++;
+
+        // Bump the innermost cut's level and carry into the outer cuts.
+        int seq = 0;
+        while ((seq < cutCount) && (++levels[cutOrder[seq]] == stepCount)) {
+
+            levels[cutOrder[seq]] = 0;
+            seq++;
+        }
+
+        // Every block that was carried out of starts a new group that needs its master key.
+        masterLevel = includeMasters ? seq - 1 : -1;
+    }
+}
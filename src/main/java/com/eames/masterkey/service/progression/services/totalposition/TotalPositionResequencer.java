@@ -0,0 +1,350 @@
+package com.eames.masterkey.service.progression.services.totalposition;
+
+import com.eames.masterkey.model.BittingGroup;
+import com.eames.masterkey.model.BittingList;
+import com.eames.masterkey.model.BittingNode;
+import com.eames.masterkey.model.FlatBittingList;
+import com.eames.masterkey.model.KeyBitting;
+import com.eames.masterkey.service.ValidationException;
+
+import java.util.Arrays;
+
+/**
+ * This class regroups an already generated Total Position Progression bitting list under a new progression sequence.
+ *
+ * The progression sequence does not change the set of change keys or their MACS status, only the way they are grouped.
+ * A change key is identified by the step row of each of its cuts, and its rank is those rows read as a mixed-radix
+ * number in cut order; a new sequence just reorders the digits. So the existing change keys are moved to their new
+ * ranks as they are (same objects, or same bytes in a flat list, and no MACS checks), and only the master keys, which
+ * do depend on the sequence, are generated again.
+ */
+public class TotalPositionResequencer {
+
+    // The criteria the bitting lists were generated with.
+    private final TotalPositionProgressionCriteria criteria;
+
+    // The cut order comes from the criteria.
+    private final int[] cutOrder;
+
+    // The cut count comes from the criteria.
+    private final int cutCount;
+
+    // The step count comes from the criteria.
+    private final int stepCount;
+
+    // The number of change keys comes from the criteria.
+    private final int keyCount;
+
+    /**
+     * Constructor
+     *
+     * @param criteria the {@link TotalPositionProgressionCriteria} the bitting lists were generated with
+     * @throws IllegalArgumentException if the system has too many change keys to be regrouped in memory
+     */
+    public TotalPositionResequencer(TotalPositionProgressionCriteria criteria) {
+
+        if (criteria.getKeyCount() > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("The system has too many change keys to be resequenced.");
+
+        this.criteria = criteria;
+        cutOrder = criteria.getCutOrder();
+        cutCount = criteria.getCutCount();
+        stepCount = criteria.getStepCount();
+        keyCount = (int) criteria.getKeyCount();
+    }
+
+    /**
+     * Builds the criteria with the given progression sequence in place of the original one.
+     *
+     * @param progressionSequence the new progression sequence
+     * @return the newly built criteria
+     * @throws IllegalArgumentException if the progression sequence is not valid
+     */
+    public TotalPositionProgressionCriteria resequenceCriteria(int[] progressionSequence) {
+
+        try {
+
+            // Throws: ValidationException
+            return new TotalPositionProgressionCriteria.Builder()
+                    .setMACS(criteria.getMacs())
+                    .setMasterCuts(criteria.getMasterCuts())
+                    .setProgressionSteps(criteria.getProgressionSteps())
+                    .setProgressionSequence(progressionSequence)
+                    .setStartingDepth(criteria.getStartingDepth())
+                    .build();
+
+        } catch (ValidationException ex) {
+
+            StringBuilder sb = new StringBuilder();
+            sb.append("The progression sequence is not valid (");
+            sb.append(Arrays.toString(progressionSequence));
+            sb.append("). Cause: ");
+            sb.append(ex.getMessage());
+            throw new IllegalArgumentException(sb.toString());
+        }
+    }
+
+    /**
+     * Regroups the given bitting list under the given progression sequence.
+     * The change key objects are moved into the new groups as they are; only the master keys are generated. Missing
+     * (skipped) change keys stay missing, and the groups left without any change key are dropped.
+     *
+     * @param bittingList the bitting list generated with the original criteria (every group must be progressed)
+     * @param progressionSequence the new progression sequence
+     * @return the newly regrouped bitting list
+     * @throws IllegalArgumentException if the progression sequence is not valid or the bitting list does not match the
+     *         original criteria
+     */
+    public BittingList resequence(BittingList bittingList, int[] progressionSequence) {
+
+        // Throws: IllegalArgumentException
+        TotalPositionProgressionCriteria newCriteria = resequenceCriteria(progressionSequence);
+        int[] rankMap = buildRankMap(newCriteria.getCutOrder());
+
+        // Move the change keys to their new ranks.
+        KeyBitting[] keys = new KeyBitting[keyCount];
+        BittingGroup rootBittingGroup = (bittingList == null) ? null : bittingList.getRootBittingGroup();
+        if (rootBittingGroup == null)
+            throw new IllegalArgumentException("The bitting list has no root bitting group.");
+        collectKeys(rootBittingGroup, 0, 0, rankMap, keys);
+
+        // Regroup the change keys under the new masters.
+        TotalPositionMACSTable macsTable = new TotalPositionMACSTable(newCriteria);
+        int[] rows = new int[cutCount];
+        Arrays.fill(rows, macsTable.getMasterRow());
+        BittingGroup newRootBittingGroup = new BittingGroup();
+        newRootBittingGroup.setMaster(createMaster(criteria.getMasterCuts().clone(), macsTable.getViolationMask(rows)));
+        regroupBlock(cutCount, rows, newRootBittingGroup, macsTable.getViolationMask(rows), newCriteria.getCutOrder(),
+                macsTable, keys, 0);
+
+        BittingList newBittingList = new BittingList();
+        newBittingList.setRootBittingGroup(newRootBittingGroup);
+
+        return newBittingList;
+    }
+
+    /**
+     * Regroups the given flat bitting list under the given progression sequence.
+     * The change keys' cut bytes and MACS flags are copied to their new ranks as they are; only the master keys are
+     * generated.
+     *
+     * @param bittingList the flat bitting list generated with the original criteria
+     * @param progressionSequence the new progression sequence
+     * @return the newly regrouped flat bitting list
+     * @throws IllegalArgumentException if the progression sequence is not valid or the bitting list does not match the
+     *         original criteria
+     */
+    public FlatBittingList resequence(FlatBittingList bittingList, int[] progressionSequence) {
+
+        // Throws: IllegalArgumentException
+        TotalPositionProgressionCriteria newCriteria = resequenceCriteria(progressionSequence);
+        int[] rankMap = buildRankMap(newCriteria.getCutOrder());
+
+        if ((bittingList == null) || (bittingList.getCutCount() != cutCount) ||
+                (bittingList.getStepCount() != stepCount))
+            throw new IllegalArgumentException("The flat bitting list does not match the criteria.");
+
+        // Move the change keys to their new ranks.
+        FlatBittingList newBittingList = new FlatBittingList(cutCount, stepCount);
+        for (int rank = 0; rank < keyCount; rank++)
+            newBittingList.copyKey(rankMap[rank], bittingList, rank);
+
+        // Generate the new masters, level by level.
+        TotalPositionMACSTable macsTable = new TotalPositionMACSTable(newCriteria);
+        int[] newCutOrder = newCriteria.getCutOrder();
+        int[][] progressionSteps = criteria.getProgressionSteps();
+        int[] rows = new int[cutCount];
+        int[] depths = new int[cutCount];
+        int groupCount = 1;
+        for (int depth = 0; depth < cutCount; depth++) {
+
+            for (int groupIndex = 0; groupIndex < groupCount; groupIndex++) {
+
+                // The group index is the group path read as a base-stepCount number (the last step moves fastest).
+                System.arraycopy(criteria.getMasterCuts(), 0, depths, 0, cutCount);
+                Arrays.fill(rows, macsTable.getMasterRow());
+                for (int level = 0, index = groupIndex; level < depth; level++, index /= stepCount) {
+
+                    int cut = newCutOrder[cutCount - depth + level];
+                    rows[cut] = index % stepCount;
+                    depths[cut] = progressionSteps[rows[cut]][cut];
+                }
+
+                int masterIndex = newBittingList.getMasterIndex(depth, groupIndex);
+                newBittingList.setMaster(masterIndex, depths);
+                newBittingList.setMasterHasMACSViolation(masterIndex, macsTable.hasViolation(rows));
+            }
+
+            groupCount *= stepCount;
+        }
+
+        return newBittingList;
+    }
+
+    /*
+     * Local operations
+     */
+
+    /**
+     * Builds the map from each change key's original rank to its rank under the given cut order.
+     * The rank digits (one step row per cut) are the same; only their positions change.
+     *
+     * @param newCutOrder the cut order of the new progression sequence
+     * @return the new rank of each original rank
+     */
+    private int[] buildRankMap(int[] newCutOrder) {
+
+        // The weight of each cut's digit in the new rank.
+        int[] newWeights = new int[cutCount];
+        for (int position = 0, weight = 1; position < cutCount; position++, weight *= stepCount)
+            newWeights[newCutOrder[position]] = weight;
+
+        // Walk the original ranks like an odometer (the first position moves fastest).
+        int[] rankMap = new int[keyCount];
+        int[] digits = new int[cutCount];
+        int newRank = 0;
+        for (int rank = 0; rank < keyCount; rank++) {
+
+            rankMap[rank] = newRank;
+
+            for (int position = 0; position < cutCount; position++) {
+
+                int weight = newWeights[cutOrder[position]];
+                if (++digits[position] < stepCount) {
+
+                    newRank += weight;
+                    break;
+                }
+
+                digits[position] = 0;
+                newRank -= (stepCount - 1) * weight;
+            }
+        }
+
+        return rankMap;
+    }
+
+    /**
+     * Collects the change keys of the given original bitting group at their new ranks.
+     *
+     * @param bittingGroup the original bitting group
+     * @param depth the depth of the group (0 for the root)
+     * @param rank the original rank of the group's first change key
+     * @param rankMap the new rank of each original rank
+     * @param keys the change keys, indexed by new rank
+     * @throws IllegalArgumentException if the group does not match the original criteria
+     */
+    private void collectKeys(BittingGroup bittingGroup, int depth, int rank, int[] rankMap, KeyBitting[] keys) {
+
+        BittingNode[] bittingNodes = bittingGroup.getGroups();
+        if ((bittingNodes == null) || (bittingNodes.length != stepCount))
+            throw new IllegalArgumentException("The bitting list does not match the criteria or was not fully " +
+                    "progressed.");
+
+        int blockKeyCount = keyCount;
+        for (int level = 0; level <= depth; level++)
+            blockKeyCount /= stepCount;
+
+        for (int step = 0; step < stepCount; step++) {
+
+            BittingNode bittingNode = bittingNodes[step];
+            int stepRank = rank + step * blockKeyCount;
+
+            if (depth < cutCount - 1) {
+
+                if (bittingNode != null)
+                    collectKeys((BittingGroup) bittingNode, depth + 1, stepRank, rankMap, keys);
+            }
+            else
+                keys[rankMap[stepRank]] = (KeyBitting) bittingNode;
+        }
+    }
+
+    /**
+     * Regroups the change keys of the block with the given block level under new masters.
+     *
+     * @param blockLevel the block level to regroup [1, cutCount]
+     * @param rows the rows of the parent's master, indexed by cut (restored before returning)
+     * @param parentBittingGroup the parent {@link BittingGroup} to fill out (its master must be set)
+     * @param violationMask the MACS violation mask of the parent's master
+     * @param newCutOrder the cut order of the new progression sequence
+     * @param macsTable the MACS violation tables of the new criteria
+     * @param keys the change keys, indexed by new rank
+     * @param rank the new rank of the block's first change key
+     * @return {@code True} if the block holds at least one change key, {@code false} if not
+     */
+    private boolean regroupBlock(int blockLevel, int[] rows, BittingGroup parentBittingGroup, int violationMask,
+                                 int[] newCutOrder, TotalPositionMACSTable macsTable, KeyBitting[] keys, int rank) {
+
+        // Decrement the block level.
+        blockLevel--;
+
+        int cut = newCutOrder[blockLevel];
+        int[][] progressionSteps = criteria.getProgressionSteps();
+        boolean hasKeys = false;
+
+        // We're still processing groups.
+        if (blockLevel > 0) {
+
+            BittingNode[] bittingNodes = new BittingGroup[stepCount];
+            parentBittingGroup.setGroups(bittingNodes);
+
+            int blockKeyCount = 1;
+            for (int level = 0; level < blockLevel; level++)
+                blockKeyCount *= stepCount;
+
+            int[] masterDepths = parentBittingGroup.getMaster().getKey();
+            for (int step = 0; step < stepCount; step++) {
+
+                rows[cut] = step;
+                int[] depths = masterDepths.clone();
+                depths[cut] = progressionSteps[step][cut];
+                int stepViolationMask = macsTable.updateViolationMask(violationMask, rows, cut);
+
+                BittingGroup bittingGroup = new BittingGroup();
+                bittingGroup.setMaster(createMaster(depths, stepViolationMask));
+
+                // Drop the groups left without any change key.
+                if (regroupBlock(blockLevel, rows, bittingGroup, stepViolationMask, newCutOrder, macsTable, keys,
+                        rank + step * blockKeyCount)) {
+
+                    bittingNodes[step] = bittingGroup;
+                    hasKeys = true;
+                }
+            }
+        }
+
+        // We're processing the key group.
+        else {
+
+            BittingNode[] bittingNodes = new KeyBitting[stepCount];
+            parentBittingGroup.setGroups(bittingNodes);
+
+            for (int step = 0; step < stepCount; step++) {
+
+                bittingNodes[step] = keys[rank + step];
+                hasKeys |= (bittingNodes[step] != null);
+            }
+        }
+
+        // Restore the master row.
+        rows[cut] = macsTable.getMasterRow();
+
+        return hasKeys;
+    }
+
+    /**
+     * Creates a master {@link KeyBitting} whose MACS violation flag comes from the given violation mask.
+     *
+     * @param depths the key depths
+     * @param violationMask the key's MACS violation mask
+     * @return the newly created key
+     */
+    private static KeyBitting createMaster(int[] depths, int violationMask) {
+
+        KeyBitting keyBitting = new KeyBitting(depths);
+        keyBitting.setHasMACSViolation(violationMask != 0);
+
+        return keyBitting;
+    }
+}
@@ -0,0 +1,230 @@
+package com.eames.masterkey.service.progression.services.totalposition;
+
+import com.eames.masterkey.service.ValidationException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * This class finds the progression sequences that best balance the usable (non-violating) change keys across the
+ * groups of a Total Position Progression system.
+ *
+ * The set of change keys does not depend on the progression sequence, but the way the violating keys are spread across
+ * the groups does. The optimizer scores every one of the cutCount! sequences, in parallel, with the usable key counts
+ * of the groups at a chosen depth, as computed by {@link TotalPositionMACSCounter}; no key is ever generated. A
+ * sequence scores higher when its worst group has more usable keys; ties go to the sequence whose groups are the most
+ * even (the smallest sum of squared counts, since the total is the same for every sequence).
+ */
+public class TotalPositionSequenceOptimizer {
+
+    // Initialize the Log4j logger.
+    private static final Logger logger = LogManager.getLogger(TotalPositionSequenceOptimizer.class);
+
+    // The default depth of the groups to balance (the top-level sub-master groups).
+    public static final int GROUP_DEPTH_DEFAULT = 1;
+
+    // Orders the candidates from best to worst.
+    private static final Comparator<Candidate> BEST_FIRST =
+            Comparator.comparingLong(Candidate::getMinUsableKeyCount).reversed()
+                    .thenComparingLong(Candidate::getSquaredUsableKeyCount);
+
+    // The criteria whose progression sequence is optimized.
+    private final TotalPositionProgressionCriteria criteria;
+
+    // The depth of the groups to balance.
+    private final int groupDepth;
+
+    /**
+     * Constructor
+     *
+     * @param criteria the {@link TotalPositionProgressionCriteria} whose progression sequence is optimized
+     * @param groupDepth the depth of the groups to balance [1, cutCount)
+     * @throws IllegalArgumentException if the group depth is out of range
+     */
+    public TotalPositionSequenceOptimizer(TotalPositionProgressionCriteria criteria, int groupDepth) {
+
+        if ((groupDepth < 1) || (groupDepth >= criteria.getCutCount())) {
+
+            StringBuilder sb = new StringBuilder();
+            sb.append("The group depth is out of range (");
+            sb.append(groupDepth);
+            sb.append(") [1, ");
+            sb.append(criteria.getCutCount());
+            sb.append(").");
+            throw new IllegalArgumentException(sb.toString());
+        }
+
+        this.criteria = criteria;
+        this.groupDepth = groupDepth;
+    }
+
+    /**
+     * Scores every progression sequence and returns the best ones.
+     *
+     * @param candidateCount the maximum number of candidates to return (at least 1)
+     * @return the best candidates, best first
+     */
+    public List<Candidate> optimize(int candidateCount) {
+
+        int cutCount = criteria.getCutCount();
+        int permutationCount = 1;
+        for (int cut = 2; cut <= cutCount; cut++)
+            permutationCount *= cut;
+
+        logger.debug("Scoring {} progression sequences.", permutationCount);
+
+        return IntStream.range(0, permutationCount)
+                .parallel()
+                .mapToObj(permutation -> score(generateSequence(permutation, cutCount)))
+                .sorted(BEST_FIRST)
+                .limit(candidateCount)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Scores the given progression sequence.
+     *
+     * @param progressionSequence the progression sequence to score
+     * @return the scored candidate
+     */
+    public Candidate score(int[] progressionSequence) {
+
+        try {
+
+            // Throws: ValidationException
+            TotalPositionProgressionCriteria candidateCriteria = new TotalPositionProgressionCriteria.Builder()
+                    .setMACS(criteria.getMacs())
+                    .setMasterCuts(criteria.getMasterCuts())
+                    .setProgressionSteps(criteria.getProgressionSteps())
+                    .setProgressionSequence(progressionSequence)
+                    .setStartingDepth(criteria.getStartingDepth())
+                    .build();
+
+            return new Candidate(progressionSequence,
+                    new TotalPositionMACSCounter(candidateCriteria).getUsableKeyCounts(groupDepth));
+
+        } catch (ValidationException ex) {
+
+            StringBuilder sb = new StringBuilder();
+            sb.append("The progression sequence is not valid (");
+            sb.append(Arrays.toString(progressionSequence));
+            sb.append("). Cause: ");
+            sb.append(ex.getMessage());
+            throw new IllegalArgumentException(sb.toString());
+        }
+    }
+
+    /*
+     * Class operations
+     */
+
+    /**
+     * Generates the progression sequence with the given permutation number.
+     * The number is decoded as a factorial-base (Lehmer) code over the cut orders 1 to cutCount.
+     *
+     * @param permutation the permutation number [0, cutCount!)
+     * @param cutCount the number of cuts
+     * @return the newly generated progression sequence
+     */
+    static int[] generateSequence(int permutation, int cutCount) {
+
+        // The cut orders that have not been placed yet, in ascending order.
+        int[] remaining = new int[cutCount];
+        for (int cut = 0; cut < cutCount; cut++)
+            remaining[cut] = cut + 1;
+
+        int[] progressionSequence = new int[cutCount];
+        for (int cut = 0; cut < cutCount; cut++) {
+
+            int radix = cutCount - cut;
+            int index = permutation % radix;
+            permutation /= radix;
+
+            progressionSequence[cut] = remaining[index];
+            System.arraycopy(remaining, index + 1, remaining, index, radix - index - 1);
+        }
+
+        return progressionSequence;
+    }
+
+    /**
+     * This class holds a scored progression sequence.
+     */
+    public static class Candidate {
+
+        // The progression sequence.
+        private final int[] progressionSequence;
+
+        // The usable key count of each group at the optimizer's depth, in bitting list order.
+        private final long[] usableKeyCounts;
+
+        // The smallest usable key count of any group.
+        private final long minUsableKeyCount;
+
+        // The sum of the squared usable key counts.
+        private final long squaredUsableKeyCount;
+
+        /**
+         * Constructor
+         *
+         * @param progressionSequence the progression sequence
+         * @param usableKeyCounts the usable key count of each group
+         */
+        Candidate(int[] progressionSequence, long[] usableKeyCounts) {
+
+            this.progressionSequence = progressionSequence;
+            this.usableKeyCounts = usableKeyCounts;
+
+            long min = Long.MAX_VALUE;
+            long squared = 0;
+            for (long usableKeyCount : usableKeyCounts) {
+
+                min = Long.min(min, usableKeyCount);
+                squared += usableKeyCount * usableKeyCount;
+            }
+            minUsableKeyCount = min;
+            squaredUsableKeyCount = squared;
+        }
+
+        /**
+         * Gets the progression sequence.
+         *
+         * @return the progression sequence
+         */
+        public int[] getProgressionSequence() {
+            return progressionSequence;
+        }
+
+        /**
+         * Gets the usable key count of each group at the optimizer's depth.
+         *
+         * @return the usable key counts, in bitting list order
+         */
+        public long[] getUsableKeyCounts() {
+            return usableKeyCounts;
+        }
+
+        /**
+         * Gets the smallest usable key count of any group.
+         *
+         * @return the minimum usable key count
+         */
+        public long getMinUsableKeyCount() {
+            return minUsableKeyCount;
+        }
+
+        /**
+         * Gets the sum of the squared usable key counts (smaller is more even).
+         *
+         * @return the sum of the squared usable key counts
+         */
+        public long getSquaredUsableKeyCount() {
+            return squaredUsableKeyCount;
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.eames.masterkey.service.progression.services.totalposition;
+
+import com.eames.masterkey.model.BittingGroup;
+import com.eames.masterkey.model.BittingList;
+import com.eames.masterkey.model.BittingNode;
+import com.eames.masterkey.model.FlatBittingList;
+import com.eames.masterkey.model.KeyBitting;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class updates an already generated Total Position Progression bitting list, in place, after some cells of the
+ * progression steps have been edited.
+ *
+ * A progression step cell (row, cut) is used by exactly the keys whose cut sits on that row: the whole subtree under
+ * the row's child of every group at the depth where the cut is progressed. Only those keys are rewritten, and only the
+ * two adjacent pairs around the edited cut are re-tested; the rest of a key's pairs did not change. (When a key was
+ * flagged and one of the edited pairs was the reason, the other pairs are re-tested too, since the flag alone cannot
+ * tell whether they violate as well.) The cost tracks the number of keys that use the edited cells, not the size of
+ * the system.
+ *
+ * The old and new criteria must differ in their progression steps only.
+ */
+public class TotalPositionStepUpdater {
+
+    // The criteria the bitting lists were generated with.
+    private final TotalPositionProgressionCriteria oldCriteria;
+
+    // The edited criteria.
+    private final TotalPositionProgressionCriteria newCriteria;
+
+    // The cut count comes from the criteria.
+    private final int cutCount;
+
+    // The step count comes from the criteria.
+    private final int stepCount;
+
+    // The edited cells, as {row, cut} pairs.
+    private final List<int[]> changedCells;
+
+    /**
+     * Constructor
+     *
+     * @param oldCriteria the {@link TotalPositionProgressionCriteria} the bitting lists were generated with
+     * @param newCriteria the edited {@link TotalPositionProgressionCriteria}
+     * @throws IllegalArgumentException if the criteria differ in anything but their progression steps
+     */
+    public TotalPositionStepUpdater(TotalPositionProgressionCriteria oldCriteria,
+                                    TotalPositionProgressionCriteria newCriteria) {
+
+        if ((oldCriteria.getMacs() != newCriteria.getMacs()) ||
+                (oldCriteria.getStartingDepth() != newCriteria.getStartingDepth()) ||
+                (oldCriteria.getStepCount() != newCriteria.getStepCount()) ||
+                !Arrays.equals(oldCriteria.getMasterCuts(), newCriteria.getMasterCuts()) ||
+                !Arrays.equals(oldCriteria.getProgressionSequence(), newCriteria.getProgressionSequence()))
+            throw new IllegalArgumentException("The criteria may only differ in their progression steps.");
+
+        this.oldCriteria = oldCriteria;
+        this.newCriteria = newCriteria;
+        cutCount = oldCriteria.getCutCount();
+        stepCount = oldCriteria.getStepCount();
+
+        // Find the edited cells.
+        int[][] oldSteps = oldCriteria.getProgressionSteps();
+        int[][] newSteps = newCriteria.getProgressionSteps();
+        List<int[]> cells = new ArrayList<>();
+        for (int row = 0; row < stepCount; row++) {
+            for (int cut = 0; cut < cutCount; cut++) {
+                if (oldSteps[row][cut] != newSteps[row][cut])
+                    cells.add(new int[]{row, cut});
+            }
+        }
+        changedCells = Collections.unmodifiableList(cells);
+    }
+
+    /**
+     * Gets the edited progression step cells.
+     *
+     * @return the edited cells, as {row, cut} pairs
+     */
+    public List<int[]> getChangedCells() {
+        return changedCells;
+    }
+
+    /**
+     * Rewrites, in place, the keys of the given bitting list that use the edited cells.
+     * Missing (skipped) groups and keys, and the groups whose children were not generated, are passed over; a list
+     * generated with usable keys only (compacted or not) is not completed with the keys that the edit made usable.
+     *
+     * @param bittingList the bitting list generated with the old criteria
+     * @return the number of keys (masters and change keys) rewritten
+     */
+    public long update(BittingList bittingList) {
+
+        long rewrittenCount = 0;
+        BittingGroup rootBittingGroup = bittingList.getRootBittingGroup();
+        if (rootBittingGroup == null)
+            return rewrittenCount;
+
+        for (int[] cell : changedCells) {
+
+            // The depth of the groups whose children progress the cell's cut.
+            int cut = cell[1];
+            int depth = cutCount - oldCriteria.getProgressionSequence()[cut];
+            rewrittenCount += updateGroups(rootBittingGroup, depth, cell[0], cut);
+        }
+
+        return rewrittenCount;
+    }
+
+    /**
+     * Rewrites, in place, the keys of the given flat bitting list that use the edited cells.
+     *
+     * @param bittingList the flat bitting list generated with the old criteria
+     * @return the number of keys (masters and change keys) rewritten
+     * @throws IllegalArgumentException if the flat bitting list does not match the criteria
+     */
+    public long update(FlatBittingList bittingList) {
+
+        if ((bittingList.getCutCount() != cutCount) || (bittingList.getStepCount() != stepCount))
+            throw new IllegalArgumentException("The flat bitting list does not match the criteria.");
+
+        long rewrittenCount = 0;
+        for (int[] cell : changedCells) {
+
+            int row = cell[0];
+            int cut = cell[1];
+
+            // The position of the cut's digit in the rank.
+            int position = oldCriteria.getProgressionSequence()[cut] - 1;
+
+            // The change keys whose digit at the position is the row, in blocks of stepCount ^ position.
+            int blockSize = 1;
+            for (int level = 0; level < position; level++)
+                blockSize *= stepCount;
+            for (int start = row * blockSize; start < bittingList.getKeyCount(); start += blockSize * stepCount) {
+                for (int rank = start; rank < start + blockSize; rank++) {
+
+                    int[] key = bittingList.getKey(rank);
+                    bittingList.setHasMACSViolation(rank, updateKey(key, row, cut,
+                            bittingList.getHasMACSViolation(rank)));
+                    bittingList.setKey(rank, key);
+                    rewrittenCount++;
+                }
+            }
+
+            // The masters below the depth where the cut is progressed whose path takes the row there.
+            int cutDepth = cutCount - 1 - position;
+            int groupCount = 1;
+            for (int depth = 0; depth <= cutDepth; depth++)
+                groupCount *= stepCount;
+            for (int depth = cutDepth + 1, pathWeight = 1; depth < cutCount;
+                 depth++, groupCount *= stepCount, pathWeight *= stepCount) {
+
+                for (int groupIndex = 0; groupIndex < groupCount; groupIndex++) {
+
+                    if ((groupIndex / pathWeight) % stepCount != row)
+                        continue;
+
+                    int masterIndex = bittingList.getMasterIndex(depth, groupIndex);
+                    int[] key = bittingList.getMaster(masterIndex);
+                    bittingList.setMasterHasMACSViolation(masterIndex, updateKey(key, row, cut,
+                            bittingList.getMasterHasMACSViolation(masterIndex)));
+                    bittingList.setMaster(masterIndex, key);
+                    rewrittenCount++;
+                }
+            }
+        }
+
+        return rewrittenCount;
+    }
+
+    /*
+     * Local operations
+     */
+
+    /**
+     * Walks down to the groups at the given depth and rewrites the subtree under each one's child for the given row.
+     *
+     * @param bittingGroup the bitting group to walk
+     * @param depth the remaining depth to the groups whose children progress the cut
+     * @param row the edited row
+     * @param cut the edited cut
+     * @return the number of keys rewritten
+     */
+    private long updateGroups(BittingGroup bittingGroup, int depth, int row, int cut) {
+
+        BittingNode[] bittingNodes = bittingGroup.getGroups();
+        if (bittingNodes == null)
+            return 0;
+
+        if (depth > 0) {
+
+            long rewrittenCount = 0;
+            for (BittingNode bittingNode : bittingNodes) {
+                if (bittingNode != null)
+                    rewrittenCount += updateGroups((BittingGroup) bittingNode, depth - 1, row, cut);
+            }
+
+            return rewrittenCount;
+        }
+
+        // A full array is indexed by step; a compacted ('usable keys only') one is searched for the row's depth.
+        if (bittingNodes.length == stepCount)
+            return updateSubtree(bittingNodes[row], row, cut);
+
+        int rowDepth = oldCriteria.getProgressionSteps()[row][cut];
+        for (BittingNode bittingNode : bittingNodes) {
+
+            KeyBitting keyBitting = (bittingNode instanceof BittingGroup) ? ((BittingGroup) bittingNode).getMaster() :
+                    (KeyBitting) bittingNode;
+            if ((keyBitting != null) && (keyBitting.getKey()[cut] == rowDepth))
+                return updateSubtree(bittingNode, row, cut);
+        }
+
+        return 0;
+    }
+
+    /**
+     * Rewrites every key of the given subtree.
+     *
+     * @param bittingNode the subtree's root node (may be {@code null})
+     * @param row the edited row
+     * @param cut the edited cut
+     * @return the number of keys rewritten
+     */
+    private long updateSubtree(BittingNode bittingNode, int row, int cut) {
+
+        if (bittingNode == null)
+            return 0;
+
+        if (!(bittingNode instanceof BittingGroup)) {
+
+            updateKeyBitting((KeyBitting) bittingNode, row, cut);
+            return 1;
+        }
+
+        BittingGroup bittingGroup = (BittingGroup) bittingNode;
+        long rewrittenCount = 0;
+        if (bittingGroup.getMaster() != null) {
+
+            updateKeyBitting(bittingGroup.getMaster(), row, cut);
+            rewrittenCount++;
+        }
+
+        if (bittingGroup.getGroups() != null) {
+            for (BittingNode childNode : bittingGroup.getGroups())
+                rewrittenCount += updateSubtree(childNode, row, cut);
+        }
+
+        return rewrittenCount;
+    }
+
+    /**
+     * Rewrites the given key in place.
+     *
+     * @param keyBitting the key to rewrite
+     * @param row the edited row
+     * @param cut the edited cut
+     */
+    private void updateKeyBitting(KeyBitting keyBitting, int row, int cut) {
+
+        int[] key = keyBitting.getKey();
+        boolean hasMACSViolation = updateKey(key, row, cut, keyBitting.getHasMACSViolation());
+
+        // Setting the key drops its recorded largest adjacent cut difference.
+        keyBitting.setKey(key);
+        keyBitting.setHasMACSViolation(hasMACSViolation);
+    }
+
+    /**
+     * Replaces the edited cut of the given key cuts and works out the key's new MACS violation flag.
+     *
+     * @param key the key cuts to update in place
+     * @param row the edited row
+     * @param cut the edited cut
+     * @param hadMACSViolation the key's MACS violation flag before the edit
+     * @return the key's MACS violation flag after the edit
+     */
+    private boolean updateKey(int[] key, int row, int cut, boolean hadMACSViolation) {
+
+        int macs = newCriteria.getMacs();
+
+        // The edited pairs before the edit.
+        boolean editedPairsViolated = violatesAround(key, cut, macs);
+
+        key[cut] = newCriteria.getProgressionSteps()[row][cut];
+
+        // The edited pairs violate, or the other (unchanged) pairs did.
+        if (violatesAround(key, cut, macs) || (hadMACSViolation && !editedPairsViolated))
+            return true;
+
+        // The flag came from the edited pairs; the other pairs must be re-tested.
+        return hadMACSViolation && KeyBitting.hasMACSViolation(key, macs);
+    }
+
+    /**
+     * Tests the (at most two) adjacent pairs around the given cut for a MACS violation.
+     *
+     * @param key the key cuts
+     * @param cut the cut
+     * @param macs the MACS to test against
+     * @return {@code True} if either pair violates the MACS, {@code false} if not
+     */
+    private static boolean violatesAround(int[] key, int cut, int macs) {
+
+        return ((cut > 0) && (Math.abs(key[cut] - key[cut - 1]) > macs)) ||
+                ((cut < key.length - 1) && (Math.abs(key[cut + 1] - key[cut]) > macs));
+    }
+}
@@ -0,0 +1,167 @@
+package com.eames.masterkey.service.progression.services.totalposition;
+
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * This class finds the change keys shared by two or more Total Position Progression systems without generating them.
+ *
+ * The change keys of a system are every combination of its progression step depths, one per column, so the keys shared
+ * by several systems are every combination of the depths their columns share. The shared keys are counted as the
+ * product of the column intersections and listed lazily, so the cost scales with the number of shared keys rather
+ * than with the size of the systems.
+ *
+ * The systems may number their depths from different starting depths; the depths are compared by their offset from
+ * the starting depth and the shared keys are given in the first system's numbering. Systems with different cut counts
+ * share no change key.
+ */
+public class TotalPositionSystemIntersection
+        implements Iterable<int[]> {
+
+    // The first system's starting depth (the shared keys are numbered from it).
+    private final int startingDepth;
+
+    // The depths shared by every system in each column, in ascending order, offset from the starting depth
+    // (null when the systems have different cut counts).
+    private final int[][] sharedDepths;
+
+    /**
+     * Constructor
+     *
+     * @param criteria the {@link TotalPositionProgressionCriteria} of the systems to intersect (at least 2)
+     * @throws IllegalArgumentException if fewer than two criteria are given
+     */
+    public TotalPositionSystemIntersection(TotalPositionProgressionCriteria... criteria) {
+
+        if ((criteria == null) || (criteria.length < 2))
+            throw new IllegalArgumentException("At least two progression criteria are needed.");
+
+        startingDepth = criteria[0].getStartingDepth();
+
+        // Systems with different cut counts cannot share a change key.
+        int cutCount = criteria[0].getCutCount();
+        for (TotalPositionProgressionCriteria systemCriteria : criteria) {
+            if (systemCriteria.getCutCount() != cutCount) {
+
+                sharedDepths = null;
+                return;
+            }
+        }
+
+        // Intersect the columns' step depths.
+        sharedDepths = new int[cutCount][];
+        for (int cut = 0; cut < cutCount; cut++) {
+
+            BitSet columnDepths = getColumnDepths(criteria[0], cut);
+            for (int system = 1; system < criteria.length; system++)
+                columnDepths.and(getColumnDepths(criteria[system], cut));
+
+            sharedDepths[cut] = columnDepths.stream().toArray();
+        }
+    }
+
+    /**
+     * Counts the change keys shared by every system.
+     *
+     * @return the number of shared change keys
+     */
+    public long getSharedKeyCount() {
+
+        if (sharedDepths == null)
+            return 0;
+
+        long sharedKeyCount = 1;
+        for (int[] columnDepths : sharedDepths)
+            sharedKeyCount *= columnDepths.length;
+
+        return sharedKeyCount;
+    }
+
+    /**
+     * Gets the depths that every system shares in the given column.
+     *
+     * @param cut the column's cut
+     * @return the shared depths, in ascending order, in the first system's numbering (empty if the systems have
+     *         different cut counts)
+     * @throws IndexOutOfBoundsException if the cut is out of range
+     */
+    public int[] getSharedDepths(int cut) {
+
+        if (sharedDepths == null)
+            return new int[0];
+
+        int[] columnDepths = sharedDepths[cut].clone();
+        for (int index = 0; index < columnDepths.length; index++)
+            columnDepths[index] += startingDepth;
+
+        return columnDepths;
+    }
+
+    /**
+     * Gets a lazy iterator over the shared change keys.
+     * The keys are listed with each column's depths in ascending order, the last cut moving fastest; each one is
+     * built only when it is reached.
+     *
+     * @return the iterator over the shared change keys' cuts, in the first system's numbering
+     */
+    @Override
+    public Iterator<int[]> iterator() {
+
+        return new Iterator<int[]>() {
+
+            // The index of the next key's depth in each column (null once every key was returned).
+            private int[] indexes = (getSharedKeyCount() == 0) ? null : new int[sharedDepths.length];
+
+            @Override
+            public boolean hasNext() {
+                return (indexes != null);
+            }
+
+            @Override
+            public int[] next() {
+
+                if (indexes == null)
+                    throw new NoSuchElementException("There are no more shared change keys.");
+
+                int[] key = new int[indexes.length];
+                for (int cut = 0; cut < key.length; cut++)
+                    key[cut] = sharedDepths[cut][indexes[cut]] + startingDepth;
+
+                // Move to the next key like an odometer.
+                int cut = indexes.length - 1;
+                while ((cut >= 0) && (++indexes[cut] == sharedDepths[cut].length))
+                    indexes[cut--] = 0;
+                if (cut < 0)
+                    indexes = null;
+
+                return key;
+            }
+        };
+    }
+
+    /*
+     * Local operations
+     */
+
+    /**
+     * Gets the given column's progression step depths, offset from the system's starting depth.
+     *
+     * @param criteria the system's {@link TotalPositionProgressionCriteria}
+     * @param cut the column's cut
+     * @return the set of depths
+     */
+    private static BitSet getColumnDepths(TotalPositionProgressionCriteria criteria, int cut) {
+
+        BitSet columnDepths = new BitSet();
+        for (int[] progressionStepRow : criteria.getProgressionSteps()) {
+
+            // A depth below the starting depth matches no other system's depth.
+            int depth = progressionStepRow[cut] - criteria.getStartingDepth();
+            if (depth >= 0)
+                columnDepths.set(depth);
+        }
+
+        return columnDepths;
+    }
+}
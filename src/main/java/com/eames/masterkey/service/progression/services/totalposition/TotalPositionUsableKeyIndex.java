@@ -0,0 +1,223 @@
+package com.eames.masterkey.service.progression.services.totalposition;
+
+import java.util.Arrays;
+
+/**
+ * This class maps the positions of a compacted, usable-keys-only Total Position Progression bitting list back to the
+ * ranks and group paths of the full system, and the other way around.
+ *
+ * In a compacted bitting list (see {@link TotalPositionProgressionService#setUsableKeysOnly(boolean)}) the violating
+ * change keys and the groups left without a usable key are dropped, so the usable change keys sit at consecutive
+ * positions in rank order. The index keeps a prefix sum of the usable key counts of the key groups (the groups whose
+ * children are change keys), one entry per key group, computed analytically by {@link TotalPositionMACSCounter}; the
+ * keys inside a key group are tested with the MACS violation tables. No change key is generated.
+ */
+public class TotalPositionUsableKeyIndex {
+
+    // The cut order comes from the criteria.
+    private final int[] cutOrder;
+
+    // The cut count comes from the criteria.
+    private final int cutCount;
+
+    // The step count comes from the criteria.
+    private final int stepCount;
+
+    // The MACS violation tables are built from the criteria.
+    private final TotalPositionMACSTable macsTable;
+
+    // The usable key counter is built from the criteria.
+    private final TotalPositionMACSCounter counter;
+
+    // The number of usable change keys before each key group (one more entry holds the total).
+    private final long[] keyGroupOffsets;
+
+    /**
+     * Constructor
+     *
+     * @param criteria the {@link TotalPositionProgressionCriteria} of the system to index
+     */
+    public TotalPositionUsableKeyIndex(TotalPositionProgressionCriteria criteria) {
+
+        cutOrder = criteria.getCutOrder();
+        cutCount = criteria.getCutCount();
+        stepCount = criteria.getStepCount();
+        macsTable = new TotalPositionMACSTable(criteria);
+        counter = new TotalPositionMACSCounter(criteria);
+
+        // Build the prefix sums of the key groups' usable key counts.
+        long[] usableKeyCounts = counter.getUsableKeyCounts(cutCount - 1);
+        keyGroupOffsets = new long[usableKeyCounts.length + 1];
+        for (int keyGroup = 0; keyGroup < usableKeyCounts.length; keyGroup++)
+            keyGroupOffsets[keyGroup + 1] = keyGroupOffsets[keyGroup] + usableKeyCounts[keyGroup];
+    }
+
+    /**
+     * Gets the number of usable change keys (the number of positions in the compacted bitting list).
+     *
+     * @return the usable key count
+     */
+    public long getUsableKeyCount() {
+        return keyGroupOffsets[keyGroupOffsets.length - 1];
+    }
+
+    /**
+     * Gets the compacted position of the change key with the given rank.
+     *
+     * @param rank the change key's rank in the full system
+     * @return the key's position in the compacted bitting list, or -1 if the key violates the MACS (and was dropped)
+     * @throws IndexOutOfBoundsException if the rank is out of range
+     */
+    public long getPosition(long rank) {
+
+        int keyGroup = getKeyGroup(rank);
+        int firstStep = (int) (rank % stepCount);
+
+        int[] rows = getRows(keyGroup);
+        rows[cutOrder[0]] = firstStep;
+        if (macsTable.hasViolation(rows))
+            return -1;
+
+        // Count the usable keys before this one in its key group.
+        long position = keyGroupOffsets[keyGroup];
+        for (int step = 0; step < firstStep; step++) {
+
+            rows[cutOrder[0]] = step;
+            if (!macsTable.hasViolation(rows))
+                position++;
+        }
+
+        return position;
+    }
+
+    /**
+     * Gets the rank of the change key at the given compacted position.
+     *
+     * @param position the key's position in the compacted bitting list [0, usableKeyCount)
+     * @return the change key's rank in the full system
+     * @throws IndexOutOfBoundsException if the position is out of range
+     */
+    public long getRank(long position) {
+
+        if ((position < 0) || (position >= getUsableKeyCount())) {
+
+            StringBuilder sb = new StringBuilder();
+            sb.append("The position is out of range (");
+            sb.append(position);
+            sb.append(") [0, ");
+            sb.append(getUsableKeyCount());
+            sb.append(").");
+            throw new IndexOutOfBoundsException(sb.toString());
+        }
+
+        // Find the last key group that starts at or before the position (empty key groups share their offset).
+        int keyGroup = Arrays.binarySearch(keyGroupOffsets, position);
+        if (keyGroup < 0)
+            keyGroup = -keyGroup - 2;
+        else {
+
+            while (keyGroupOffsets[keyGroup + 1] == position)
+                keyGroup++;
+        }
+
+        // Walk the key group's usable keys.
+        int[] rows = getRows(keyGroup);
+        long remaining = position - keyGroupOffsets[keyGroup];
+        for (int step = 0; ; step++) {
+
+            rows[cutOrder[0]] = step;
+            if (!macsTable.hasViolation(rows) && (remaining-- == 0))
+                return (long) keyGroup * stepCount + step;
+        }
+    }
+
+    /**
+     * Gets the original group path of the change key at the given compacted position.
+     *
+     * @param position the key's position in the compacted bitting list [0, usableKeyCount)
+     * @return the change key's group path in the full system (cutCount step indices)
+     * @throws IndexOutOfBoundsException if the position is out of range
+     */
+    public int[] getGroupPath(long position) {
+
+        long rank = getRank(position);
+
+        int[] groupPath = new int[cutCount];
+        for (int depth = cutCount - 1; depth >= 0; depth--, rank /= stepCount)
+            groupPath[depth] = (int) (rank % stepCount);
+
+        return groupPath;
+    }
+
+    /**
+     * Gets the original step indices of the children that remain in the compacted group with the given group path.
+     * The child at compacted index {@code i} is the child with step index {@code getSteps(groupPath)[i]}.
+     *
+     * @param groupPath the original group path of the group (at most cutCount - 1 step indices)
+     * @return the step indices of the remaining children, in order
+     * @throws IllegalArgumentException if the group path is not valid
+     */
+    public int[] getSteps(int[] groupPath) {
+
+        if ((groupPath == null) || (groupPath.length >= cutCount))
+            throw new IllegalArgumentException("The group path is missing or too long.");
+
+        int[] childPath = Arrays.copyOf(groupPath, groupPath.length + 1);
+        int[] steps = new int[stepCount];
+        int count = 0;
+        for (int step = 0; step < stepCount; step++) {
+
+            childPath[groupPath.length] = step;
+
+            // Throws: IllegalArgumentException
+            if (counter.getUsableKeyCount(childPath) > 0)
+                steps[count++] = step;
+        }
+
+        return Arrays.copyOf(steps, count);
+    }
+
+    /*
+     * Local operations
+     */
+
+    /**
+     * Gets the key group that holds the change key with the given rank.
+     *
+     * @param rank the change key's rank
+     * @return the key group's index
+     * @throws IndexOutOfBoundsException if the rank is out of range
+     */
+    private int getKeyGroup(long rank) {
+
+        long keyCount = (long) (keyGroupOffsets.length - 1) * stepCount;
+        if ((rank < 0) || (rank >= keyCount)) {
+
+            StringBuilder sb = new StringBuilder();
+            sb.append("The rank is out of range (");
+            sb.append(rank);
+            sb.append(") [0, ");
+            sb.append(keyCount);
+            sb.append(").");
+            throw new IndexOutOfBoundsException(sb.toString());
+        }
+
+        return (int) (rank / stepCount);
+    }
+
+    /**
+     * Gets the rows of the given key group's fixed cuts (the last progressed cut is left free).
+     *
+     * @param keyGroup the key group's index
+     * @return the rows, indexed by cut
+     */
+    private int[] getRows(int keyGroup) {
+
+        int[] rows = new int[cutCount];
+        rows[cutOrder[0]] = TotalPositionMACSTable.FREE_ROW;
+        for (int position = 1; position < cutCount; position++, keyGroup /= stepCount)
+            rows[cutOrder[position]] = keyGroup % stepCount;
+
+        return rows;
+    }
+}
@@ -4,7 +4,10 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
 
 /**
  * This class tests the {@link BittingGroup} class.
@@ -41,4 +44,61 @@ public class BittingGroupTest {
 
         assertTrue(bittingGroup.hasGroups());
     }
+
+    /*
+     * .getKeyCount() tests
+     */
+
+    @Test
+    public void testKeyCount() {
+
+        assertNull(bittingGroup.getKeyCount());
+
+        bittingGroup.setKeyCount(16L);
+        assertEquals(Long.valueOf(16), bittingGroup.getKeyCount());
+    }
+
+    /*
+     * .getStats() tests
+     */
+
+    @Test
+    public void testStats_Aggregate() {
+
+        assertNull(bittingGroup.getStats());
+
+        // A key group with one violating key (MACS 4) and one missing key.
+        bittingGroup.setGroups(new BittingNode[]{
+                new KeyBitting(new int[]{1, 3, 5}, 4),
+                new KeyBitting(new int[]{1, 8, 5}, 4),
+                null
+        });
+        bittingGroup.setStats(BittingGroupStats.aggregate(bittingGroup.getGroups()));
+        assertEquals(2, bittingGroup.getStats().getKeyCount());
+        assertEquals(1, bittingGroup.getStats().getUsableKeyCount());
+        assertEquals(7, bittingGroup.getStats().getMaxAdjacentCutDifference());
+
+        // Child groups contribute their own statistics.
+        BittingGroup stoppedBittingGroup = new BittingGroup();
+        stoppedBittingGroup.setStats(new BittingGroupStats(16, 10, 9));
+        BittingGroupStats stats = BittingGroupStats.aggregate(new BittingNode[]{bittingGroup, stoppedBittingGroup});
+        assertEquals(18, stats.getKeyCount());
+        assertEquals(11, stats.getUsableKeyCount());
+        assertEquals(9, stats.getMaxAdjacentCutDifference());
+    }
+
+    @Test
+    public void testStats_AggregateMissingStats() {
+
+        try {
+
+            BittingGroupStats.aggregate(new BittingNode[]{new BittingGroup()});
+
+            fail();
+
+        } catch (IllegalArgumentException e) {
+
+            // Expected result...
+        }
+    }
 }
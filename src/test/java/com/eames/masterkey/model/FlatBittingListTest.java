@@ -0,0 +1,142 @@
+package com.eames.masterkey.model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class tests the {@link FlatBittingList} class.
+ */
+public class FlatBittingListTest {
+
+    // The bitting list to test
+    private FlatBittingList bittingList;
+
+    /**
+     * Gets called before each test.
+     */
+    @BeforeEach
+    public void setUp() {
+
+        // 3 cuts, 2 steps: 8 change keys and 1 + 2 + 4 master keys.
+        bittingList = new FlatBittingList(3, 2);
+    }
+
+    /**
+     * Gets called after each test.
+     */
+    @AfterEach
+    public void tearDown() {
+
+        bittingList = null;
+    }
+
+    /*
+     * Sizing tests
+     */
+
+    @Test
+    public void testCounts() {
+
+        assertEquals(3, bittingList.getCutCount());
+        assertEquals(2, bittingList.getStepCount());
+        assertEquals(8, bittingList.getKeyCount());
+        assertEquals(7, bittingList.getMasterCount());
+    }
+
+    @Test
+    public void testMasterIndex() {
+
+        assertEquals(0, bittingList.getMasterIndex(0, 0));
+        assertEquals(1, bittingList.getMasterIndex(1, 0));
+        assertEquals(2, bittingList.getMasterIndex(1, 1));
+        assertEquals(3, bittingList.getMasterIndex(2, 0));
+        assertEquals(6, bittingList.getMasterIndex(2, 3));
+    }
+
+    @Test
+    public void testConstructor_TooLarge() {
+
+        try {
+
+            new FlatBittingList(7, 100);
+
+            fail();
+
+        } catch (IllegalArgumentException e) {
+
+            // Expected result...
+        }
+    }
+
+    /*
+     * Storage tests
+     */
+
+    @Test
+    public void testSetKey() {
+
+        bittingList.setKey(5, new int[]{10, 0, 7});
+        bittingList.setHasMACSViolation(5, true);
+
+        assertArrayEquals(new int[]{10, 0, 7}, bittingList.getKey(5));
+        assertEquals(7, bittingList.getKeyCut(5, 2));
+        assertTrue(bittingList.getHasMACSViolation(5));
+        assertFalse(bittingList.getHasMACSViolation(4));
+    }
+
+    /*
+     * .toBittingList() tests
+     */
+
+    @Test
+    public void testToBittingList() {
+
+        bittingList.setMaster(bittingList.getMasterIndex(2, 3), new int[]{1, 2, 3});
+        bittingList.setKey(7, new int[]{4, 5, 6});
+        bittingList.setHasMACSViolation(7, true);
+
+        BittingGroup group = bittingList.toBittingList().getRootBittingGroup();
+        assertTrue(group.hasGroups());
+        group = (BittingGroup) group.getGroups()[1];
+        group = (BittingGroup) group.getGroups()[1];
+        assertArrayEquals(new int[]{1, 2, 3}, group.getMaster().getKey());
+
+        BittingNode[] keys = group.getGroups();
+        assertEquals(2, keys.length);
+        assertFalse(keys[1].hasGroups());
+        KeyBitting keyBitting = (KeyBitting) keys[1];
+        assertArrayEquals(new int[]{4, 5, 6}, keyBitting.getKey());
+        assertTrue(keyBitting.getHasMACSViolation());
+    }
+
+    @Test
+    public void testToBittingList_Copy() {
+
+        KeyBitting keyBitting = (KeyBitting) ((BittingGroup) ((BittingGroup) bittingList.toBittingList()
+                .getRootBittingGroup().getGroups()[0]).getGroups()[1]).getGroups()[0];
+        keyBitting.setKey(new int[]{3, 9, 3});
+        keyBitting.testForMACSViolation(4);
+
+        // The flat bitting list is not changed.
+        assertArrayEquals(new int[]{0, 0, 0}, bittingList.getKey(2));
+        assertFalse(bittingList.getHasMACSViolation(2));
+    }
+
+    @Test
+    public void testReflagMACSViolations() {
+
+        // Every change key differs by 5 between its first two cuts; the masters are flat.
+        for (int rank = 0; rank < bittingList.getKeyCount(); rank++)
+            bittingList.setKey(rank, new int[]{0, 5, 5 - rank % 2});
+
+        assertEquals(0, bittingList.reflagMACSViolations(4));
+        assertTrue(bittingList.getHasMACSViolation(0));
+        assertFalse(bittingList.getMasterHasMACSViolation(0));
+
+        assertEquals(8, bittingList.reflagMACSViolations(5));
+        assertFalse(bittingList.getHasMACSViolation(0));
+    }
+}
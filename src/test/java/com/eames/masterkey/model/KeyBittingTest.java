@@ -4,7 +4,10 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -177,4 +180,75 @@ public class KeyBittingTest {
         assertTrue(keyBitting.testForMACSViolation(4));
         assertTrue(keyBitting.getHasMACSViolation());
     }
+
+    /*
+     * .hasMACSViolation() tests
+     */
+
+    @Test
+    public void testHasMACSViolation_Static() {
+
+        assertFalse(KeyBitting.hasMACSViolation(null, 4));
+        assertFalse(KeyBitting.hasMACSViolation(new int[] {3, 5, 4, 1, 6}, 5));
+        assertTrue(KeyBitting.hasMACSViolation(new int[] {3, 5, 4, 1, 6}, 4));
+    }
+
+    @Test
+    public void testGetMaxAdjacentCutDifference() {
+
+        assertEquals(0, KeyBitting.getMaxAdjacentCutDifference(null));
+        assertEquals(0, KeyBitting.getMaxAdjacentCutDifference(new int[] {3}));
+        assertEquals(5, KeyBitting.getMaxAdjacentCutDifference(new int[] {3, 5, 4, 1, 6}));
+    }
+
+    @Test
+    public void testReflagMACSViolation() {
+
+        KeyBitting keyBitting = new KeyBitting(new int[] {3, 5, 4, 1, 6}, 4);
+        assertTrue(keyBitting.getHasMACSViolation());
+        assertEquals(5, keyBitting.getMaxAdjacentCutDifference());
+
+        assertFalse(keyBitting.reflagMACSViolation(5));
+        assertFalse(keyBitting.getHasMACSViolation());
+        assertTrue(keyBitting.reflagMACSViolation(4));
+
+        // A new key replaces the recorded difference.
+        keyBitting.setKey(new int[] {3, 5, 4, 3, 6});
+        assertEquals(3, keyBitting.getMaxAdjacentCutDifference());
+        assertFalse(keyBitting.reflagMACSViolation(4));
+    }
+
+    @Test
+    public void testEquals() {
+
+        KeyBitting keyBitting = new KeyBitting(new int[] {3, 5, 4, 1, 6}, 4);
+
+        // The status is not part of the value.
+        assertEquals(keyBitting, new KeyBitting(new int[] {3, 5, 4, 1, 6}));
+        assertEquals(keyBitting.hashCode(), new KeyBitting(new int[] {3, 5, 4, 1, 6}).hashCode());
+        assertNotEquals(keyBitting, new KeyBitting(new int[] {3, 5, 4, 1, 7}));
+        assertNotEquals(keyBitting, new KeyBitting(null));
+        assertEquals(new KeyBitting(null), new KeyBitting(null));
+    }
+
+    @Test
+    public void testEquals_Unpackable() {
+
+        // Keys that cannot be packed (more than 15 cuts, or a depth out of the packed range) still compare and hash.
+        int[] longKey = new int[16];
+        assertEquals(new KeyBitting(longKey), new KeyBitting(longKey.clone()));
+        assertEquals(new KeyBitting(longKey).hashCode(), new KeyBitting(longKey.clone()).hashCode());
+        assertNotEquals(new KeyBitting(new int[] {3, 16}), new KeyBitting(new int[] {3, 17}));
+    }
+
+    @Test
+    public void testPackedKey() {
+
+        KeyBitting keyBitting = new KeyBitting(new int[] {3, 5, 4, 1, 6});
+        long packedKey = keyBitting.getPackedKey();
+
+        keyBitting.setKey(new int[] {0, 0, 0, 0, 0});
+        keyBitting.setPackedKey(packedKey);
+        assertArrayEquals(new int[] {3, 5, 4, 1, 6}, keyBitting.getKey());
+    }
 }
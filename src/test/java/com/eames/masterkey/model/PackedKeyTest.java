@@ -0,0 +1,96 @@
+package com.eames.masterkey.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class tests the {@link PackedKey} class.
+ */
+public class PackedKeyTest {
+
+    /*
+     * .pack() and .unpack() tests
+     */
+
+    @Test
+    public void testPack_RoundTrip() {
+
+        int[] key = {2, 5, 7, 10, 0, 9, 1};
+        long value = PackedKey.pack(key);
+
+        assertEquals(7, PackedKey.getCutCount(value));
+        assertEquals(10, PackedKey.getCut(value, 3));
+        assertArrayEquals(key, PackedKey.unpack(value));
+
+        int[] unpacked = new int[7];
+        PackedKey.unpack(value, unpacked);
+        assertArrayEquals(key, unpacked);
+    }
+
+    @Test
+    public void testPack_Empty() {
+
+        assertArrayEquals(new int[0], PackedKey.unpack(PackedKey.pack(new int[0])));
+    }
+
+    @Test
+    public void testPack_Invalid() {
+
+        for (int[] key : new int[][]{null, {1, 16, 2}, {1, -1, 2}, new int[PackedKey.CUT_COUNT_MAX + 1]}) {
+
+            try {
+
+                // Throws: IllegalArgumentException
+                PackedKey.pack(key);
+
+                fail();
+
+            } catch (IllegalArgumentException e) {
+
+                // Expected result...
+            }
+        }
+    }
+
+    @Test
+    public void testSetCut() {
+
+        long value = PackedKey.setCut(PackedKey.pack(new int[]{2, 5, 7}), 1, 9);
+        assertArrayEquals(new int[]{2, 9, 7}, PackedKey.unpack(value));
+    }
+
+    /*
+     * Value semantics tests
+     */
+
+    @Test
+    public void testEquals() {
+
+        PackedKey packedKey = new PackedKey(new int[]{2, 5, 7});
+
+        assertEquals(packedKey, new PackedKey(new int[]{2, 5, 7}));
+        assertEquals(packedKey.hashCode(), new PackedKey(new int[]{2, 5, 7}).hashCode());
+        assertNotEquals(packedKey, new PackedKey(new int[]{2, 5, 8}));
+        assertNotEquals(packedKey, new PackedKey(new int[]{0, 2, 5, 7}));
+    }
+
+    @Test
+    public void testCompareTo() {
+
+        PackedKey[] packedKeys = {
+                new PackedKey(new int[]{3, 0, 0}),
+                new PackedKey(new int[]{2, 9, 9}),
+                new PackedKey(new int[]{0, 0, 0, 0}),
+                new PackedKey(new int[]{2, 10, 0})
+        };
+        Arrays.sort(packedKeys);
+
+        assertArrayEquals(new int[]{2, 9, 9}, packedKeys[0].getKey());
+        assertArrayEquals(new int[]{2, 10, 0}, packedKeys[1].getKey());
+        assertArrayEquals(new int[]{3, 0, 0}, packedKeys[2].getKey());
+        assertArrayEquals(new int[]{0, 0, 0, 0}, packedKeys[3].getKey());
+    }
+}
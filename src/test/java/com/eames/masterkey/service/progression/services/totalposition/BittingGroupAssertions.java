@@ -0,0 +1,90 @@
+package com.eames.masterkey.service.progression.services.totalposition;
+
+import com.eames.masterkey.model.BittingGroup;
+import com.eames.masterkey.model.BittingNode;
+import com.eames.masterkey.model.KeyBitting;
+
+import java.util.Collection;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class holds the bitting group assertions shared by the total position tests.
+ */
+final class BittingGroupAssertions {
+
+    /**
+     * Hidden constructor.
+     */
+    private BittingGroupAssertions() {
+    }
+
+    /**
+     * Asserts that the given bitting groups hold the same keys and MACS flags, node by node.
+     * Missing (pruned) nodes must be missing in both.
+     *
+     * @param expected the expected bitting group (may be {@code null})
+     * @param actual the actual bitting group (may be {@code null})
+     */
+    static void assertSameGroup(BittingGroup expected, BittingGroup actual) {
+
+        if (expected == null) {
+
+            assertNull(actual);
+            return;
+        }
+
+        assertNotNull(actual);
+        assertSameKey(expected.getMaster(), actual.getMaster());
+
+        BittingNode[] expectedNodes = expected.getGroups();
+        BittingNode[] actualNodes = actual.getGroups();
+        assertEquals(expectedNodes.length, actualNodes.length);
+        for (int node = 0; node < expectedNodes.length; node++) {
+
+            if (expectedNodes[node] == null)
+                assertNull(actualNodes[node]);
+            else if (expectedNodes[node] instanceof BittingGroup) {
+
+                assertTrue(actualNodes[node] instanceof BittingGroup);
+                assertSameGroup((BittingGroup) expectedNodes[node], (BittingGroup) actualNodes[node]);
+            }
+            else {
+
+                assertTrue(actualNodes[node] instanceof KeyBitting);
+                assertSameKey((KeyBitting) expectedNodes[node], (KeyBitting) actualNodes[node]);
+            }
+        }
+    }
+
+    /**
+     * Asserts that the given keys have the same cuts, MACS flag and largest adjacent cut difference.
+     *
+     * @param expected the expected key
+     * @param actual the actual key
+     */
+    static void assertSameKey(KeyBitting expected, KeyBitting actual) {
+
+        assertNotNull(actual);
+        assertArrayEquals(expected.getKey(), actual.getKey());
+        assertEquals(expected.getHasMACSViolation(), actual.getHasMACSViolation());
+        assertEquals(expected.getMaxAdjacentCutDifference(), actual.getMaxAdjacentCutDifference());
+    }
+
+    /**
+     * Collects the change keys of the given bitting group, in order, passing over the missing ones.
+     *
+     * @param bittingGroup the bitting group
+     * @param keys the collected keys
+     */
+    static void collectKeys(BittingGroup bittingGroup, Collection<KeyBitting> keys) {
+
+        for (BittingNode bittingNode : bittingGroup.getGroups()) {
+
+            if (bittingNode instanceof BittingGroup)
+                collectKeys((BittingGroup) bittingNode, keys);
+            else if (bittingNode != null)
+                keys.add((KeyBitting) bittingNode);
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.eames.masterkey.service.progression.services.totalposition;
 
+import com.eames.masterkey.model.BittingGroup;
+import com.eames.masterkey.model.BittingGroupStats;
+import com.eames.masterkey.model.BittingListPage;
 import com.eames.masterkey.service.ProcessingCapability;
 import com.eames.masterkey.service.progression.ProgressionServiceException;
 import com.eames.masterkey.service.progression.ProgressionServiceResults;
@@ -9,8 +12,13 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 /**
@@ -139,6 +147,16 @@ public class GenericTotalPositionProgressionServiceTest {
         assertEquals(ProcessingCapability.MAYBE, capability);
     }
 
+    @Test
+    public void testCanProcessConfigs_PagingConfigs() {
+
+        configs.put("offset", 0);
+        configs.put("limit", 10);
+        ProcessingCapability capability = service.canProcessConfigs(configs.toString());
+
+        assertEquals(ProcessingCapability.YES, capability);
+    }
+
     /*
      * .generateBittingList() tests
      */
@@ -316,4 +334,384 @@ public class GenericTotalPositionProgressionServiceTest {
             // Expected results...
         }
     }
+
+    /*
+     * .generateBittingList() paging tests
+     */
+
+    @Test
+    public void testGenerateBittingList_Pages() {
+
+        try {
+
+            // Walk the whole system 1000 change keys at a time, following the cursors.
+            configs.put("limit", 1000);
+            long expectedOffset = 0;
+            String cursor = null;
+            do {
+
+                if (cursor != null)
+                    configs.put("cursor", cursor);
+
+                // Throws: ProgressionServiceException
+                ProgressionServiceResults results = service.generateBittingList(configs.toString());
+                assertNull(results.getBittingList());
+
+                BittingListPage page = results.getBittingListPage();
+                assertNotNull(page);
+                assertEquals(expectedOffset, page.getOffset());
+                assertEquals(4096, page.getKeyCount());
+                assertEquals(expectedOffset, page.getEntries().get(0).getRank());
+
+                long changeKeyCount = page.getEntries().stream().filter(e -> !e.isMaster()).count();
+                assertEquals(Long.min(1000, 4096 - expectedOffset), changeKeyCount);
+
+                expectedOffset += changeKeyCount;
+                cursor = page.getNextCursor();
+                assertEquals(page.isLastPage(), cursor == null);
+
+            } while (cursor != null);
+
+            assertEquals(4096, expectedOffset);
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testGenerateBittingList_PageOffset() {
+
+        try {
+
+            configs.put("offset", 4092);
+
+            // Throws: ProgressionServiceException
+            BittingListPage page = service.generateBittingList(configs.toString()).getBittingListPage();
+
+            // The default limit reaches the end of the system: the last key group's master and its four change keys.
+            assertEquals(5, page.getEntries().size());
+            assertTrue(page.getEntries().get(0).isMaster());
+            assertEquals(4095, page.getEntries().get(4).getRank());
+            assertTrue(page.isLastPage());
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testGenerateBittingList_PageInvalid() {
+
+        for (Object[] paging : new Object[][]{
+                {"offset", 4096}, {"offset", -1}, {"offset", "12"}, {"limit", 0}, {"cursor", "not a cursor"}}) {
+
+            configs.put((String) paging[0], paging[1]);
+            try {
+
+                // Throws: ProgressionServiceException
+                service.generateBittingList(configs.toString());
+
+                fail();
+
+            } catch (ProgressionServiceException ex) {
+
+                // Expected results...
+            }
+            configs.remove((String) paging[0]);
+        }
+    }
+
+    @Test
+    public void testGenerateBittingList_PageCursorAndOffset() {
+
+        try {
+
+            configs.put("limit", 10);
+
+            // Throws: ProgressionServiceException
+            String cursor = service.generateBittingList(configs.toString()).getBittingListPage().getNextCursor();
+            configs.put("cursor", cursor);
+            configs.put("offset", 10);
+
+            service.generateBittingList(configs.toString());
+
+            fail();
+
+        } catch (ProgressionServiceException ex) {
+
+            // Expected results...
+        }
+    }
+
+    @Test
+    public void testGenerateBittingList_PageCursorOtherCriteria() {
+
+        try {
+
+            configs.put("limit", 10);
+
+            // Throws: ProgressionServiceException
+            String cursor = service.generateBittingList(configs.toString()).getBittingListPage().getNextCursor();
+            configs.put("cursor", cursor);
+            configs.put("macs", 6);
+
+            service.generateBittingList(configs.toString());
+
+            fail();
+
+        } catch (ProgressionServiceException ex) {
+
+            // Expected results...
+        }
+    }
+
+    /*
+     * .generateBittingList() group path tests
+     */
+
+    @Test
+    public void testGenerateBittingList_GroupPath() {
+
+        try {
+
+            configs.put("groupPath", new JSONArray(new int[]{1, 3}));
+
+            // Throws: ProgressionServiceException
+            ProgressionServiceResults results = service.generateBittingList(configs.toString());
+            BittingGroup rootBittingGroup = results.getBittingList().getRootBittingGroup();
+
+            // Only the path's groups are generated.
+            assertNull(rootBittingGroup.getGroups()[0]);
+            BittingGroup bittingGroup = (BittingGroup) rootBittingGroup.getGroups()[1];
+            assertNull(bittingGroup.getGroups()[2]);
+            bittingGroup = (BittingGroup) bittingGroup.getGroups()[3];
+            assertNotNull(bittingGroup.getMaster());
+            assertEquals(4, bittingGroup.getGroups().length);
+            assertNotNull(bittingGroup.getGroups()[2]);
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testGenerateBittingList_GroupPathInvalid() {
+
+        for (Object groupPath : new Object[]{"13", new JSONArray(new Object[]{1, "3"}), new JSONArray(new int[]{4})}) {
+
+            configs.put("groupPath", groupPath);
+            try {
+
+                // Throws: ProgressionServiceException
+                service.generateBittingList(configs.toString());
+
+                fail();
+
+            } catch (ProgressionServiceException ex) {
+
+                // Expected results...
+            }
+        }
+    }
+
+    @Test
+    public void testGenerateBittingList_GroupPathAndPaging() {
+
+        configs.put("groupPath", new JSONArray(new int[]{1}));
+        configs.put("limit", 10);
+        try {
+
+            // Throws: ProgressionServiceException
+            service.generateBittingList(configs.toString());
+
+            fail();
+
+        } catch (ProgressionServiceException ex) {
+
+            // Expected results...
+        }
+    }
+
+    @Test
+    public void testGenerateBittingList_StopBlockLevel() {
+
+        try {
+
+            configs.put("stopBlockLevel", 1);
+
+            // Throws: ProgressionServiceException
+            ProgressionServiceResults results = service.generateBittingList(configs.toString());
+
+            // Walk down to a key group: it holds its master and key count but no change keys.
+            BittingGroup bittingGroup = results.getBittingList().getRootBittingGroup();
+            for (int depth = 0; depth < 5; depth++)
+                bittingGroup = (BittingGroup) bittingGroup.getGroups()[0];
+            assertNotNull(bittingGroup.getMaster());
+            assertNull(bittingGroup.getGroups());
+            assertEquals(Long.valueOf(4), bittingGroup.getKeyCount());
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testGenerateBittingList_StopBlockLevelInvalid() {
+
+        for (Object stopBlockLevel : new Object[]{7, "1"}) {
+
+            configs.put("stopBlockLevel", stopBlockLevel);
+            try {
+
+                // Throws: ProgressionServiceException
+                service.generateBittingList(configs.toString());
+
+                fail();
+
+            } catch (ProgressionServiceException ex) {
+
+                // Expected results...
+            }
+        }
+    }
+
+    /*
+     * .generateBittingList() sequence optimization tests
+     */
+
+    @Test
+    public void testGenerateBittingList_OptimizeSequence() {
+
+        try {
+
+            configs.put("optimizeSequence", true);
+
+            // Throws: ProgressionServiceException
+            ProgressionServiceResults results = service.generateBittingList(configs.toString());
+            TotalPositionProgressionCriteria criteria = (TotalPositionProgressionCriteria) results.getCriteria();
+
+            // The sequence is the optimizer's best.
+            int[] expected = new TotalPositionSequenceOptimizer(criteria, 1).optimize(1).get(0)
+                    .getProgressionSequence();
+            assertArrayEquals(expected, criteria.getProgressionSequence());
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testGenerateBittingList_MACSHistogram() {
+
+        try {
+
+            // Throws: ProgressionServiceException
+            assertNull(service.generateBittingList(configs.toString()).getMACSHistogram());
+
+            configs.put("macsHistogram", true);
+            ProgressionServiceResults results = service.generateBittingList(configs.toString());
+            assertNotNull(results.getBittingList());
+
+            Map<Integer, Long> histogram = results.getMACSHistogram();
+            assertNotNull(histogram);
+            assertEquals(10, histogram.size());
+            assertEquals(4096, (long) histogram.get(10));
+            assertEquals(results.getBittingList().reflagMACSViolations(7), (long) histogram.get(7));
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testGenerateBittingList_UsableKeysOnly() {
+
+        try {
+
+            configs.put("usableKeysOnly", true);
+            configs.put("macsHistogram", true);
+
+            // Throws: ProgressionServiceException
+            ProgressionServiceResults results = service.generateBittingList(configs.toString());
+
+            // Every generated change key is usable.
+            assertEquals((long) results.getMACSHistogram().get(7), results.getBittingList().reflagMACSViolations(7));
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testGenerateBittingList_UsableKeysOnlyWithPaging() {
+
+        configs.put("usableKeysOnly", true);
+        configs.put("limit", 10);
+        try {
+
+            // Throws: ProgressionServiceException
+            service.generateBittingList(configs.toString());
+
+            fail();
+
+        } catch (ProgressionServiceException e) {
+
+            // Expected result...
+        }
+    }
+
+    @Test
+    public void testGenerateBittingList_GroupStats() {
+
+        try {
+
+            // Throws: ProgressionServiceException
+            assertNull(service.generateBittingList(configs.toString()).getBittingList().getRootBittingGroup()
+                    .getStats());
+
+            configs.put("groupStats", true);
+            BittingGroupStats stats = service.generateBittingList(configs.toString()).getBittingList()
+                    .getRootBittingGroup().getStats();
+            assertNotNull(stats);
+            assertEquals(4096, stats.getKeyCount());
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testGenerateBittingList_MACSHistogramWrongType() {
+
+        configs.put("macsHistogram", 1);
+        try {
+
+            // Throws: ProgressionServiceException
+            service.generateBittingList(configs.toString());
+
+            fail();
+
+        } catch (ProgressionServiceException e) {
+
+            // Expected result...
+        }
+    }
+
+    @Test
+    public void testGenerateBittingList_OptimizeSequenceWrongType() {
+
+        configs.put("optimizeSequence", "true");
+        try {
+
+            // Throws: ProgressionServiceException
+            service.generateBittingList(configs.toString());
+
+            fail();
+
+        } catch (ProgressionServiceException ex) {
+
+            // Expected results...
+        }
+    }
 }
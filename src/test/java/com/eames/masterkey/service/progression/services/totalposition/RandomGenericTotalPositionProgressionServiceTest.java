@@ -558,4 +558,205 @@ public class RandomGenericTotalPositionProgressionServiceTest {
             // Expected results...
         }
     }
+
+    /*
+     * Optimize time budget tests
+     */
+
+    @Test
+    public void testCanProcessConfigs_OptimizeTimeBudget() {
+
+        configs.put("optimizeTimeBudget", 50);
+        ProcessingCapability capability = service.canProcessConfigs(configs.toString());
+
+        assertEquals(ProcessingCapability.YES, capability);
+    }
+
+    @Test
+    public void testGenerateBittingList_OptimizeTimeBudget() {
+
+        configs.put("macs", 2);
+        configs.put("optimizeTimeBudget", 50);
+        try {
+
+            // Throws: ProgressionServiceException
+            ProgressionServiceResults results = service.generateBittingList(configs.toString());
+            assertNotNull(results);
+            assertNotNull(results.getBittingList());
+
+            TotalPositionProgressionCriteria criteria = (TotalPositionProgressionCriteria) results.getCriteria();
+            assertEquals(2, criteria.getMacs());
+            assertEquals(6, criteria.getCutCount());
+            assertEquals(4, criteria.getStepCount());
+
+            // The optimized criteria must still honor the double step progression.
+            int[] masterCuts = criteria.getMasterCuts();
+            for (int[] steps : criteria.getProgressionSteps()) {
+                for (int cut = 0; cut < masterCuts.length; cut++) {
+
+                    assertNotEquals(masterCuts[cut], steps[cut]);
+                    assertEquals(masterCuts[cut] % 2, steps[cut] % 2);
+                }
+            }
+
+        } catch (ProgressionServiceException ex) {
+
+            fail(ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testGenerateBittingList_WrongTypeOptimizeTimeBudget() {
+
+        configs.put("optimizeTimeBudget", "50");
+        try {
+
+            // Throws: ProgressionServiceException
+            service.generateBittingList(configs.toString());
+
+            fail();
+
+        } catch (ProgressionServiceException ex) {
+
+            // Expected results...
+        }
+    }
+
+    @Test
+    public void testGenerateBittingList_TooSmallOptimizeTimeBudget() {
+
+        configs.put("optimizeTimeBudget", 0);
+        try {
+
+            // Throws: ProgressionServiceException
+            service.generateBittingList(configs.toString());
+
+            fail();
+
+        } catch (ProgressionServiceException ex) {
+
+            // Expected results...
+        }
+    }
+
+    @Test
+    public void testGenerateBittingList_TooLargeOptimizeTimeBudget() {
+
+        configs.put("optimizeTimeBudget", 10001);
+        try {
+
+            // Throws: ProgressionServiceException
+            service.generateBittingList(configs.toString());
+
+            fail();
+
+        } catch (ProgressionServiceException ex) {
+
+            // Expected results...
+        }
+    }
+
+    /*
+     * Candidates tests
+     */
+
+    @Test
+    public void testCanProcessConfigs_Candidates() {
+
+        configs.put("candidates", 8);
+        ProcessingCapability capability = service.canProcessConfigs(configs.toString());
+
+        assertEquals(ProcessingCapability.YES, capability);
+    }
+
+    @Test
+    public void testGenerateBittingList_Candidates() {
+
+        configs.put("macs", 1);
+        configs.put("candidates", 64);
+        try {
+
+            // Throws: ProgressionServiceException
+            ProgressionServiceResults results = service.generateBittingList(configs.toString());
+            assertNotNull(results);
+            assertNotNull(results.getBittingList());
+
+            TotalPositionProgressionCriteria criteria = (TotalPositionProgressionCriteria) results.getCriteria();
+            assertEquals(1, criteria.getMacs());
+            assertEquals(6, criteria.getCutCount());
+
+        } catch (ProgressionServiceException ex) {
+
+            fail(ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testGenerateBittingList_CandidatesWithOptimizeTimeBudget() {
+
+        configs.put("candidates", 16);
+        configs.put("optimizeTimeBudget", 20);
+        try {
+
+            // Throws: ProgressionServiceException
+            ProgressionServiceResults results = service.generateBittingList(configs.toString());
+            assertNotNull(results);
+            assertNotNull(results.getCriteria());
+
+        } catch (ProgressionServiceException ex) {
+
+            fail(ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testGenerateBittingList_WrongTypeCandidates() {
+
+        configs.put("candidates", true);
+        try {
+
+            // Throws: ProgressionServiceException
+            service.generateBittingList(configs.toString());
+
+            fail();
+
+        } catch (ProgressionServiceException ex) {
+
+            // Expected results...
+        }
+    }
+
+    @Test
+    public void testGenerateBittingList_TooSmallCandidates() {
+
+        configs.put("candidates", 0);
+        try {
+
+            // Throws: ProgressionServiceException
+            service.generateBittingList(configs.toString());
+
+            fail();
+
+        } catch (ProgressionServiceException ex) {
+
+            // Expected results...
+        }
+    }
+
+    @Test
+    public void testGenerateBittingList_TooLargeCandidates() {
+
+        configs.put("candidates", 10001);
+        try {
+
+            // Throws: ProgressionServiceException
+            service.generateBittingList(configs.toString());
+
+            fail();
+
+        } catch (ProgressionServiceException ex) {
+
+            // Expected results...
+        }
+    }
 }
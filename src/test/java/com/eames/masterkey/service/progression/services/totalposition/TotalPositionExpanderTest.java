@@ -0,0 +1,30 @@
+package com.eames.masterkey.service.progression.services.totalposition;
+
+import com.eames.masterkey.model.BittingGroup;
+import com.eames.masterkey.model.BittingList;
+import com.eames.masterkey.model.BittingNode;
+import com.eames.masterkey.model.FlatBittingList;
+import com.eames.masterkey.model.KeyBitting;
+import com.eames.masterkey.service.ValidationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static com.eames.masterkey.service.progression.services.totalposition.BittingGroupAssertions.assertSameGroup;
+import static com.eames.masterkey.service.progression.services.totalposition.BittingGroupAssertions.assertSameKey;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class tests the {@link TotalPositionExpander} class.
+ */
+public class TotalPositionExpanderTest {
+
+    // The original criteria to test with
+    private TotalPositionProgressionCriteria oldCriteria;
+
+    // The expanded criteria to test with (a fifth progression step row)
+    private TotalPositionProgressionCriteria newCriteria;
+
+    // The expander to test
+    private TotalPositionExpander expander;
+}
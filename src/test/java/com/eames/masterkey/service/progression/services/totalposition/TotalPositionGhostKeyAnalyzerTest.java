@@ -0,0 +1,251 @@
+package com.eames.masterkey.service.progression.services.totalposition;
+
+import com.eames.masterkey.model.FlatBittingList;
+import com.eames.masterkey.model.KeyBitting;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class tests the {@link TotalPositionGhostKeyAnalyzer} class.
+ */
+public class TotalPositionGhostKeyAnalyzerTest {
+
+    // The criteria to test with
+    private TotalPositionProgressionCriteria criteria;
+
+    // The analyzer to test
+    private TotalPositionGhostKeyAnalyzer analyzer;
+
+    /**
+     * Gets called before each test.
+     */
+    @BeforeEach
+    public void setUp() {
+
+        try {
+
+            // Throws: ValidationException
+            criteria = new TotalPositionProgressionCriteria.Builder()
+                    .setMACS(4)
+                    .setMasterCuts(new int[]{2, 5, 7, 4, 5, 9})
+                    .setProgressionSteps(new int[][]{
+                            {4, 1, 9, 0, 7, 7},
+                            {0, 3, 5, 8, 3, 5},
+                            {6, 9, 3, 6, 1, 3},
+                            {8, 7, 1, 2, 9, 1}
+                    })
+                    .setProgressionSequence(new int[]{5, 3, 1, 6, 4, 2})
+                    .setStartingDepth(0)
+                    .build();
+
+            analyzer = new TotalPositionGhostKeyAnalyzer(criteria);
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    /**
+     * Gets called after each test.
+     */
+    @AfterEach
+    public void tearDown() {
+
+        criteria = null;
+        analyzer = null;
+    }
+
+    /*
+     * .getGhostKeyCount(int[]) tests
+     */
+
+    @Test
+    public void testGetGhostKeyCount_SingleCylinder() {
+
+        // Every chamber shears at two depths; 7 of the 64 combinations are the change key and its masters.
+        assertEquals(57, analyzer.getGhostKeyCount(new int[]{0, 1, 2, 3, 0, 1}));
+        assertEquals(57, analyzer.getGhostKeys(new int[]{0, 1, 2, 3, 0, 1}).size());
+    }
+
+    @Test
+    public void testGetGhostKeyCount_MatchesBruteForce() {
+
+        try {
+
+            // Throws: ProgressionServiceException
+            FlatBittingList bittingList = new TotalPositionProgressionService(criteria).generateFlatBittingList();
+
+            for (boolean usableGhostKeysOnly : new boolean[]{false, true}) {
+
+                analyzer.setUsableGhostKeysOnly(usableGhostKeysOnly);
+                for (int[] groupPath : new int[][]{{2}, {1, 3, 0, 2}}) {
+
+                    long[] expected = countGhostKeys(bittingList, groupPath, usableGhostKeysOnly);
+                    assertEquals(expected[0], analyzer.getGhostKeyCount(groupPath));
+                    assertEquals(expected[1], analyzer.getCrossGroupGhostKeyCount(groupPath));
+                    assertEquals(expected[0], analyzer.getGhostKeys(groupPath).size());
+                }
+            }
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testGetGhostKeyCount_InvalidGroupPath() {
+
+        try {
+
+            analyzer.getGhostKeyCount(new int[]{4});
+
+            fail();
+
+        } catch (IllegalArgumentException e) {
+
+            // Expected result...
+        }
+    }
+
+    /*
+     * .getCrossGroupGhostKeyCounts(int) tests
+     */
+
+    @Test
+    public void testGetCrossGroupGhostKeyCounts() {
+
+        // No ghost key leaves the root.
+        assertArrayEquals(new long[]{0}, analyzer.getCrossGroupGhostKeyCounts(0));
+
+        long[] ghostKeyCounts = analyzer.getCrossGroupGhostKeyCounts(2);
+        assertEquals(16, ghostKeyCounts.length);
+        assertEquals(analyzer.getCrossGroupGhostKeyCount(new int[]{2, 3}), ghostKeyCounts[11]);
+    }
+
+    /*
+     * Local operations
+     */
+
+    /**
+     * Counts, by brute force over the generated keys, the ghost keys of the group with the given group path.
+     *
+     * @param bittingList the system's flat bitting list
+     * @param groupPath the group's path
+     * @param usableGhostKeysOnly whether to count the keys that do not violate the MACS only
+     * @return the number of ghost keys that operate one of the group's cylinders, and the number that also operate a
+     *         cylinder outside of the group
+     */
+    private long[] countGhostKeys(FlatBittingList bittingList, int[] groupPath, boolean usableGhostKeysOnly) {
+
+        int cutCount = criteria.getCutCount();
+        int[] masterCuts = criteria.getMasterCuts();
+
+        // The system's own keys.
+        Set<List<Integer>> systemKeys = new HashSet<>();
+        for (int rank = 0; rank < bittingList.getKeyCount(); rank++)
+            systemKeys.add(toList(bittingList.getKey(rank)));
+        for (int masterIndex = 0; masterIndex < bittingList.getMasterCount(); masterIndex++)
+            systemKeys.add(toList(bittingList.getMaster(masterIndex)));
+
+        // The group's change keys are the ranks whose top digits are the group path.
+        long groupSize = bittingList.getKeyCount();
+        long groupIndex = 0;
+        for (int step : groupPath) {
+
+            groupSize /= criteria.getStepCount();
+            groupIndex = groupIndex * criteria.getStepCount() + step;
+        }
+        long firstRank = groupIndex * groupSize;
+
+        // Every key with each cut at one of the column's depths.
+        int[][] columnDepths = new int[cutCount][];
+        for (int cut = 0; cut < cutCount; cut++) {
+
+            columnDepths[cut] = new int[criteria.getStepCount() + 1];
+            columnDepths[cut][0] = masterCuts[cut];
+            for (int row = 0; row < criteria.getStepCount(); row++)
+                columnDepths[cut][row + 1] = criteria.getProgressionSteps()[row][cut];
+        }
+
+        long[] ghostKeyCounts = new long[2];
+        int[] indexes = new int[cutCount];
+        int[] key = new int[cutCount];
+        for (boolean more = true; more; ) {
+
+            for (int cut = 0; cut < cutCount; cut++)
+                key[cut] = columnDepths[cut][indexes[cut]];
+
+            if (!systemKeys.contains(toList(key)) &&
+                    !(usableGhostKeysOnly && KeyBitting.hasMACSViolation(key, criteria.getMacs()))) {
+
+                boolean inside = false;
+                boolean outside = false;
+                for (int rank = 0; (rank < bittingList.getKeyCount()) && !(inside && outside); rank++) {
+
+                    if (operates(key, bittingList.getKey(rank), masterCuts)) {
+
+                        if ((rank >= firstRank) && (rank < firstRank + groupSize))
+                            inside = true;
+                        else
+                            outside = true;
+                    }
+                }
+
+                if (inside) {
+
+                    ghostKeyCounts[0]++;
+                    if (outside)
+                        ghostKeyCounts[1]++;
+                }
+            }
+
+            int cut = cutCount - 1;
+            while ((cut >= 0) && (++indexes[cut] == columnDepths[cut].length))
+                indexes[cut--] = 0;
+            more = (cut >= 0);
+        }
+
+        return ghostKeyCounts;
+    }
+
+    /**
+     * Tests whether the given key operates the cylinder of the given change key.
+     *
+     * @param key the key
+     * @param changeKey the change key whose cylinder to test
+     * @param masterCuts the top master key's cuts
+     * @return {@code True} if every cut of the key is at one of the cylinder's shear depths, {@code false} if not
+     */
+    private static boolean operates(int[] key, int[] changeKey, int[] masterCuts) {
+
+        for (int cut = 0; cut < key.length; cut++) {
+            if ((key[cut] != changeKey[cut]) && (key[cut] != masterCuts[cut]))
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Converts the given key cuts into a list.
+     *
+     * @param key the key cuts
+     * @return the newly created list
+     */
+    private static List<Integer> toList(int[] key) {
+
+        List<Integer> list = new ArrayList<>(key.length);
+        Arrays.stream(key).forEach(list::add);
+
+        return list;
+    }
+}
@@ -0,0 +1,177 @@
+package com.eames.masterkey.service.progression.services.totalposition;
+
+import com.eames.masterkey.model.BittingListEntry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class tests the {@link TotalPositionMACSCounter} class.
+ */
+public class TotalPositionMACSCounterTest {
+
+    // The criteria to test with
+    private TotalPositionProgressionCriteria criteria;
+
+    // The counter to test
+    private TotalPositionMACSCounter counter;
+
+    /**
+     * Gets called before each test.
+     */
+    @BeforeEach
+    public void setUp() {
+
+        try {
+
+            // Throws: ValidationException
+            criteria = new TotalPositionProgressionCriteria.Builder()
+                    .setMACS(4)
+                    .setMasterCuts(new int[]{2, 5, 7, 4, 5, 9})
+                    .setProgressionSteps(new int[][]{
+                            {4, 1, 9, 0, 7, 7},
+                            {0, 3, 5, 8, 3, 5},
+                            {6, 9, 3, 6, 1, 3},
+                            {8, 7, 1, 2, 9, 1}
+                    })
+                    .setProgressionSequence(new int[]{5, 3, 1, 6, 4, 2})
+                    .setStartingDepth(0)
+                    .build();
+
+            counter = new TotalPositionMACSCounter(criteria);
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    /**
+     * Gets called after each test.
+     */
+    @AfterEach
+    public void tearDown() {
+
+        criteria = null;
+        counter = null;
+    }
+
+    /*
+     * .getUsableKeyCounts() tests
+     */
+
+    @Test
+    public void testGetUsableKeyCounts_MatchesEnumeration() {
+
+        try {
+
+            // Count the usable keys of every group at every depth by enumerating the change keys.
+            long[][] expected = new long[7][];
+            long groupCount = 1;
+            for (int depth = 0; depth <= 6; depth++) {
+
+                expected[depth] = new long[(int) groupCount];
+                groupCount *= 4;
+            }
+
+            // Throws: ProgressionServiceException
+            Iterator<BittingListEntry> iterator = new TotalPositionProgressionService(criteria).iterator(false);
+            while (iterator.hasNext()) {
+
+                BittingListEntry entry = iterator.next();
+                if (entry.getKeyBitting().getHasMACSViolation())
+                    continue;
+
+                long blockKeyCount = 4096;
+                for (int depth = 0; depth <= 6; depth++) {
+
+                    expected[depth][(int) (entry.getRank() / blockKeyCount)]++;
+                    blockKeyCount /= 4;
+                }
+            }
+
+            for (int depth = 0; depth <= 6; depth++)
+                assertArrayEquals(expected[depth], counter.getUsableKeyCounts(depth));
+            assertEquals(expected[0][0], counter.getUsableKeyCount());
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testGetUsableKeyCountsByMACS_MatchesEnumeration() {
+
+        try {
+
+            // Count the keys whose largest adjacent cut difference fits each MACS.
+            long[] expected = new long[TotalPositionProgressionCriteria.MACS_MAX + 1];
+
+            // Throws: ProgressionServiceException
+            Iterator<BittingListEntry> iterator = new TotalPositionProgressionService(criteria).iterator(false);
+            while (iterator.hasNext()) {
+
+                int maxDifference = iterator.next().getKeyBitting().getMaxAdjacentCutDifference();
+                for (int macs = Integer.max(maxDifference, 1); macs < expected.length; macs++)
+                    expected[macs]++;
+            }
+
+            Map<Integer, Long> histogram = counter.getUsableKeyCountsByMACS();
+            assertEquals(TotalPositionProgressionCriteria.MACS_MAX - TotalPositionProgressionCriteria.MACS_MIN + 1,
+                    histogram.size());
+            for (int macs = TotalPositionProgressionCriteria.MACS_MIN; macs <= TotalPositionProgressionCriteria.MACS_MAX;
+                 macs++)
+                assertEquals(expected[macs], (long) histogram.get(macs));
+
+            // The criteria's own MACS matches the plain count, and every key fits the largest MACS.
+            assertEquals(counter.getUsableKeyCount(), (long) histogram.get(4));
+            assertEquals(4096, (long) histogram.get(TotalPositionProgressionCriteria.MACS_MAX));
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testGetUsableKeyCount_GroupPath() {
+
+        long[] usableKeyCounts = counter.getUsableKeyCounts(2);
+        assertEquals(usableKeyCounts[2 * 4 + 3], counter.getUsableKeyCount(new int[]{2, 3}));
+
+        // The last change key (8, 7, 1, 2, 9, 1) violates.
+        assertEquals(0, counter.getUsableKeyCount(new int[]{3, 3, 3, 3, 3, 3}));
+    }
+
+    @Test
+    public void testGetUsableKeyCount_Invalid() {
+
+        for (int[] groupPath : new int[][]{null, {4}, {0, 0, 0, 0, 0, 0, 0}}) {
+
+            try {
+
+                counter.getUsableKeyCount(groupPath);
+
+                fail();
+
+            } catch (IllegalArgumentException e) {
+
+                // Expected result...
+            }
+        }
+
+        try {
+
+            counter.getUsableKeyCounts(7);
+
+            fail();
+
+        } catch (IllegalArgumentException e) {
+
+            // Expected result...
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.eames.masterkey.service.progression.services.totalposition;
+
+import com.eames.masterkey.model.KeyBitting;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class tests the {@link TotalPositionMACSTable} class.
+ */
+public class TotalPositionMACSTableTest {
+
+    // The criteria to test with
+    private TotalPositionProgressionCriteria criteria;
+
+    // The table to test
+    private TotalPositionMACSTable macsTable;
+
+    /**
+     * Gets called before each test.
+     */
+    @BeforeEach
+    public void setUp() {
+
+        try {
+
+            // Throws: ValidationException
+            criteria = new TotalPositionProgressionCriteria.Builder()
+                    .setMACS(4)
+                    .setMasterCuts(new int[]{2, 5, 7, 4, 5, 9})
+                    .setProgressionSteps(new int[][]{
+                            {4, 1, 9, 0, 7, 7},
+                            {0, 3, 5, 8, 3, 5},
+                            {6, 9, 3, 6, 1, 3},
+                            {8, 7, 1, 2, 9, 1}
+                    })
+                    .setProgressionSequence(new int[]{5, 3, 1, 6, 4, 2})
+                    .setStartingDepth(0)
+                    .build();
+
+            macsTable = new TotalPositionMACSTable(criteria);
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    /**
+     * Gets called after each test.
+     */
+    @AfterEach
+    public void tearDown() {
+
+        criteria = null;
+        macsTable = null;
+    }
+
+    /*
+     * Violation lookup tests
+     */
+
+    @Test
+    public void testGetViolationMask_MatchesKeyBitting() {
+
+        // Every combination of rows, master row included (5 ^ 6 keys).
+        int[] rows = new int[6];
+        int[] depths = new int[6];
+        for (int combination = 0; combination < 15625; combination++) {
+
+            int remainder = combination;
+            for (int cut = 0; cut < 6; cut++) {
+
+                rows[cut] = remainder % 5;
+                remainder /= 5;
+                depths[cut] = (rows[cut] == macsTable.getMasterRow())
+                        ? criteria.getMasterCuts()[cut]
+                        : criteria.getProgressionSteps()[rows[cut]][cut];
+            }
+
+            assertEquals(getViolationMask(depths, 4), macsTable.getViolationMask(rows));
+            assertEquals(KeyBitting.hasMACSViolation(depths, 4), macsTable.hasViolation(rows));
+        }
+    }
+
+    @Test
+    public void testUpdateViolationMask() {
+
+        int[] rows = {4, 4, 4, 4, 4, 4};
+        int violationMask = macsTable.getViolationMask(rows);
+        assertEquals(0, violationMask);
+
+        // 2, 5, 7, 4, 9, 9 violates between the fourth and fifth cuts only.
+        rows[4] = 3;
+        violationMask = macsTable.updateViolationMask(violationMask, rows, 4);
+        assertEquals(0b01000, violationMask);
+        assertEquals(macsTable.getViolationMask(rows), violationMask);
+    }
+
+    /*
+     * .hasUsableKey() tests
+     */
+
+    @Test
+    public void testHasUsableKey_MatchesBruteForce() {
+
+        // Fix the outer cuts of every block at every level and compare against a scan of the block's keys.
+        TotalPositionProgressionIndex index = new TotalPositionProgressionIndex(criteria);
+        int[] cutOrder = criteria.getCutOrder();
+        for (int blockLevel = 0; blockLevel <= 6; blockLevel++) {
+
+            long blockKeyCount = index.getBlockKeyCount(blockLevel);
+            for (long firstRank = 0; firstRank < index.getKeyCount(); firstRank += blockKeyCount) {
+
+                boolean expected = false;
+                for (long rank = firstRank; rank < firstRank + blockKeyCount; rank++)
+                    expected |= !index.getChangeKey(rank).getKeyBitting().getHasMACSViolation();
+
+                int[] rows = index.getLevels(firstRank);
+                for (int seq = 0; seq < blockLevel; seq++)
+                    rows[cutOrder[seq]] = macsTable.getMasterRow();
+
+                assertEquals(expected, macsTable.hasUsableKey(blockLevel, rows));
+            }
+        }
+    }
+
+    @Test
+    public void testHasUsableKey_FreeRows() {
+
+        int free = TotalPositionMACSTable.FREE_ROW;
+
+        // A fixed pair that violates: 9 (row 2) next to 1 (row 3).
+        assertFalse(macsTable.hasUsableKey(new int[]{free, 2, 3, free, free, free}));
+
+        // 9 (row 2) and 0 (row 0) cannot be bridged by any depth of the free cut between them (9, 5, 3 or 1).
+        assertFalse(macsTable.hasUsableKey(new int[]{free, 2, free, 0, free, free}));
+        assertTrue(macsTable.hasUsableKey(new int[]{free, 2, free, 1, free, free}));
+        assertTrue(macsTable.hasUsableKey(new int[]{free, free, free, free, free, free}));
+    }
+
+    /*
+     * Local operations
+     */
+
+    /**
+     * Builds the MACS violation mask of the given key cuts by testing every adjacent pair.
+     *
+     * @param key the key cuts
+     * @param macs the MACS to test against
+     * @return the mask, with bit {@code i} set when the cuts {@code i} and {@code i + 1} violate the MACS
+     */
+    private static int getViolationMask(int[] key, int macs) {
+
+        int violationMask = 0;
+        for (int cut = 1; cut < key.length; cut++) {
+            if (Math.abs(key[cut] - key[cut - 1]) > macs)
+                violationMask |= (1 << (cut - 1));
+        }
+
+        return violationMask;
+    }
+}
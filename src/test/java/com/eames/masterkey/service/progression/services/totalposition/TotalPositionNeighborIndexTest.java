@@ -0,0 +1,182 @@
+package com.eames.masterkey.service.progression.services.totalposition;
+
+import com.eames.masterkey.model.FlatBittingList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class tests the {@link TotalPositionNeighborIndex} class.
+ */
+public class TotalPositionNeighborIndexTest {
+
+    // The criteria to test with
+    private TotalPositionProgressionCriteria criteria;
+
+    // The index to test
+    private TotalPositionNeighborIndex index;
+
+    /**
+     * Gets called before each test.
+     */
+    @BeforeEach
+    public void setUp() {
+
+        try {
+
+            // Throws: ValidationException
+            criteria = new TotalPositionProgressionCriteria.Builder()
+                    .setMACS(4)
+                    .setMasterCuts(new int[]{2, 5, 7, 4, 5, 9})
+                    .setProgressionSteps(new int[][]{
+                            {4, 1, 9, 0, 7, 7},
+                            {0, 3, 5, 8, 3, 5},
+                            {6, 9, 3, 6, 1, 3},
+                            {8, 7, 1, 2, 9, 1}
+                    })
+                    .setProgressionSequence(new int[]{5, 3, 1, 6, 4, 2})
+                    .setStartingDepth(0)
+                    .build();
+
+            index = new TotalPositionNeighborIndex(criteria);
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    /**
+     * Gets called after each test.
+     */
+    @AfterEach
+    public void tearDown() {
+
+        criteria = null;
+        index = null;
+    }
+
+    /*
+     * .countNeighbors(int[], int, int) / .getNeighbors(int[], int, int) tests
+     */
+
+    @Test
+    public void testCountNeighbors_Hamming() {
+
+        // One cut off: 3 other rows in each of the 6 cuts.
+        int[] key = index.getKey(0);
+        assertEquals(18, index.countNeighbors(key, 1, TotalPositionNeighborIndex.ANY_DEPTH));
+
+        // Two cuts off: 15 pairs of cuts, 9 row pairs each.
+        assertEquals(18 + 135, index.countNeighbors(key, 2, TotalPositionNeighborIndex.ANY_DEPTH));
+
+        // Every other key of the system.
+        assertEquals(4095, index.countNeighbors(key, 6, TotalPositionNeighborIndex.ANY_DEPTH));
+    }
+
+    @Test
+    public void testCountNeighbors_MatchesBruteForce() {
+
+        try {
+
+            // Throws: ProgressionServiceException
+            FlatBittingList bittingList = new TotalPositionProgressionService(criteria).generateFlatBittingList();
+
+            // A system key, and a key that is not in the system.
+            for (int[] key : new int[][]{bittingList.getKey(1234), {5, 2, 8, 7, 2, 6}}) {
+                for (int maxDistance = 0; maxDistance <= 6; maxDistance += 2) {
+                    for (int tolerance : new int[]{1, 2, TotalPositionNeighborIndex.ANY_DEPTH}) {
+
+                        long expected = 0;
+                        for (int rank = 0; rank < bittingList.getKeyCount(); rank++) {
+                            if (isNeighbor(key, bittingList.getKey(rank), maxDistance, tolerance))
+                                expected++;
+                        }
+
+                        assertEquals(expected, index.countNeighbors(key, maxDistance, tolerance));
+
+                        List<int[]> neighbors = index.getNeighbors(key, maxDistance, tolerance);
+                        assertEquals(expected, neighbors.size());
+                        for (int[] neighbor : neighbors)
+                            assertTrue(isNeighbor(key, neighbor, maxDistance, tolerance));
+                    }
+                }
+            }
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testCountNeighbors_InvalidSettings() {
+
+        try {
+
+            index.countNeighbors(index.getKey(0), 7, 1);
+
+            fail();
+
+        } catch (IllegalArgumentException e) {
+
+            // Expected result...
+        }
+    }
+
+    /*
+     * .getNeighborCounts(int, int) tests
+     */
+
+    @Test
+    public void testGetNeighborCounts() {
+
+        try {
+
+            // Throws: ProgressionServiceException
+            FlatBittingList bittingList = new TotalPositionProgressionService(criteria).generateFlatBittingList();
+
+            long[] neighborCounts = index.getNeighborCounts(6, 1);
+            assertEquals(bittingList.getKeyCount(), neighborCounts.length);
+            for (int rank = 0; rank < neighborCounts.length; rank += 97) {
+
+                assertArrayEquals(bittingList.getKey(rank), index.getKey(rank));
+                assertEquals(index.countNeighbors(bittingList.getKey(rank), 6, 1), neighborCounts[rank]);
+            }
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    /*
+     * Local operations
+     */
+
+    /**
+     * Tests whether the given candidate is a neighbor of the given key.
+     *
+     * @param key the key
+     * @param candidate the candidate's cuts
+     * @param maxDistance the largest number of differing cuts
+     * @param tolerance the largest depth difference of a differing cut
+     * @return {@code True} if the candidate is a neighbor, {@code false} if not
+     */
+    private static boolean isNeighbor(int[] key, int[] candidate, int maxDistance, int tolerance) {
+
+        int distance = 0;
+        for (int cut = 0; cut < key.length; cut++) {
+
+            if (key[cut] != candidate[cut]) {
+
+                if (Math.abs(key[cut] - candidate[cut]) > tolerance)
+                    return false;
+                distance++;
+            }
+        }
+
+        return (distance > 0) && (distance <= maxDistance);
+    }
+}
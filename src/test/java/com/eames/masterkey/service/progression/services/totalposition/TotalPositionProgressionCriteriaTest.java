@@ -1,6 +1,7 @@
 package com.eames.masterkey.service.progression.services.totalposition;
 
 import com.eames.masterkey.service.ValidationException;
+import com.google.gson.Gson;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -596,6 +597,48 @@ public class TotalPositionProgressionCriteriaTest {
         assertFalse(TotalPositionProgressionCriteria.validateCutCount(8));
     }
 
+    /*
+     * Derived attribute tests
+     */
+
+    @Test
+    public void testDerivedAttributes() {
+
+        try {
+
+            TotalPositionProgressionCriteria criteria = configBuilder
+                    .setProgressionSequence(new int[]{3, 5, 2, 1, 4, 6})
+                    .build();
+
+            assertEquals(6, criteria.getCutCount());
+            assertEquals(5, criteria.getStepCount());
+            assertArrayEquals(new int[]{3, 2, 0, 4, 1, 5}, criteria.getCutOrder());
+            assertEquals(15625, criteria.getKeyCount());
+
+        } catch (ValidationException e) {
+
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testDerivedAttributes_NotSerialized() {
+
+        try {
+
+            TotalPositionProgressionCriteria criteria = configBuilder.build();
+
+            // The derived attributes are not part of the JSON responses.
+            String json = new Gson().toJson(criteria);
+            assertFalse(json.contains("cutOrder"));
+            assertTrue(json.contains("progressionSequence"));
+
+        } catch (ValidationException e) {
+
+            fail(e.getMessage());
+        }
+    }
+
     /*
      * .validateStartingDepth() tests
      */
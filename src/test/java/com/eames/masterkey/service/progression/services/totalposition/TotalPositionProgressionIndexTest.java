@@ -0,0 +1,455 @@
+package com.eames.masterkey.service.progression.services.totalposition;
+
+import com.eames.masterkey.model.BittingList;
+import com.eames.masterkey.model.BittingListEntry;
+import com.eames.masterkey.model.FlatBittingList;
+import com.eames.masterkey.model.KeyBitting;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class tests the {@link TotalPositionProgressionIndex} class.
+ */
+public class TotalPositionProgressionIndexTest {
+
+    // The criteria to test with
+    private TotalPositionProgressionCriteria criteria;
+
+    // The index to test
+    private TotalPositionProgressionIndex index;
+
+    /**
+     * Gets called before each test.
+     */
+    @BeforeEach
+    public void setUp() {
+
+        try {
+
+            // Throws: ValidationException
+            criteria = new TotalPositionProgressionCriteria.Builder()
+                    .setMACS(4)
+                    .setMasterCuts(new int[]{2, 5, 7, 4, 5, 9})
+                    .setProgressionSteps(new int[][]{
+                            {4, 1, 9, 0, 7, 7},
+                            {0, 3, 5, 8, 3, 5},
+                            {6, 9, 3, 6, 1, 3},
+                            {8, 7, 1, 2, 9, 1}
+                    })
+                    .setProgressionSequence(new int[]{5, 3, 1, 6, 4, 2})
+                    .setStartingDepth(0)
+                    .build();
+
+            index = new TotalPositionProgressionIndex(criteria);
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    /**
+     * Gets called after each test.
+     */
+    @AfterEach
+    public void tearDown() {
+
+        criteria = null;
+        index = null;
+    }
+
+    /*
+     * .getChangeKey() tests
+     */
+
+    @Test
+    public void testGetChangeKey_MatchesStream() {
+
+        try {
+
+            // Throws: ProgressionServiceException
+            Iterator<BittingListEntry> iterator = new TotalPositionProgressionService(criteria).iterator(false);
+            while (iterator.hasNext()) {
+
+                BittingListEntry expected = iterator.next();
+                BittingListEntry actual = index.getChangeKey(expected.getRank());
+
+                assertFalse(actual.isMaster());
+                assertEquals(expected.getRank(), actual.getRank());
+                assertArrayEquals(expected.getGroupPath(), actual.getGroupPath());
+                assertArrayEquals(expected.getKeyBitting().getKey(), actual.getKeyBitting().getKey());
+                assertEquals(expected.getKeyBitting().getHasMACSViolation(),
+                        actual.getKeyBitting().getHasMACSViolation());
+            }
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testGetChangeKey_Last() {
+
+        // The last key of the last group (see TotalPositionProgressionServiceTest).
+        BittingListEntry entry = index.getChangeKey(4095);
+        assertArrayEquals(new int[]{3, 3, 3, 3, 3, 3}, entry.getGroupPath());
+        assertArrayEquals(new int[]{8, 7, 1, 2, 9, 1}, entry.getKeyBitting().getKey());
+        assertTrue(entry.getKeyBitting().getHasMACSViolation());
+    }
+
+    @Test
+    public void testGetChangeKey_OutOfRange() {
+
+        try {
+
+            index.getChangeKey(4096);
+
+            fail();
+
+        } catch (IndexOutOfBoundsException e) {
+
+            // Expected result...
+        }
+
+        try {
+
+            index.getChangeKey(-1);
+
+            fail();
+
+        } catch (IndexOutOfBoundsException e) {
+
+            // Expected result...
+        }
+    }
+
+    /*
+     * .getRank() and .getGroupPath() tests
+     */
+
+    @Test
+    public void testGetRank_RoundTrip() {
+
+        for (long rank = 0; rank < index.getKeyCount(); rank += 37)
+            assertEquals(rank, index.getRank(index.getGroupPath(rank)));
+    }
+
+    @Test
+    public void testGetRank_Group() {
+
+        assertEquals(0, index.getRank(new int[0]));
+        assertEquals(3 * 1024 + 2 * 256, index.getRank(new int[]{3, 2}));
+    }
+
+    @Test
+    public void testGetRank_InvalidStep() {
+
+        try {
+
+            index.getRank(new int[]{1, 4});
+
+            fail();
+
+        } catch (IllegalArgumentException e) {
+
+            // Expected result...
+        }
+    }
+
+    /*
+     * .getMasterKey() tests
+     */
+
+    @Test
+    public void testGetMasterKey() {
+
+        BittingListEntry entry = index.getMasterKey(new int[0]);
+        assertTrue(entry.isMaster());
+        assertArrayEquals(new int[]{2, 5, 7, 4, 5, 9}, entry.getKeyBitting().getKey());
+        assertFalse(entry.getKeyBitting().getHasMACSViolation());
+
+        entry = index.getMasterKey(new int[]{3, 3, 3, 3, 3});
+        assertArrayEquals(new int[]{8, 7, 7, 2, 9, 1}, entry.getKeyBitting().getKey());
+        assertTrue(entry.getKeyBitting().getHasMACSViolation());
+        assertEquals(4092, entry.getRank());
+    }
+
+    @Test
+    public void testGetMasterKey_ChangeKeyPath() {
+
+        try {
+
+            index.getMasterKey(new int[]{0, 0, 0, 0, 0, 0});
+
+            fail();
+
+        } catch (IllegalArgumentException e) {
+
+            // Expected result...
+        }
+    }
+
+    /*
+     * .lookup() and .findRank() tests
+     */
+
+    @Test
+    public void testLookup_MatchesStream() {
+
+        try {
+
+            // Every key, master or change key, must be found at its own position.
+            // Throws: ProgressionServiceException
+            Iterator<BittingListEntry> iterator = new TotalPositionProgressionService(criteria).iterator(true);
+            while (iterator.hasNext()) {
+
+                BittingListEntry expected = iterator.next();
+                BittingListEntry actual = index.lookup(expected.getKeyBitting().getKey());
+
+                assertNotNull(actual);
+                assertEquals(expected.isMaster(), actual.isMaster());
+                assertEquals(expected.getRank(), actual.getRank());
+                assertArrayEquals(expected.getGroupPath(), actual.getGroupPath());
+                assertEquals(expected.getKeyBitting().getHasMACSViolation(),
+                        actual.getKeyBitting().getHasMACSViolation());
+            }
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testLookup_NotInSystem() {
+
+        // A depth that is not a step of its cut.
+        assertNull(index.lookup(new int[]{8, 7, 1, 2, 9, 2}));
+
+        // A master cut outside the start of the cut order.
+        assertNull(index.lookup(new int[]{8, 7, 1, 2, 9, 9}));
+
+        // A depth beyond the deepest depth, a wrong length and no key at all.
+        assertNull(index.lookup(new int[]{8, 7, 1, 2, 9, 12}));
+        assertNull(index.lookup(new int[]{8, 7, 1, 2, 9}));
+        assertNull(index.lookup(null));
+    }
+
+    @Test
+    public void testFindRank() {
+
+        assertEquals(4095, index.findRank(new int[]{8, 7, 1, 2, 9, 1}));
+        assertEquals(-1, index.findRank(new int[]{2, 5, 7, 4, 5, 9}));
+        assertEquals(-1, index.findRank(new int[]{8, 7, 1, 2, 9, 2}));
+    }
+
+    /*
+     * .getMasterKeys() tests
+     */
+
+    @Test
+    public void testGetMasterKeys_ChangeKey() {
+
+        List<BittingListEntry> masters = index.getMasterKeys(new int[]{8, 7, 1, 2, 9, 1});
+        assertNotNull(masters);
+        assertEquals(6, masters.size());
+        assertArrayEquals(new int[]{2, 5, 7, 4, 5, 9}, masters.get(0).getKeyBitting().getKey());
+        assertArrayEquals(new int[]{2, 5, 7, 2, 5, 9}, masters.get(1).getKeyBitting().getKey());
+        assertArrayEquals(new int[]{8, 7, 7, 2, 9, 1}, masters.get(5).getKeyBitting().getKey());
+    }
+
+    @Test
+    public void testGetMasterKeys_Master() {
+
+        List<BittingListEntry> masters = index.getMasterKeys(new int[]{2, 5, 7, 2, 5, 9});
+        assertNotNull(masters);
+        assertEquals(2, masters.size());
+        assertArrayEquals(new int[]{2, 5, 7, 4, 5, 9}, masters.get(0).getKeyBitting().getKey());
+        assertArrayEquals(new int[]{2, 5, 7, 2, 5, 9}, masters.get(1).getKeyBitting().getKey());
+
+        assertNull(index.getMasterKeys(new int[]{8, 7, 1, 2, 9, 2}));
+    }
+
+    /*
+     * .getLowestCommonMaster() tests
+     */
+
+    @Test
+    public void testGetLowestCommonMaster() {
+
+        // Two keys of the same key group share the key group's master.
+        BittingListEntry master = index.getLowestCommonMaster(new int[]{8, 7, 9, 2, 9, 1},
+                new int[]{8, 7, 1, 2, 9, 1});
+        assertNotNull(master);
+        assertArrayEquals(new int[]{3, 3, 3, 3, 3}, master.getGroupPath());
+        assertArrayEquals(new int[]{8, 7, 7, 2, 9, 1}, master.getKeyBitting().getKey());
+
+        // Keys of different top level groups share the root master.
+        master = index.getLowestCommonMaster(index.getChangeKey(0).getKeyBitting().getKey(),
+                new int[]{8, 7, 1, 2, 9, 1});
+        assertNotNull(master);
+        assertArrayEquals(new int[0], master.getGroupPath());
+
+        // A master and a key in its group share the master.
+        master = index.getLowestCommonMaster(new int[]{2, 5, 7, 2, 5, 9}, new int[]{8, 7, 1, 2, 9, 1});
+        assertNotNull(master);
+        assertArrayEquals(new int[]{3}, master.getGroupPath());
+
+        assertNull(index.getLowestCommonMaster(new int[]{8, 7, 1, 2, 9, 2}, new int[]{8, 7, 1, 2, 9, 1}));
+    }
+
+    /*
+     * .search() and .countMatches() tests
+     */
+
+    @Test
+    public void testSearch_MatchesBruteForce() {
+
+        try {
+
+            // Throws: ProgressionServiceException
+            FlatBittingList bittingList = new TotalPositionProgressionService(criteria).generateFlatBittingList();
+
+            for (String pattern : new String[]{"", "4", "4?9", "??????", "8?1?9?", "?3?8", "2", "4?9?7"}) {
+
+                List<Long> expected = new ArrayList<>();
+                for (int rank = 0; rank < bittingList.getKeyCount(); rank++) {
+                    if (matches(bittingList.getKey(rank), pattern))
+                        expected.add((long) rank);
+                }
+
+                assertEquals(expected.size(), index.countMatches(pattern));
+
+                List<BittingListEntry> entries = index.search(pattern);
+                assertEquals(expected.size(), entries.size());
+                for (int match = 0; match < entries.size(); match++) {
+
+                    BittingListEntry entry = entries.get(match);
+                    assertEquals((long) expected.get(match), entry.getRank());
+                    assertArrayEquals(index.getGroupPath(entry.getRank()), entry.getGroupPath());
+                    assertArrayEquals(bittingList.getKey((int) entry.getRank()), entry.getKeyBitting().getKey());
+                    assertEquals(bittingList.getHasMACSViolation((int) entry.getRank()),
+                            entry.getKeyBitting().getHasMACSViolation());
+                }
+            }
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testSearch_BittingList() {
+
+        try {
+
+            TotalPositionProgressionService service = new TotalPositionProgressionService(criteria);
+
+            // Throws: ProgressionServiceException
+            BittingList bittingList = service.generateBittingList();
+
+            List<BittingListEntry> entries = index.search("8?1?9?");
+            List<KeyBitting> keyBittings = index.search(bittingList, "8?1?9?");
+            assertEquals(entries.size(), keyBittings.size());
+            for (int match = 0; match < entries.size(); match++)
+                assertArrayEquals(entries.get(match).getKeyBitting().getKey(), keyBittings.get(match).getKey());
+
+            // A converted flat bitting list is searched the same way.
+            assertEquals(entries.size(),
+                    index.search(service.generateFlatBittingList().toBittingList(), "8?1?9?").size());
+
+            // The unusable keys are not in the list.
+            service.setUsableKeysInPlace(true);
+
+            // Throws: ProgressionServiceException
+            bittingList = service.generateBittingList();
+
+            long usableCount = entries.stream().filter(entry -> !entry.getKeyBitting().getHasMACSViolation()).count();
+            keyBittings = index.search(bittingList, "8?1?9?");
+            assertEquals(usableCount, keyBittings.size());
+            for (KeyBitting keyBitting : keyBittings)
+                assertFalse(keyBitting.getHasMACSViolation());
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testSearch_StartingDepth() {
+
+        try {
+
+            // The same system, numbered from 1.
+            int[][] progressionSteps = new int[criteria.getStepCount()][];
+            for (int row = 0; row < progressionSteps.length; row++)
+                progressionSteps[row] = Arrays.stream(criteria.getProgressionSteps()[row]).map(depth -> depth + 1)
+                        .toArray();
+
+            // Throws: ValidationException
+            TotalPositionProgressionCriteria shiftedCriteria = new TotalPositionProgressionCriteria.Builder()
+                    .setMACS(4)
+                    .setMasterCuts(Arrays.stream(criteria.getMasterCuts()).map(depth -> depth + 1).toArray())
+                    .setProgressionSteps(progressionSteps)
+                    .setProgressionSequence(criteria.getProgressionSequence())
+                    .setStartingDepth(1)
+                    .build();
+
+            // The '0' is a depth of 10.
+            TotalPositionProgressionIndex shiftedIndex = new TotalPositionProgressionIndex(shiftedCriteria);
+            List<BittingListEntry> entries = index.search("4?9");
+            List<BittingListEntry> shiftedEntries = shiftedIndex.search("5?0");
+            assertEquals(entries.size(), shiftedEntries.size());
+            assertEquals(entries.get(0).getRank(), shiftedEntries.get(0).getRank());
+            assertEquals(10, shiftedEntries.get(0).getKeyBitting().getKey()[2]);
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testSearch_InvalidPattern() {
+
+        for (String pattern : new String[]{null, "4?9?7?7", "4*9"}) {
+
+            try {
+
+                index.search(pattern);
+
+                fail();
+
+            } catch (IllegalArgumentException e) {
+
+                // Expected result...
+            }
+        }
+    }
+
+    /*
+     * Local operations
+     */
+
+    /**
+     * Tests whether the given key matches the given search pattern.
+     *
+     * @param key the key cuts
+     * @param pattern the search pattern (starting depth 0)
+     * @return {@code True} if the key matches, {@code false} if not
+     */
+    private static boolean matches(int[] key, String pattern) {
+
+        for (int cut = 0; cut < pattern.length(); cut++) {
+            if ((pattern.charAt(cut) != '?') && (pattern.charAt(cut) - '0' != key[cut]))
+                return false;
+        }
+
+        return true;
+    }
+}
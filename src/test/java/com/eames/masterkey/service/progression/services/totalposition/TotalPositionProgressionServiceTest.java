@@ -1,14 +1,25 @@
 package com.eames.masterkey.service.progression.services.totalposition;
 
 import com.eames.masterkey.model.BittingGroup;
+import com.eames.masterkey.model.BittingGroupStats;
 import com.eames.masterkey.model.BittingList;
+import com.eames.masterkey.model.BittingListEntry;
+import com.eames.masterkey.model.BittingListPage;
 import com.eames.masterkey.model.BittingNode;
+import com.eames.masterkey.model.FlatBittingList;
 import com.eames.masterkey.model.KeyBitting;
+import com.eames.masterkey.service.ValidationException;
 import com.eames.masterkey.service.progression.ProgressionServiceException;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class TotalPositionProgressionServiceTest {
@@ -361,4 +372,753 @@ public class TotalPositionProgressionServiceTest {
             fail(e.getMessage());
         }
     }
+
+    /**
+     * .generateFlatBittingList() tests
+     */
+
+    @Test
+    public void testGenerateFlatBittingList_Null() {
+
+        try {
+
+            TotalPositionProgressionService service = new TotalPositionProgressionService(null);
+
+            // Throws: ProgressionServiceException
+            service.generateFlatBittingList();
+
+            fail();
+
+        } catch (ProgressionServiceException e) {
+
+            // Expected result...
+        }
+    }
+
+    @Test
+    public void testGenerateFlatBittingList_MatchesBittingList() {
+
+        try {
+
+            TotalPositionProgressionService service = new TotalPositionProgressionService(build6x10x2Criteria());
+            // Throws: ProgressionServiceException
+            BittingList bittingList = service.generateBittingList();
+            FlatBittingList flatBittingList = service.generateFlatBittingList();
+
+            assertEquals(4096, flatBittingList.getKeyCount());
+            assertEquals(1365, flatBittingList.getMasterCount());
+            assertSameGroup(bittingList.getRootBittingGroup(), flatBittingList.toBittingList().getRootBittingGroup());
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testGenerateBittingList_IncrementalViolations() {
+
+        try {
+
+            // The incrementally maintained MACS violation flags must match a full rescan of every key.
+            // Throws: ValidationException, ProgressionServiceException
+            BittingList bittingList = new TotalPositionProgressionService(build6x10x2Criteria()).generateBittingList();
+            assertViolations(bittingList.getRootBittingGroup(), 4);
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testGenerateBittingList_UsableKeysInPlace() {
+
+        try {
+
+            TotalPositionProgressionService service = new TotalPositionProgressionService(build6x10x2Criteria());
+            assertFalse(service.getUsableKeysInPlace());
+
+            // Throws: ProgressionServiceException
+            BittingList bittingList = service.generateBittingList();
+            service.setUsableKeysInPlace(true);
+            BittingList usableBittingList = service.generateBittingList();
+
+            // Every usable key is kept and every pruned group is fully violating.
+            int usableKeyCount = assertUsableGroup(bittingList.getRootBittingGroup(),
+                    usableBittingList.getRootBittingGroup());
+            assertTrue(usableKeyCount > 0);
+
+            // The parallel generation prunes the same way.
+            ForkJoinPool pool = new ForkJoinPool(4);
+            try {
+
+                // Throws: ProgressionServiceException
+                assertSameGroup(usableBittingList.getRootBittingGroup(),
+                        service.generateBittingList(pool, 3, 1).getRootBittingGroup());
+
+            } finally {
+                pool.shutdown();
+            }
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testGenerateBittingList_UsableKeysOnly() {
+
+        try {
+
+            TotalPositionProgressionCriteria criteria = build6x10x2Criteria();
+            TotalPositionProgressionService service = new TotalPositionProgressionService(criteria);
+            assertFalse(service.getUsableKeysOnly());
+
+            // Throws: ProgressionServiceException
+            BittingList bittingList = service.generateBittingList();
+            service.setUsableKeysOnly(true);
+            BittingList compactBittingList = service.generateBittingList();
+
+            // The compacted tree holds the usable keys only, in rank order, with no gaps.
+            List<KeyBitting> usableKeys = new ArrayList<>();
+            collectCompactKeys(compactBittingList.getRootBittingGroup(), usableKeys);
+            TotalPositionUsableKeyIndex index = new TotalPositionUsableKeyIndex(criteria);
+            assertEquals(countUsableKeys(bittingList.getRootBittingGroup()), usableKeys.size());
+            assertEquals(index.getUsableKeyCount(), usableKeys.size());
+
+            // Each compacted position maps back to the same key in the full tree.
+            for (int position = 0; position < usableKeys.size(); position++) {
+
+                BittingNode bittingNode = bittingList.getRootBittingGroup();
+                for (int step : index.getGroupPath(position))
+                    bittingNode = ((BittingGroup) bittingNode).getGroups()[step];
+                assertArrayEquals(((KeyBitting) bittingNode).getKey(), usableKeys.get(position).getKey());
+            }
+
+            // The parallel generation compacts the same way.
+            ForkJoinPool pool = new ForkJoinPool(4);
+            try {
+
+                // Throws: ProgressionServiceException
+                assertSameGroup(compactBittingList.getRootBittingGroup(),
+                        service.generateBittingList(pool, 3, 1).getRootBittingGroup());
+
+            } finally {
+                pool.shutdown();
+            }
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testGenerateBittingList_GroupStats() {
+
+        try {
+
+            TotalPositionProgressionService service = new TotalPositionProgressionService(build6x10x2Criteria());
+            assertFalse(service.getGroupStats());
+
+            // Throws: ProgressionServiceException
+            assertNull(service.generateBittingList().getRootBittingGroup().getStats());
+            service.setGroupStats(true);
+            BittingList bittingList = service.generateBittingList();
+
+            // Every group's statistics match a walk of its change keys.
+            assertGroupStats(bittingList.getRootBittingGroup());
+            BittingGroupStats stats = bittingList.getRootBittingGroup().getStats();
+            assertEquals(4096, stats.getKeyCount());
+            assertEquals(countUsableKeys(bittingList.getRootBittingGroup()), stats.getUsableKeyCount());
+
+            // The parallel generation computes the same statistics.
+            ForkJoinPool pool = new ForkJoinPool(4);
+            try {
+
+                // Throws: ProgressionServiceException
+                assertGroupStats(service.generateBittingList(pool, 3, 1).getRootBittingGroup());
+
+            } finally {
+                pool.shutdown();
+            }
+
+            // The stopped groups get the statistics of their whole block.
+            service.setStopBlockLevel(2);
+            BittingList stoppedBittingList = service.generateBittingList();
+            assertSameStats(bittingList.getRootBittingGroup(), stoppedBittingList.getRootBittingGroup());
+
+            // With usable keys only, the stopped groups count the usable keys only, like the progressed groups.
+            service.setStopBlockLevel(0);
+            service.setUsableKeysOnly(true);
+            BittingList usableBittingList = service.generateBittingList();
+            service.setStopBlockLevel(2);
+            BittingList stoppedUsableBittingList = service.generateBittingList();
+            assertSameStats(usableBittingList.getRootBittingGroup(), stoppedUsableBittingList.getRootBittingGroup());
+            BittingGroup stoppedGroup = stoppedUsableBittingList.getRootBittingGroup();
+            while (stoppedGroup.getGroups() != null)
+                stoppedGroup = (BittingGroup) stoppedGroup.getGroups()[0];
+            assertEquals(stoppedGroup.getStats().getUsableKeyCount(), (long) stoppedGroup.getKeyCount());
+            assertEquals(stoppedGroup.getStats().getUsableKeyCount(), stoppedGroup.getStats().getKeyCount());
+
+            // The statistics follow a re-flagging once updated.
+            long usableKeyCount = bittingList.reflagMACSViolations(6);
+            assertEquals(usableKeyCount, bittingList.updateGroupStats().getUsableKeyCount());
+            assertGroupStats(bittingList.getRootBittingGroup());
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    /**
+     * .generateBittingList(int[]) tests
+     */
+
+    @Test
+    public void testGenerateBittingListGroupPath_MatchesBittingList() {
+
+        try {
+
+            TotalPositionProgressionService service = new TotalPositionProgressionService(build6x10x2Criteria());
+            // Throws: ProgressionServiceException
+            BittingList bittingList = service.generateBittingList();
+
+            // The empty path is the whole system.
+            assertSameGroup(bittingList.getRootBittingGroup(),
+                    service.generateBittingList(new int[0]).getRootBittingGroup());
+
+            // Every group on the path holds its master and only the next group on the path.
+            int[] groupPath = {2, 0, 3};
+            BittingGroup expected = bittingList.getRootBittingGroup();
+            BittingGroup actual = service.generateBittingList(groupPath).getRootBittingGroup();
+            for (int step : groupPath) {
+
+                assertArrayEquals(expected.getMaster().getKey(), actual.getMaster().getKey());
+                for (int node = 0; node < 4; node++)
+                    assertEquals(node == step, actual.getGroups()[node] != null);
+
+                expected = (BittingGroup) expected.getGroups()[step];
+                actual = (BittingGroup) actual.getGroups()[step];
+            }
+
+            // The group's subtree is complete.
+            assertSameGroup(expected, actual);
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testGenerateBittingListGroupPath_Invalid() {
+
+        TotalPositionProgressionService service = null;
+        try {
+
+            service = new TotalPositionProgressionService(build6x10x2Criteria());
+
+        } catch (ValidationException e) {
+            fail(e.getMessage());
+        }
+
+        for (int[] groupPath : new int[][]{null, {0, 4}, {-1}, {0, 0, 0, 0, 0, 0}}) {
+
+            try {
+
+                // Throws: ProgressionServiceException
+                service.generateBittingList(groupPath);
+
+                fail();
+
+            } catch (ProgressionServiceException e) {
+
+                // Expected result...
+            }
+        }
+    }
+
+    @Test
+    public void testGenerateBittingList_StopBlockLevel() {
+
+        try {
+
+            TotalPositionProgressionService service = new TotalPositionProgressionService(build6x10x2Criteria());
+            assertEquals(0, service.getStopBlockLevel());
+
+            // Stopping at the key groups leaves every master; the 1024 key groups are counted instead of progressed.
+            // Throws: ProgressionServiceException
+            service.setStopBlockLevel(1);
+            BittingGroup rootBittingGroup = service.generateBittingList().getRootBittingGroup();
+            assertEquals(1024, countStoppedGroups(rootBittingGroup, 4));
+            assertArrayEquals(new int[]{2, 5, 7, 4, 5, 9}, rootBittingGroup.getMaster().getKey());
+
+            // The parallel generation stops at the same level.
+            ForkJoinPool pool = new ForkJoinPool(4);
+            try {
+
+                // Throws: ProgressionServiceException
+                BittingGroup parallelRootBittingGroup = service.generateBittingList(pool, 6, 1)
+                        .getRootBittingGroup();
+                assertEquals(1024, countStoppedGroups(parallelRootBittingGroup, 4));
+
+            } finally {
+                pool.shutdown();
+            }
+
+            // Stopping at the top leaves the root master alone.
+            service.setStopBlockLevel(6);
+            rootBittingGroup = service.generateBittingList().getRootBittingGroup();
+            assertNull(rootBittingGroup.getGroups());
+            assertEquals(Long.valueOf(4096), rootBittingGroup.getKeyCount());
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testSetStopBlockLevel_Invalid() {
+
+        TotalPositionProgressionService service = null;
+        try {
+
+            service = new TotalPositionProgressionService(build6x10x2Criteria());
+
+        } catch (ValidationException e) {
+            fail(e.getMessage());
+        }
+
+        for (int stopBlockLevel : new int[]{-1, 7}) {
+
+            try {
+
+                // Throws: ProgressionServiceException
+                service.setStopBlockLevel(stopBlockLevel);
+
+                fail();
+
+            } catch (ProgressionServiceException e) {
+
+                // Expected result...
+            }
+        }
+    }
+
+    /**
+     * .generateBittingList(ForkJoinPool, int, int) tests
+     */
+
+    @Test
+    public void testGenerateBittingListParallel_MatchesBittingList() {
+
+        try {
+
+            TotalPositionProgressionService service = new TotalPositionProgressionService(build6x10x2Criteria());
+            // Throws: ProgressionServiceException
+            BittingList bittingList = service.generateBittingList();
+
+            ForkJoinPool pool = new ForkJoinPool(4);
+            try {
+
+                for (int splitDepth = 0; splitDepth <= 6; splitDepth++) {
+                    for (int sequentialThreshold : new int[]{1, 16, 1024, 100000}) {
+
+                        // Throws: ProgressionServiceException
+                        BittingList parallelBittingList = service.generateBittingList(pool, splitDepth,
+                                sequentialThreshold);
+                        assertSameGroup(bittingList.getRootBittingGroup(),
+                                parallelBittingList.getRootBittingGroup());
+                    }
+                }
+
+            } finally {
+                pool.shutdown();
+            }
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testGenerateBittingListParallel_InvalidSettings() {
+
+        TotalPositionProgressionService service = null;
+        try {
+
+            service = new TotalPositionProgressionService(build6x10x2Criteria());
+
+        } catch (ValidationException e) {
+            fail(e.getMessage());
+        }
+
+        try {
+
+            // Throws: ProgressionServiceException
+            service.generateBittingList(ForkJoinPool.commonPool(), -1, 1);
+
+            fail();
+
+        } catch (ProgressionServiceException e) {
+
+            // Expected result...
+        }
+
+        try {
+
+            // Throws: ProgressionServiceException
+            service.generateBittingList(ForkJoinPool.commonPool(), 2, 0);
+
+            fail();
+
+        } catch (ProgressionServiceException e) {
+
+            // Expected result...
+        }
+
+        try {
+
+            // Throws: ProgressionServiceException
+            service.generateBittingList(null, 2, 1);
+
+            fail();
+
+        } catch (ProgressionServiceException e) {
+
+            // Expected result...
+        }
+    }
+
+    /**
+     * .generateBittingListPage() tests
+     */
+
+    @Test
+    public void testGenerateBittingListPage_MatchesStream() {
+
+        try {
+
+            TotalPositionProgressionService service = new TotalPositionProgressionService(build6x10x2Criteria());
+
+            // Throws: ProgressionServiceException
+            List<BittingListEntry> expected = service.stream(true, false).collect(Collectors.toList());
+
+            // Page through by offset with an odd page size and compare against the full stream.
+            List<BittingListEntry> actual = new ArrayList<>();
+            BittingListPage page = service.generateBittingListPage(0, 100);
+            actual.addAll(page.getEntries());
+            while (!page.isLastPage()) {
+
+                BittingListPage nextPage = service.generateBittingListPage(page.getNextCursor(), 100);
+                assertEquals(page.getNextOffset(), nextPage.getOffset());
+                actual.addAll(nextPage.getEntries());
+                page = nextPage;
+            }
+
+            assertEquals(expected.size(), actual.size());
+            for (int entry = 0; entry < expected.size(); entry++) {
+
+                assertEquals(expected.get(entry).getRank(), actual.get(entry).getRank());
+                assertEquals(expected.get(entry).isMaster(), actual.get(entry).isMaster());
+                assertArrayEquals(expected.get(entry).getKeyBitting().getKey(),
+                        actual.get(entry).getKeyBitting().getKey());
+            }
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testGenerateBittingListPage_Null() {
+
+        try {
+
+            new TotalPositionProgressionService(null).generateBittingListPage(0, 10);
+
+            fail();
+
+        } catch (ProgressionServiceException e) {
+
+            // Expected result...
+        }
+    }
+
+    /**
+     * .reflagMACSViolations() tests
+     */
+
+    @Test
+    public void testReflagMACSViolations() {
+
+        try {
+
+            TotalPositionProgressionCriteria criteria = build6x10x2Criteria();
+            Map<Integer, Long> histogram = new TotalPositionMACSCounter(criteria).getUsableKeyCountsByMACS();
+
+            TotalPositionProgressionService service = new TotalPositionProgressionService(criteria);
+            // Throws: ProgressionServiceException
+            BittingList bittingList = service.generateBittingList();
+            FlatBittingList flatBittingList = service.generateFlatBittingList();
+
+            // Re-flagging for each MACS must match the analytic histogram and a full rescan of every key.
+            for (int macs = TotalPositionProgressionCriteria.MACS_MIN;
+                 macs <= TotalPositionProgressionCriteria.MACS_MAX; macs++) {
+
+                assertEquals((long) histogram.get(macs), bittingList.reflagMACSViolations(macs));
+                assertViolations(bittingList.getRootBittingGroup(), macs);
+
+                assertEquals((long) histogram.get(macs), flatBittingList.reflagMACSViolations(macs));
+                assertSameGroup(bittingList.getRootBittingGroup(),
+                        flatBittingList.toBittingList().getRootBittingGroup());
+            }
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    /*
+     * Local operations
+     */
+
+    /**
+     * Builds the 6 cut, 10 depth, double step criteria used by several tests.
+     *
+     * @return the newly built criteria
+     * @throws ValidationException if the criteria are invalid
+     */
+    private static TotalPositionProgressionCriteria build6x10x2Criteria()
+        throws ValidationException {
+
+        return new TotalPositionProgressionCriteria.Builder()
+                .setMACS(4)
+                .setMasterCuts(new int[]{2, 5, 7, 4, 5, 9})
+                .setProgressionSteps(new int[][]{
+                        {4, 1, 9, 0, 7, 7},
+                        {0, 3, 5, 8, 3, 5},
+                        {6, 9, 3, 6, 1, 3},
+                        {8, 7, 1, 2, 9, 1}
+                })
+                .setProgressionSequence(new int[]{5, 3, 1, 6, 4, 2})
+                .setStartingDepth(0)
+                .build();
+    }
+
+    /**
+     * Asserts that the given bitting groups hold the same keys.
+     *
+     * @param expected the expected bitting group
+     * @param actual the actual bitting group
+     */
+    private static void assertSameGroup(BittingGroup expected, BittingGroup actual) {
+
+        assertArrayEquals(expected.getMaster().getKey(), actual.getMaster().getKey());
+        assertEquals(expected.getMaster().getHasMACSViolation(), actual.getMaster().getHasMACSViolation());
+
+        BittingNode[] expectedNodes = expected.getGroups();
+        BittingNode[] actualNodes = actual.getGroups();
+        assertEquals(expectedNodes.length, actualNodes.length);
+        for (int node = 0; node < expectedNodes.length; node++) {
+
+            // Pruned nodes must be pruned in both.
+            if (expectedNodes[node] == null) {
+
+                assertNull(actualNodes[node]);
+                continue;
+            }
+
+            assertEquals(expectedNodes[node].hasGroups(), actualNodes[node].hasGroups());
+            if (expectedNodes[node].hasGroups())
+                assertSameGroup((BittingGroup) expectedNodes[node], (BittingGroup) actualNodes[node]);
+            else {
+
+                KeyBitting expectedKey = (KeyBitting) expectedNodes[node];
+                KeyBitting actualKey = (KeyBitting) actualNodes[node];
+                assertArrayEquals(expectedKey.getKey(), actualKey.getKey());
+                assertEquals(expectedKey.getHasMACSViolation(), actualKey.getHasMACSViolation());
+            }
+        }
+    }
+
+    /**
+     * Asserts that the MACS violation flags of the given bitting group's keys match a full rescan of the keys.
+     *
+     * @param bittingGroup the bitting group to check
+     * @param macs the MACS to rescan against
+     */
+    private static void assertViolations(BittingGroup bittingGroup, int macs) {
+
+        KeyBitting master = bittingGroup.getMaster();
+        assertEquals(KeyBitting.hasMACSViolation(master.getKey(), macs), master.getHasMACSViolation());
+
+        for (BittingNode bittingNode : bittingGroup.getGroups()) {
+
+            if (bittingNode.hasGroups())
+                assertViolations((BittingGroup) bittingNode, macs);
+            else {
+
+                KeyBitting keyBitting = (KeyBitting) bittingNode;
+                assertEquals(KeyBitting.hasMACSViolation(keyBitting.getKey(), macs), keyBitting.getHasMACSViolation());
+            }
+        }
+    }
+
+    /**
+     * Asserts that the given 'usable keys in place' bitting group holds exactly the usable keys of the given full
+     * bitting group, and that only the groups without a usable key were pruned.
+     *
+     * @param expected the full bitting group
+     * @param actual the 'usable keys in place' bitting group
+     * @return the number of usable keys in the group
+     */
+    private static int assertUsableGroup(BittingGroup expected, BittingGroup actual) {
+
+        assertArrayEquals(expected.getMaster().getKey(), actual.getMaster().getKey());
+
+        int usableKeyCount = 0;
+        BittingNode[] expectedNodes = expected.getGroups();
+        BittingNode[] actualNodes = actual.getGroups();
+        assertEquals(expectedNodes.length, actualNodes.length);
+        for (int node = 0; node < expectedNodes.length; node++) {
+
+            if (expectedNodes[node].hasGroups()) {
+
+                if (actualNodes[node] == null)
+                    assertEquals(0, countUsableKeys((BittingGroup) expectedNodes[node]));
+                else {
+
+                    int groupUsableKeyCount = assertUsableGroup((BittingGroup) expectedNodes[node],
+                            (BittingGroup) actualNodes[node]);
+                    assertTrue(groupUsableKeyCount > 0);
+                    usableKeyCount += groupUsableKeyCount;
+                }
+            }
+            else {
+
+                KeyBitting expectedKey = (KeyBitting) expectedNodes[node];
+                assertEquals(expectedKey.getHasMACSViolation(), actualNodes[node] == null);
+                if (actualNodes[node] != null) {
+
+                    assertArrayEquals(expectedKey.getKey(), ((KeyBitting) actualNodes[node]).getKey());
+                    usableKeyCount++;
+                }
+            }
+        }
+
+        return usableKeyCount;
+    }
+
+    /**
+     * Counts the usable keys in the given full bitting group.
+     *
+     * @param bittingGroup the bitting group
+     * @return the number of change keys that do not violate the MACS
+     */
+    private static int countUsableKeys(BittingGroup bittingGroup) {
+
+        int usableKeyCount = 0;
+        for (BittingNode bittingNode : bittingGroup.getGroups()) {
+
+            if (bittingNode.hasGroups())
+                usableKeyCount += countUsableKeys((BittingGroup) bittingNode);
+            else if (!((KeyBitting) bittingNode).getHasMACSViolation())
+                usableKeyCount++;
+        }
+
+        return usableKeyCount;
+    }
+
+    /**
+     * Collects the change keys of the given compacted bitting group in order, asserting that no node is missing.
+     *
+     * @param bittingGroup the compacted bitting group
+     * @param keys the collected change keys
+     */
+    private static void collectCompactKeys(BittingGroup bittingGroup, List<KeyBitting> keys) {
+
+        assertTrue(bittingGroup.getGroups().length > 0);
+        for (BittingNode bittingNode : bittingGroup.getGroups()) {
+
+            assertNotNull(bittingNode);
+            if (bittingNode.hasGroups())
+                collectCompactKeys((BittingGroup) bittingNode, keys);
+            else {
+
+                assertFalse(((KeyBitting) bittingNode).getHasMACSViolation());
+                keys.add((KeyBitting) bittingNode);
+            }
+        }
+    }
+
+    /**
+     * Asserts that the statistics of the given bitting group and of its child groups match a walk of their change keys.
+     *
+     * @param bittingGroup the bitting group to check
+     * @return the group's change keys
+     */
+    private static List<KeyBitting> assertGroupStats(BittingGroup bittingGroup) {
+
+        List<KeyBitting> keys = new ArrayList<>();
+        for (BittingNode bittingNode : bittingGroup.getGroups()) {
+
+            if (bittingNode instanceof BittingGroup)
+                keys.addAll(assertGroupStats((BittingGroup) bittingNode));
+            else if (bittingNode != null)
+                keys.add((KeyBitting) bittingNode);
+        }
+
+        BittingGroupStats stats = bittingGroup.getStats();
+        assertNotNull(stats);
+        assertEquals(keys.size(), stats.getKeyCount());
+        assertEquals(keys.stream().filter(key -> !key.getHasMACSViolation()).count(), stats.getUsableKeyCount());
+        assertEquals(keys.stream().mapToInt(KeyBitting::getMaxAdjacentCutDifference).max().orElse(-1),
+                stats.getMaxAdjacentCutDifference());
+
+        return keys;
+    }
+
+    /**
+     * Asserts that the groups of the given (possibly stopped) bitting group have the same statistics as the matching
+     * groups of the given fully progressed bitting group.
+     *
+     * @param expected the fully progressed bitting group
+     * @param actual the bitting group to check
+     */
+    private static void assertSameStats(BittingGroup expected, BittingGroup actual) {
+
+        assertEquals(expected.getStats().getKeyCount(), actual.getStats().getKeyCount());
+        assertEquals(expected.getStats().getUsableKeyCount(), actual.getStats().getUsableKeyCount());
+        assertEquals(expected.getStats().getMaxAdjacentCutDifference(),
+                actual.getStats().getMaxAdjacentCutDifference());
+
+        if (actual.getGroups() != null) {
+            for (int step = 0; step < actual.getGroups().length; step++)
+                assertSameStats((BittingGroup) expected.getGroups()[step], (BittingGroup) actual.getGroups()[step]);
+        }
+    }
+
+    /**
+     * Counts the groups whose progression was stopped, asserting that each holds its master and key count only and
+     * that no other group holds a key count.
+     *
+     * @param bittingGroup the bitting group to count
+     * @param keyCount the expected key count of a stopped group
+     * @return the number of stopped groups
+     */
+    private static int countStoppedGroups(BittingGroup bittingGroup, long keyCount) {
+
+        assertNotNull(bittingGroup.getMaster());
+        if (bittingGroup.getGroups() == null) {
+
+            assertEquals(Long.valueOf(keyCount), bittingGroup.getKeyCount());
+            return 1;
+        }
+
+        assertNull(bittingGroup.getKeyCount());
+        int stoppedGroupCount = 0;
+        for (BittingNode bittingNode : bittingGroup.getGroups())
+            stoppedGroupCount += countStoppedGroups((BittingGroup) bittingNode, keyCount);
+
+        return stoppedGroupCount;
+    }
 }
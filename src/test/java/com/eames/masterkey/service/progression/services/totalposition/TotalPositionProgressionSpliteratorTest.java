@@ -0,0 +1,259 @@
+package com.eames.masterkey.service.progression.services.totalposition;
+
+import com.eames.masterkey.model.BittingGroup;
+import com.eames.masterkey.model.BittingListEntry;
+import com.eames.masterkey.model.BittingNode;
+import com.eames.masterkey.model.KeyBitting;
+import com.eames.masterkey.service.progression.ProgressionServiceException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class tests the {@link TotalPositionProgressionSpliterator} class.
+ */
+public class TotalPositionProgressionSpliteratorTest {
+
+    // The criteria to test with
+    private TotalPositionProgressionCriteria criteria;
+
+    // The progression service to test with
+    private TotalPositionProgressionService service;
+
+    /**
+     * Gets called before each test.
+     */
+    @BeforeEach
+    public void setUp() {
+
+        try {
+
+            // Throws: ValidationException
+            criteria = new TotalPositionProgressionCriteria.Builder()
+                    .setMACS(4)
+                    .setMasterCuts(new int[]{2, 5, 7, 4, 5, 9})
+                    .setProgressionSteps(new int[][]{
+                            {4, 1, 9, 0, 7, 7},
+                            {0, 3, 5, 8, 3, 5},
+                            {6, 9, 3, 6, 1, 3},
+                            {8, 7, 1, 2, 9, 1}
+                    })
+                    .setProgressionSequence(new int[]{5, 3, 1, 6, 4, 2})
+                    .setStartingDepth(0)
+                    .build();
+
+            service = new TotalPositionProgressionService(criteria);
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    /**
+     * Gets called after each test.
+     */
+    @AfterEach
+    public void tearDown() {
+
+        criteria = null;
+        service = null;
+    }
+
+    /*
+     * Ordering tests
+     */
+
+    @Test
+    public void testIterator_MatchesBittingList() {
+
+        try {
+
+            // Walk the generated bitting list.
+            List<KeyBitting> expected = new ArrayList<>();
+            // Throws: ProgressionServiceException
+            walk(service.generateBittingList().getRootBittingGroup(), expected);
+
+            // Throws: ProgressionServiceException
+            Iterator<BittingListEntry> iterator = service.iterator(true);
+            for (KeyBitting expectedKey : expected) {
+
+                assertTrue(iterator.hasNext());
+                BittingListEntry entry = iterator.next();
+                assertArrayEquals(expectedKey.getKey(), entry.getKeyBitting().getKey());
+                assertEquals(expectedKey.getHasMACSViolation(), entry.getKeyBitting().getHasMACSViolation());
+            }
+            assertFalse(iterator.hasNext());
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testIterator_ChangeKeysOnly() {
+
+        try {
+
+            // Throws: ProgressionServiceException
+            Iterator<BittingListEntry> iterator = service.iterator(false);
+
+            long rank = 0;
+            while (iterator.hasNext()) {
+
+                BittingListEntry entry = iterator.next();
+                assertFalse(entry.isMaster());
+                assertEquals(rank++, entry.getRank());
+                assertEquals(6, entry.getGroupPath().length);
+            }
+            assertEquals(4096, rank);
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testIterator_GroupPaths() {
+
+        try {
+
+            // Throws: ProgressionServiceException
+            Iterator<BittingListEntry> iterator = service.iterator(true);
+
+            // The root master.
+            BittingListEntry entry = iterator.next();
+            assertTrue(entry.isMaster());
+            assertArrayEquals(new int[0], entry.getGroupPath());
+            assertArrayEquals(new int[]{2, 5, 7, 4, 5, 9}, entry.getKeyBitting().getKey());
+
+            // The first level group master.
+            entry = iterator.next();
+            assertTrue(entry.isMaster());
+            assertArrayEquals(new int[]{0}, entry.getGroupPath());
+            assertArrayEquals(new int[]{2, 5, 7, 0, 5, 9}, entry.getKeyBitting().getKey());
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    /*
+     * Sizing and splitting tests
+     */
+
+    @Test
+    public void testEstimateSize() {
+
+        try {
+
+            // 4096 change keys and 1 + 4 + 16 + 64 + 256 + 1024 master keys.
+            // Throws: ProgressionServiceException
+            assertEquals(4096 + 1365, service.spliterator(true).estimateSize());
+            assertEquals(4096, service.spliterator(false).estimateSize());
+
+            // The size shrinks as the entries are consumed.
+            Spliterator<BittingListEntry> spliterator = service.spliterator(true);
+            for (int count = 1; count <= 100; count++) {
+
+                assertTrue(spliterator.tryAdvance(e -> { }));
+                assertEquals(4096 + 1365 - count, spliterator.estimateSize());
+            }
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testTrySplit_Sizes() {
+
+        try {
+
+            // Throws: ProgressionServiceException
+            Spliterator<BittingListEntry> suffix = service.spliterator(true);
+            suffix.tryAdvance(e -> { });
+            long size = suffix.estimateSize();
+
+            Spliterator<BittingListEntry> prefix = suffix.trySplit();
+            assertNotNull(prefix);
+            assertEquals(size, prefix.estimateSize() + suffix.estimateSize());
+
+            // The exact sizes are honoured.
+            long[] counts = new long[2];
+            prefix.forEachRemaining(e -> counts[0]++);
+            suffix.forEachRemaining(e -> counts[1]++);
+            assertEquals(size, counts[0] + counts[1]);
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testStream_Parallel() {
+
+        try {
+
+            // Throws: ProgressionServiceException
+            List<String> sequential = service.stream(true, false)
+                    .map(e -> Arrays.toString(e.getKeyBitting().getKey()))
+                    .collect(Collectors.toList());
+            List<String> parallel = service.stream(true, true)
+                    .map(e -> Arrays.toString(e.getKeyBitting().getKey()))
+                    .collect(Collectors.toList());
+
+            assertEquals(4096 + 1365, sequential.size());
+            assertEquals(sequential, parallel);
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testSpliterator_Null() {
+
+        try {
+
+            // Throws: ProgressionServiceException
+            new TotalPositionProgressionService(null).spliterator(true);
+
+            fail();
+
+        } catch (ProgressionServiceException e) {
+
+            // Expected result...
+        }
+    }
+
+    /*
+     * Local operations
+     */
+
+    /**
+     * Walks the given bitting group depth first and collects its keys.
+     *
+     * @param bittingGroup the bitting group to walk
+     * @param keys the list of keys to fill
+     */
+    private static void walk(BittingGroup bittingGroup, List<KeyBitting> keys) {
+
+        keys.add(bittingGroup.getMaster());
+        for (BittingNode bittingNode : bittingGroup.getGroups()) {
+
+            if (bittingNode.hasGroups())
+                walk((BittingGroup) bittingNode, keys);
+            else
+                keys.add((KeyBitting) bittingNode);
+        }
+    }
+}
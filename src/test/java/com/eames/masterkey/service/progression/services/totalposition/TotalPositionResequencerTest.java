@@ -0,0 +1,34 @@
+package com.eames.masterkey.service.progression.services.totalposition;
+
+import com.eames.masterkey.model.BittingGroup;
+import com.eames.masterkey.model.BittingList;
+import com.eames.masterkey.model.BittingNode;
+import com.eames.masterkey.model.FlatBittingList;
+import com.eames.masterkey.model.KeyBitting;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import static com.eames.masterkey.service.progression.services.totalposition.BittingGroupAssertions.assertSameGroup;
+import static com.eames.masterkey.service.progression.services.totalposition.BittingGroupAssertions.assertSameKey;
+import static com.eames.masterkey.service.progression.services.totalposition.BittingGroupAssertions.collectKeys;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class tests the {@link TotalPositionResequencer} class.
+ */
+public class TotalPositionResequencerTest {
+
+    // The new progression sequence to test with
+    private static final int[] NEW_SEQUENCE = {2, 6, 4, 1, 3, 5};
+
+    // The criteria to test with
+    private TotalPositionProgressionCriteria criteria;
+
+    // The resequencer to test
+    private TotalPositionResequencer resequencer;
+}
@@ -0,0 +1,128 @@
+package com.eames.masterkey.service.progression.services.totalposition;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class tests the {@link TotalPositionSequenceOptimizer} class.
+ */
+public class TotalPositionSequenceOptimizerTest {
+
+    // The criteria to test with
+    private TotalPositionProgressionCriteria criteria;
+
+    /**
+     * Gets called before each test.
+     */
+    @BeforeEach
+    public void setUp() {
+
+        try {
+
+            // Throws: ValidationException
+            criteria = new TotalPositionProgressionCriteria.Builder()
+                    .setMACS(4)
+                    .setMasterCuts(new int[]{2, 5, 7, 4, 5, 9})
+                    .setProgressionSteps(new int[][]{
+                            {4, 1, 9, 0, 7, 7},
+                            {0, 3, 5, 8, 3, 5},
+                            {6, 9, 3, 6, 1, 3},
+                            {8, 7, 1, 2, 9, 1}
+                    })
+                    .setProgressionSequence(new int[]{5, 3, 1, 6, 4, 2})
+                    .setStartingDepth(0)
+                    .build();
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    /**
+     * Gets called after each test.
+     */
+    @AfterEach
+    public void tearDown() {
+
+        criteria = null;
+    }
+
+    /*
+     * .generateSequence() tests
+     */
+
+    @Test
+    public void testGenerateSequence_AllPermutations() {
+
+        Set<String> sequences = new HashSet<>();
+        for (int permutation = 0; permutation < 24; permutation++) {
+
+            int[] sequence = TotalPositionSequenceOptimizer.generateSequence(permutation, 4);
+            int[] sorted = sequence.clone();
+            Arrays.sort(sorted);
+            assertArrayEquals(new int[]{1, 2, 3, 4}, sorted);
+
+            sequences.add(Arrays.toString(sequence));
+        }
+
+        assertEquals(24, sequences.size());
+    }
+
+    /*
+     * .optimize() tests
+     */
+
+    @Test
+    public void testOptimize_BestFirst() {
+
+        TotalPositionSequenceOptimizer optimizer = new TotalPositionSequenceOptimizer(criteria, 1);
+
+        // Every sequence is scored, and the total usable key count never depends on the sequence.
+        List<TotalPositionSequenceOptimizer.Candidate> candidates = optimizer.optimize(1000);
+        assertEquals(720, candidates.size());
+
+        long usableKeyCount = new TotalPositionMACSCounter(criteria).getUsableKeyCount();
+        for (int candidate = 0; candidate < candidates.size(); candidate++) {
+
+            assertEquals(usableKeyCount, Arrays.stream(candidates.get(candidate).getUsableKeyCounts()).sum());
+            if (candidate > 0)
+                assertTrue(candidates.get(candidate - 1).getMinUsableKeyCount()
+                        >= candidates.get(candidate).getMinUsableKeyCount());
+        }
+
+        // The best candidates are returned first.
+        List<TotalPositionSequenceOptimizer.Candidate> best = optimizer.optimize(3);
+        assertEquals(3, best.size());
+        assertArrayEquals(candidates.get(0).getProgressionSequence(), best.get(0).getProgressionSequence());
+
+        // The best is at least as balanced as the original sequence.
+        assertTrue(best.get(0).getMinUsableKeyCount()
+                >= optimizer.score(criteria.getProgressionSequence()).getMinUsableKeyCount());
+    }
+
+    @Test
+    public void testConstructor_InvalidDepth() {
+
+        for (int groupDepth : new int[]{0, 6}) {
+
+            try {
+
+                new TotalPositionSequenceOptimizer(criteria, groupDepth);
+
+                fail();
+
+            } catch (IllegalArgumentException e) {
+
+                // Expected result...
+            }
+        }
+    }
+}
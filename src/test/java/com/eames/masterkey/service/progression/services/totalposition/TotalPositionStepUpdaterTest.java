@@ -0,0 +1,31 @@
+package com.eames.masterkey.service.progression.services.totalposition;
+
+import com.eames.masterkey.model.BittingGroup;
+import com.eames.masterkey.model.BittingList;
+import com.eames.masterkey.model.BittingNode;
+import com.eames.masterkey.model.FlatBittingList;
+import com.eames.masterkey.model.KeyBitting;
+import com.eames.masterkey.service.ValidationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.eames.masterkey.service.progression.services.totalposition.BittingGroupAssertions.assertSameGroup;
+import static com.eames.masterkey.service.progression.services.totalposition.BittingGroupAssertions.assertSameKey;
+import static com.eames.masterkey.service.progression.services.totalposition.BittingGroupAssertions.collectKeys;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class tests the {@link TotalPositionStepUpdater} class.
+ */
+public class TotalPositionStepUpdaterTest {
+
+    // The original criteria to test with
+    private TotalPositionProgressionCriteria oldCriteria;
+
+    // The edited criteria to test with (two cells edited)
+    private TotalPositionProgressionCriteria newCriteria;
+}
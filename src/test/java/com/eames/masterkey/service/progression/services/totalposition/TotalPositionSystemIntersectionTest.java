@@ -0,0 +1,255 @@
+package com.eames.masterkey.service.progression.services.totalposition;
+
+import com.eames.masterkey.model.FlatBittingList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class tests the {@link TotalPositionSystemIntersection} class.
+ */
+public class TotalPositionSystemIntersectionTest {
+
+    // The first system's criteria
+    private TotalPositionProgressionCriteria criteria;
+
+    // The second system's criteria
+    private TotalPositionProgressionCriteria otherCriteria;
+
+    /**
+     * Gets called before each test.
+     */
+    @BeforeEach
+    public void setUp() {
+
+        try {
+
+            // Throws: ValidationException
+            criteria = new TotalPositionProgressionCriteria.Builder()
+                    .setMACS(4)
+                    .setMasterCuts(new int[]{2, 5, 7, 4, 5, 9})
+                    .setProgressionSteps(new int[][]{
+                            {4, 1, 9, 0, 7, 7},
+                            {0, 3, 5, 8, 3, 5},
+                            {6, 9, 3, 6, 1, 3},
+                            {8, 7, 1, 2, 9, 1}
+                    })
+                    .setProgressionSequence(new int[]{5, 3, 1, 6, 4, 2})
+                    .setStartingDepth(0)
+                    .build();
+
+            // Throws: ValidationException
+            otherCriteria = new TotalPositionProgressionCriteria.Builder()
+                    .setMACS(5)
+                    .setMasterCuts(new int[]{2, 5, 7, 4, 5, 9})
+                    .setProgressionSteps(new int[][]{
+                            {4, 1, 9, 0, 7, 7},
+                            {0, 2, 4, 8, 2, 5},
+                            {1, 3, 6, 7, 3, 6}
+                    })
+                    .setProgressionSequence(new int[]{1, 2, 3, 4, 5, 6})
+                    .setStartingDepth(0)
+                    .build();
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    /**
+     * Gets called after each test.
+     */
+    @AfterEach
+    public void tearDown() {
+
+        criteria = null;
+        otherCriteria = null;
+    }
+
+    /*
+     * .getSharedKeyCount() / .iterator() tests
+     */
+
+    @Test
+    public void testIntersection_MatchesBruteForce() {
+
+        try {
+
+            // Throws: ProgressionServiceException
+            FlatBittingList bittingList = new TotalPositionProgressionService(criteria).generateFlatBittingList();
+            FlatBittingList otherBittingList =
+                    new TotalPositionProgressionService(otherCriteria).generateFlatBittingList();
+
+            Set<List<Integer>> expected = toSet(bittingList);
+            expected.retainAll(toSet(otherBittingList));
+
+            TotalPositionSystemIntersection intersection = new TotalPositionSystemIntersection(criteria, otherCriteria);
+            assertEquals(expected.size(), intersection.getSharedKeyCount());
+            assertArrayEquals(new int[]{0, 4}, intersection.getSharedDepths(0));
+
+            Set<List<Integer>> actual = new HashSet<>();
+            for (int[] key : intersection)
+                assertTrue(actual.add(toList(key)));
+            assertEquals(expected, actual);
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testIntersection_StartingDepths() {
+
+        try {
+
+            // The second system, numbered from 1.
+            int[][] progressionSteps = new int[otherCriteria.getStepCount()][];
+            for (int row = 0; row < progressionSteps.length; row++)
+                progressionSteps[row] = Arrays.stream(otherCriteria.getProgressionSteps()[row]).map(depth -> depth + 1)
+                        .toArray();
+            int[] masterCuts = Arrays.stream(otherCriteria.getMasterCuts()).map(depth -> depth + 1).toArray();
+
+            // Throws: ValidationException
+            TotalPositionProgressionCriteria shiftedCriteria = new TotalPositionProgressionCriteria.Builder()
+                    .setMACS(5)
+                    .setMasterCuts(masterCuts)
+                    .setProgressionSteps(progressionSteps)
+                    .setProgressionSequence(otherCriteria.getProgressionSequence())
+                    .setStartingDepth(1)
+                    .build();
+
+            TotalPositionSystemIntersection intersection = new TotalPositionSystemIntersection(criteria, otherCriteria);
+            TotalPositionSystemIntersection shiftedIntersection =
+                    new TotalPositionSystemIntersection(criteria, shiftedCriteria);
+            assertEquals(intersection.getSharedKeyCount(), shiftedIntersection.getSharedKeyCount());
+
+            // The keys are numbered like the first system's.
+            Iterator<int[]> iterator = intersection.iterator();
+            for (int[] key : shiftedIntersection)
+                assertArrayEquals(iterator.next(), key);
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testIntersection_ThreeSystems() {
+
+        try {
+
+            // Throws: ValidationException
+            TotalPositionProgressionCriteria thirdCriteria = new TotalPositionProgressionCriteria.Builder()
+                    .setMACS(4)
+                    .setMasterCuts(new int[]{2, 5, 7, 4, 5, 9})
+                    .setProgressionSteps(new int[][]{
+                            {4, 1, 9, 0, 7, 7},
+                            {6, 0, 0, 1, 0, 0}
+                    })
+                    .setProgressionSequence(new int[]{1, 2, 3, 4, 5, 6})
+                    .setStartingDepth(0)
+                    .build();
+
+            TotalPositionSystemIntersection intersection =
+                    new TotalPositionSystemIntersection(criteria, otherCriteria, thirdCriteria);
+            assertEquals(1, intersection.getSharedKeyCount());
+
+            Iterator<int[]> iterator = intersection.iterator();
+            assertArrayEquals(new int[]{4, 1, 9, 0, 7, 7}, iterator.next());
+            assertFalse(iterator.hasNext());
+            iterator.next();
+
+            fail();
+
+        } catch (NoSuchElementException e) {
+
+            // Expected result...
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testIntersection_DifferentCutCounts() {
+
+        try {
+
+            // Throws: ValidationException
+            TotalPositionProgressionCriteria fiveCutCriteria = new TotalPositionProgressionCriteria.Builder()
+                    .setMACS(4)
+                    .setMasterCuts(new int[]{2, 5, 7, 4, 5})
+                    .setProgressionSteps(new int[][]{
+                            {4, 1, 9, 0, 7}
+                    })
+                    .setProgressionSequence(new int[]{1, 2, 3, 4, 5})
+                    .setStartingDepth(0)
+                    .build();
+
+            TotalPositionSystemIntersection intersection = new TotalPositionSystemIntersection(criteria, fiveCutCriteria);
+            assertEquals(0, intersection.getSharedKeyCount());
+            assertFalse(intersection.iterator().hasNext());
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testIntersection_SingleSystem() {
+
+        try {
+
+            new TotalPositionSystemIntersection(criteria);
+
+            fail();
+
+        } catch (IllegalArgumentException e) {
+
+            // Expected result...
+        }
+    }
+
+    /*
+     * Local operations
+     */
+
+    /**
+     * Collects the change keys of the given flat bitting list.
+     *
+     * @param bittingList the flat bitting list
+     * @return the set of change keys
+     */
+    private static Set<List<Integer>> toSet(FlatBittingList bittingList) {
+
+        Set<List<Integer>> keys = new HashSet<>();
+        for (int rank = 0; rank < bittingList.getKeyCount(); rank++)
+            keys.add(toList(bittingList.getKey(rank)));
+
+        return keys;
+    }
+
+    /**
+     * Converts the given key cuts into a list.
+     *
+     * @param key the key cuts
+     * @return the newly created list
+     */
+    private static List<Integer> toList(int[] key) {
+
+        List<Integer> list = new ArrayList<>(key.length);
+        Arrays.stream(key).forEach(list::add);
+
+        return list;
+    }
+}
@@ -0,0 +1,175 @@
+package com.eames.masterkey.service.progression.services.totalposition;
+
+import com.eames.masterkey.model.FlatBittingList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class tests the {@link TotalPositionUsableKeyIndex} class.
+ */
+public class TotalPositionUsableKeyIndexTest {
+
+    // The criteria to test with
+    private TotalPositionProgressionCriteria criteria;
+
+    // The index to test
+    private TotalPositionUsableKeyIndex index;
+
+    /**
+     * Gets called before each test.
+     */
+    @BeforeEach
+    public void setUp() {
+
+        try {
+
+            // Throws: ValidationException
+            criteria = new TotalPositionProgressionCriteria.Builder()
+                    .setMACS(4)
+                    .setMasterCuts(new int[]{2, 5, 7, 4, 5, 9})
+                    .setProgressionSteps(new int[][]{
+                            {4, 1, 9, 0, 7, 7},
+                            {0, 3, 5, 8, 3, 5},
+                            {6, 9, 3, 6, 1, 3},
+                            {8, 7, 1, 2, 9, 1}
+                    })
+                    .setProgressionSequence(new int[]{5, 3, 1, 6, 4, 2})
+                    .setStartingDepth(0)
+                    .build();
+
+            index = new TotalPositionUsableKeyIndex(criteria);
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    /**
+     * Gets called after each test.
+     */
+    @AfterEach
+    public void tearDown() {
+
+        criteria = null;
+        index = null;
+    }
+
+    /*
+     * .getPosition(long) / .getRank(long) tests
+     */
+
+    @Test
+    public void testGetPosition_MatchesFlatBittingList() {
+
+        try {
+
+            // Throws: ProgressionServiceException
+            FlatBittingList bittingList = new TotalPositionProgressionService(criteria).generateFlatBittingList();
+
+            long position = 0;
+            for (int rank = 0; rank < bittingList.getKeyCount(); rank++) {
+
+                if (bittingList.getHasMACSViolation(rank))
+                    assertEquals(-1, index.getPosition(rank));
+                else {
+
+                    assertEquals(position, index.getPosition(rank));
+                    assertEquals(rank, index.getRank(position));
+                    position++;
+                }
+            }
+            assertEquals(position, index.getUsableKeyCount());
+            assertEquals(new TotalPositionMACSCounter(criteria).getUsableKeyCount(), index.getUsableKeyCount());
+
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testGetPosition_OutOfRange() {
+
+        try {
+
+            index.getPosition(criteria.getKeyCount());
+
+            fail();
+
+        } catch (IndexOutOfBoundsException e) {
+
+            // Expected result...
+        }
+    }
+
+    @Test
+    public void testGetRank_OutOfRange() {
+
+        try {
+
+            index.getRank(index.getUsableKeyCount());
+
+            fail();
+
+        } catch (IndexOutOfBoundsException e) {
+
+            // Expected result...
+        }
+    }
+
+    /*
+     * .getGroupPath(long) tests
+     */
+
+    @Test
+    public void testGetGroupPath() {
+
+        long rank = index.getRank(index.getUsableKeyCount() / 2);
+
+        int[] groupPath = index.getGroupPath(index.getUsableKeyCount() / 2);
+        assertEquals(criteria.getCutCount(), groupPath.length);
+
+        long pathRank = 0;
+        for (int step : groupPath)
+            pathRank = pathRank * criteria.getStepCount() + step;
+        assertEquals(rank, pathRank);
+    }
+
+    /*
+     * .getSteps(int[]) tests
+     */
+
+    @Test
+    public void testGetSteps() {
+
+        TotalPositionMACSCounter counter = new TotalPositionMACSCounter(criteria);
+
+        // The root keeps the children that lead to a usable key.
+        int[] steps = index.getSteps(new int[0]);
+        long usableKeyCount = 0;
+        for (int step : steps) {
+
+            long childUsableKeyCount = counter.getUsableKeyCount(new int[]{step});
+            assertTrue(childUsableKeyCount > 0);
+            usableKeyCount += childUsableKeyCount;
+        }
+        assertEquals(index.getUsableKeyCount(), usableKeyCount);
+    }
+
+    @Test
+    public void testGetSteps_PathTooLong() {
+
+        try {
+
+            index.getSteps(new int[criteria.getCutCount()]);
+
+            fail();
+
+        } catch (IllegalArgumentException e) {
+
+            // Expected result...
+        }
+    }
+}